@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates realistic inputs for the benchmarks.
+ */
+public final class BenchmarkData {
+
+  private static final String[] WORDS = {
+    "fix", "add", "remove", "refactor", "the", "handling", "of", "repository", "configuration", "for", "jira",
+    "issues", "and", "update", "tests", "null", "pointer", "in", "push", "hook", "when", "branch", "is", "deleted",
+    "improve", "performance", "cache", "transitions", "comment", "merge", "pull", "request", "see", "also"
+  };
+
+  private static final int LINE_LENGTH = 72;
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * Returns the given number of distinct jira project keys.
+   */
+  public static List<String> projectKeys(int count) {
+    List<String> keys = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      keys.add(projectKey(i));
+    }
+    return keys;
+  }
+
+  /**
+   * Returns a comma separated filter with the given number of project keys, an empty filter for 0.
+   */
+  public static String filter(int count) {
+    return String.join(",", projectKeys(count));
+  }
+
+  /**
+   * Returns a commit message with roughly the given size in bytes. Every 25th word is an issue key, most of them
+   * belong to the first 100 of the generated project keys, some of them to projects which are not part of any filter.
+   */
+  public static String message(int size, long seed) {
+    Random random = new Random(seed);
+    StringBuilder message = new StringBuilder(size + LINE_LENGTH);
+    int lineStart = 0;
+    int word = 0;
+    while (message.length() < size) {
+      if (word > 0) {
+        if (message.length() - lineStart > LINE_LENGTH) {
+          message.append('\n');
+          lineStart = message.length();
+        } else {
+          message.append(' ');
+        }
+      }
+      if (++word % 25 == 0) {
+        String project = random.nextInt(10) == 0 ? "OTHER" : projectKey(random.nextInt(100));
+        message.append(project).append('-').append(1 + random.nextInt(9999));
+      } else {
+        message.append(WORDS[random.nextInt(WORDS.length)]);
+      }
+    }
+    return message.toString();
+  }
+
+  /**
+   * Returns a single line message with roughly the given size in bytes, which contains no issue key but many fragments
+   * which look like one. Such a message forces a backtracking regular expression to retry the whole key alternation at
+   * nearly every position.
+   */
+  public static String adversarialMessage(int size, long seed) {
+    String key = projectKey(0);
+    String[] fragments = {
+      key + "-", key + "-x", "x" + key + "-1", "_" + key + "-2", key + "42", "P-", key + "Z-", "-1", key + "1-" + key + "-"
+    };
+    Random random = new Random(seed);
+    StringBuilder message = new StringBuilder(size + LINE_LENGTH);
+    while (message.length() < size) {
+      message.append(fragments[random.nextInt(fragments.length)]).append(' ');
+    }
+    return message.toString();
+  }
+
+  private static String projectKey(int index) {
+    char[] key = new char[4];
+    key[0] = 'P';
+    int value = index;
+    for (int i = key.length - 1; i > 0; i--) {
+      key[i] = (char) ('A' + value % 26);
+      value /= 26;
+    }
+    return new String(key);
+  }
+}
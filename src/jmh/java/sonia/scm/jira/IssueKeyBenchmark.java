@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import sonia.scm.cache.MapCacheManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmarks the creation of the issue key pattern and the extraction of issue keys from commit messages, which
+ * happens for every commit of a push and for every rendered changeset. The extraction with the regular expression is
+ * compared with the {@link IssueKeyScanner}, once with and once without materializing the keys as strings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IssueKeyBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class FilterState {
+
+    @Param({"0", "1", "50", "5000"})
+    private int projectKeys;
+
+    private String filter;
+    private IssueKeyMatcherRegistry registry;
+    private JiraIssueMatcher matcher;
+
+    @Setup
+    public void setUp() {
+      filter = BenchmarkData.filter(projectKeys);
+      registry = new IssueKeyMatcherRegistry(new MapCacheManager(), new SimpleMeterRegistry());
+      matcher = new JiraIssueMatcher(registry.get(filter));
+    }
+  }
+
+  @State(Scope.Benchmark)
+  public static class MessageState {
+
+    @Param({"1024", "65536", "1048576"})
+    private int messageSize;
+
+    private String message;
+
+    @Setup
+    public void setUp() {
+      message = BenchmarkData.message(messageSize, 42L);
+    }
+  }
+
+  @Benchmark
+  public IssueKeyFilter lookupCachedFilter(FilterState state) {
+    return state.registry.get(state.filter);
+  }
+
+  @Benchmark
+  public Pattern compilePattern(FilterState state) {
+    return Pattern.compile(IssueKeys.PATTERN_EXPRESSION_LOADER.apply(state.filter));
+  }
+
+  @Benchmark
+  public void extractIssueKeys(FilterState filterState, MessageState messageState, Blackhole blackhole) {
+    JiraIssueMatcher matcher = filterState.matcher;
+    Matcher m = matcher.getKeyPattern().matcher(messageState.message);
+    while (m.find()) {
+      blackhole.consume(matcher.getKey(m));
+    }
+  }
+
+  @Benchmark
+  public void scanIssueKeys(FilterState filterState, MessageState messageState, Blackhole blackhole) {
+    IssueKeyScanner.KeyMatcher m = filterState.matcher.getKeyScanner().matcher(messageState.message);
+    while (m.find()) {
+      blackhole.consume(m.key());
+    }
+  }
+
+  @Benchmark
+  public void locateIssueKeys(FilterState filterState, MessageState messageState, Blackhole blackhole) {
+    IssueKeyScanner.KeyMatcher m = filterState.matcher.getKeyScanner().matcher(messageState.message);
+    while (m.find()) {
+      blackhole.consume(m.start());
+    }
+  }
+}
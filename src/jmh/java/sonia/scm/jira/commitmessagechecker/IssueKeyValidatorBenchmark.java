@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.commitmessagechecker;
+
+import com.cloudogu.scm.commitmessagechecker.Context;
+import com.cloudogu.scm.commitmessagechecker.InvalidCommitMessageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.jira.BenchmarkData;
+import sonia.scm.jira.IssueKeyMatcherRegistry;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.project.ProjectKeySync;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static sonia.scm.jira.commitmessagechecker.JiraCommitMessageIssueKeyValidator.JiraCommitMessageIssueKeyValidatorConfig;
+
+/**
+ * Benchmarks the validation of commit messages, which is executed for every commit of a push if the commit message
+ * checker is configured. The benchmark returns the exception of rejected messages, because messages without a valid
+ * key are a regular case. Adversarial messages contain no key, but many fragments which look like one, the time per
+ * byte must not be higher than for regular messages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IssueKeyValidatorBenchmark {
+
+  @Param({"1024", "65536", "1048576", "8388608"})
+  private int messageSize;
+
+  @Param({"regular", "adversarial"})
+  private String messageType;
+
+  @Param({"0", "1", "50", "5000"})
+  private int projectKeys;
+
+  private JiraCommitMessageIssueKeyValidator validator;
+  private Context context;
+  private String message;
+
+  @Setup
+  public void setUp() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setFilter(BenchmarkData.filter(projectKeys));
+    JiraConfigurationResolver resolver = new JiraConfigurationResolver(null) {
+      @Override
+      public Optional<JiraConfiguration> resolve(Repository repository) {
+        return Optional.of(configuration);
+      }
+    };
+    // synchronization of project keys is disabled, so no rest api is required
+    ProjectKeySync projectKeySync = new ProjectKeySync(new InMemoryDataStoreFactory(new InMemoryDataStore<>()), null);
+    IssueKeyMatcherRegistry matcherRegistry = new IssueKeyMatcherRegistry(new MapCacheManager(), new SimpleMeterRegistry());
+    validator = new JiraCommitMessageIssueKeyValidator(resolver, projectKeySync, matcherRegistry);
+    context = new Context(RepositoryTestData.createHeartOfGold(), "main", new JiraCommitMessageIssueKeyValidatorConfig());
+    if ("adversarial".equals(messageType)) {
+      message = BenchmarkData.adversarialMessage(messageSize, 42L);
+    } else {
+      message = BenchmarkData.message(messageSize, 42L);
+    }
+  }
+
+  @Benchmark
+  public Object validate() {
+    try {
+      validator.validate(context, message);
+      return null;
+    } catch (InvalidCommitMessageException ex) {
+      return ex;
+    }
+  }
+}
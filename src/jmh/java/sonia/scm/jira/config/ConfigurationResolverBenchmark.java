@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import org.apache.shiro.SecurityUtils;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authz.SimpleRole;
+import org.apache.shiro.authz.permission.WildcardPermission;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.realm.SimpleAccountRealm;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks the resolution of the jira configuration of a repository, which happens for every push and for every
+ * rendered changeset. Every second repository has its own configuration, the others fall back to the global one.
+ * {@code resolve} uses the cached configurations, {@code resolveFromStore} reads the stores on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfigurationResolverBenchmark {
+
+  @Param({"100", "5000"})
+  private int repositoryCount;
+
+  @Param({"false", "true"})
+  private boolean disableRepositoryConfiguration;
+
+  private JiraConfigurationResolver resolver;
+  private Repository[] repositories;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    SimpleAccountRealm realm = new SimpleAccountRealm();
+    SimpleRole role = new SimpleRole("admin");
+    role.add(new WildcardPermission("*"));
+    realm.add(role);
+    realm.addAccount("admin", "secret", "admin");
+    SecurityUtils.setSecurityManager(new DefaultSecurityManager(realm));
+    Subject subject = SecurityUtils.getSubject();
+    subject.login(new UsernamePasswordToken("admin", "secret"));
+
+    JiraConfigurationStore store = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory(), mock(ScmEventBus.class));
+    JiraGlobalConfiguration globalConfiguration = new JiraGlobalConfiguration();
+    globalConfiguration.setUrl("https://jira.hitchhiker.com");
+    globalConfiguration.setDisableRepositoryConfiguration(disableRepositoryConfiguration);
+    store.setGlobalConfiguration(globalConfiguration);
+
+    repositories = new Repository[repositoryCount];
+    for (int i = 0; i < repositoryCount; i++) {
+      Repository repository = new Repository("repo-" + i, "git", "hitchhiker", "repository-" + i);
+      if (i % 2 == 0) {
+        JiraConfiguration configuration = new JiraConfiguration();
+        configuration.setUrl("https://jira-" + i + ".hitchhiker.com");
+        store.setConfiguration(configuration, repository);
+      }
+      repositories[i] = repository;
+    }
+
+    resolver = new JiraConfigurationResolver(store);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    SecurityUtils.getSubject().logout();
+    ThreadContext.unbindSubject();
+    ThreadContext.unbindSecurityManager();
+  }
+
+  @Benchmark
+  public Optional<JiraConfiguration> resolve() {
+    return resolver.resolve(repositories[ThreadLocalRandom.current().nextInt(repositories.length)]);
+  }
+
+  @Benchmark
+  public Optional<JiraConfiguration> resolveFromStore() {
+    return resolver.load(repositories[ThreadLocalRandom.current().nextInt(repositories.length)]);
+  }
+}
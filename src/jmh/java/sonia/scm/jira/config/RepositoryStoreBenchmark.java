@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Benchmarks the read of repository configurations on an instance with many repositories, as it happens for
+ * repository listings and pushes. {@code readCachedStore} uses the cached store handles, {@code readNewStore} builds
+ * the store for every read. The in memory store factory only shows the cost of building the handles, the file based
+ * stores of a real instance additionally resolve the repository location.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RepositoryStoreBenchmark {
+
+  @Param({"20000"})
+  private int repositoryCount;
+
+  private JiraConfigurationStore store;
+  private Repository[] repositories;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    store = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory(), mock(ScmEventBus.class));
+    repositories = new Repository[repositoryCount];
+    for (int i = 0; i < repositoryCount; i++) {
+      repositories[i] = new Repository("repo-" + i, "git", "hitchhiker", "repository-" + i);
+      store.getConfiguration(repositories[i]);
+    }
+  }
+
+  @Benchmark
+  public JiraConfiguration readCachedStore() {
+    return store.getConfiguration(randomRepository());
+  }
+
+  @Benchmark
+  public Optional<JiraConfiguration> readNewStore() {
+    return store.createRepositoryStore(randomRepository()).getOptional();
+  }
+
+  private Repository randomRepository() {
+    return repositories[ThreadLocalRandom.current().nextInt(repositories.length)];
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Suppliers;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled form of a comma separated list of jira project keys. The filter provides an {@link IssueKeyScanner}, which
+ * is used within this plugin, and the regular expression, which is required by the issue tracker api. The expression
+ * is only compiled on first use.
+ */
+public final class IssueKeyFilter {
+
+  private final String filter;
+  private final IssueKeyScanner scanner;
+  private final Supplier<Pattern> pattern;
+
+  private IssueKeyFilter(String filter) {
+    this.filter = filter;
+    this.scanner = IssueKeyScanner.create(filter);
+    this.pattern = Suppliers.memoize(() -> Pattern.compile(IssueKeys.PATTERN_EXPRESSION_LOADER.apply(filter)));
+  }
+
+  /**
+   * Compiles the given comma separated list of project keys. If the list is null or empty, the filter matches the
+   * issue keys of every project. Use {@link IssueKeyMatcherRegistry#get(String)} to get a cached instance.
+   *
+   * @param commaSeparatedProjectKeys comma separated list of jira project keys
+   *
+   * @return compiled filter
+   */
+  public static IssueKeyFilter compile(String commaSeparatedProjectKeys) {
+    return new IssueKeyFilter(normalize(commaSeparatedProjectKeys));
+  }
+
+  static String normalize(String commaSeparatedProjectKeys) {
+    return Strings.nullToEmpty(commaSeparatedProjectKeys).trim();
+  }
+
+  /**
+   * Returns the comma separated list of project keys.
+   */
+  public String getFilter() {
+    return filter;
+  }
+
+  /**
+   * Returns the scanner for issue keys of the filtered projects.
+   */
+  public IssueKeyScanner getScanner() {
+    return scanner;
+  }
+
+  /**
+   * Returns the regular expression for issue keys of the filtered projects.
+   */
+  public Pattern getPattern() {
+    return pattern.get();
+  }
+}
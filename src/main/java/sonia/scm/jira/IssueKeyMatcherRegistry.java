@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import com.github.legman.Subscribe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import sonia.scm.EagerSingleton;
+import sonia.scm.cache.Cache;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.jira.config.JiraConfigurationChangedEvent;
+import sonia.scm.plugin.Extension;
+
+/**
+ * Registry of compiled {@link IssueKeyFilter}s, which is shared by the issue matcher and the commit message validator.
+ * The filters are stored in the cache {@value #CACHE_NAME} of the {@link CacheManager}, so its size can be configured
+ * like the caches of the core. The cache is cleared after a jira configuration was stored.
+ * <p>
+ * The registry publishes the metrics {@code scm.jira.matchers.requests} (tagged with hit or miss) and
+ * {@code scm.jira.matchers.size}.
+ */
+@Extension
+@EagerSingleton
+public class IssueKeyMatcherRegistry {
+
+  static final String CACHE_NAME = "sonia.cache.jira.matchers";
+
+  private final Cache<String, IssueKeyFilter> cache;
+  private final Counter hits;
+  private final Counter misses;
+
+  @Inject
+  public IssueKeyMatcherRegistry(CacheManager cacheManager, MeterRegistry meterRegistry) {
+    this.cache = cacheManager.getCache(CACHE_NAME);
+    this.hits = requests(meterRegistry, "hit");
+    this.misses = requests(meterRegistry, "miss");
+    Gauge.builder("scm.jira.matchers.size", cache, Cache::size)
+      .description("Number of compiled issue key matchers")
+      .register(meterRegistry);
+  }
+
+  private static Counter requests(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("scm.jira.matchers.requests")
+      .description("Lookups of compiled issue key matchers")
+      .tag("result", result)
+      .register(meterRegistry);
+  }
+
+  /**
+   * Returns the compiled filter for the given comma separated list of project keys.
+   *
+   * @param commaSeparatedProjectKeys comma separated list of jira project keys, null or empty for all projects
+   *
+   * @return compiled filter
+   */
+  public IssueKeyFilter get(String commaSeparatedProjectKeys) {
+    String key = IssueKeyFilter.normalize(commaSeparatedProjectKeys);
+    IssueKeyFilter filter = cache.get(key);
+    if (filter != null) {
+      hits.increment();
+      return filter;
+    }
+    misses.increment();
+    // concurrent misses may compile the same filter twice, which is cheaper than holding a lock while compiling
+    filter = IssueKeyFilter.compile(key);
+    cache.put(key, filter);
+    return filter;
+  }
+
+  @Subscribe(async = false)
+  public void onConfigurationChanged(JiraConfigurationChangedEvent event) {
+    cache.clear();
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds jira issue keys in a text without regular expressions. The scanner walks the text once and does not allocate
+ * anything while searching, only the found keys are materialized as strings on request.
+ * <p>
+ * The scanner uses the same semantics as the pattern of {@link IssueKeyFilter#getPattern()}: a key starts at a word
+ * boundary, consists of a project key followed by a dash and at least one digit. As for {@code \b}, a word character
+ * is a unicode letter, a unicode digit or an underscore, so there is no key directly after an umlaut. Without a
+ * filter, a project key is a sequence of upper case ascii letters. Project keys of the filter are compared literally.
+ * <p>
+ * The project keys of a filter are stored in a {@link ProjectKeyTrie}, so the work per word boundary is bounded by the
+ * length of the longest project key and does not grow with the number of projects in the filter. If an entry of the
+ * filter is a regular expression, e.g. {@code ABC|DEF} or {@code PRJ.*}, the scanner falls back to the pattern of the
+ * filter.
+ */
+public final class IssueKeyScanner {
+
+  private static final char KEY_SEPARATOR = ',';
+
+  /** project keys of the filter or {@code null} to match every project */
+  private final ProjectKeyTrie projectKeys;
+
+  /** pattern of a filter with regular expressions or {@code null} */
+  private final Pattern pattern;
+
+  private IssueKeyScanner(ProjectKeyTrie projectKeys, Pattern pattern) {
+    this.projectKeys = projectKeys;
+    this.pattern = pattern;
+  }
+
+  /**
+   * Creates a scanner for the given comma separated list of project keys. If the list is null or empty, the scanner
+   * finds the issue keys of every project.
+   *
+   * @param commaSeparatedProjectKeys comma separated list of jira project keys
+   *
+   * @return scanner for the given projects
+   */
+  public static IssueKeyScanner create(String commaSeparatedProjectKeys) {
+    String filter = Strings.nullToEmpty(commaSeparatedProjectKeys).trim();
+    if (filter.isEmpty()) {
+      return new IssueKeyScanner(null, null);
+    }
+    List<String> keys = Splitter.on(KEY_SEPARATOR).omitEmptyStrings().trimResults().splitToList(filter);
+    if (!ProjectKeyTrie.isLiteral(keys)) {
+      return new IssueKeyScanner(null, Pattern.compile(IssueKeys.PATTERN_EXPRESSION_LOADER.apply(filter)));
+    }
+    return new IssueKeyScanner(ProjectKeyTrie.of(keys), null);
+  }
+
+  /**
+   * Returns a matcher, which finds the issue keys of the given text.
+   *
+   * @param text text to scan
+   *
+   * @return matcher for the text
+   */
+  public KeyMatcher matcher(CharSequence text) {
+    return new KeyMatcher(text);
+  }
+
+  /**
+   * Returns {@code true} if the text contains at least one issue key.
+   *
+   * @param text text to scan
+   *
+   * @return {@code true} if an issue key was found
+   */
+  public boolean containsKey(CharSequence text) {
+    return find(text, 0) >= 0;
+  }
+
+  /**
+   * Returns start and end of the first issue key, which starts at or after {@code from}, or -1 if there is none. The
+   * start is packed into the upper and the end into the lower 32 bits, to avoid an allocation per match.
+   */
+  private long find(CharSequence text, int from) {
+    if (pattern != null) {
+      Matcher matcher = pattern.matcher(text);
+      return matcher.find(from) ? ((long) matcher.start(1) << 32) | matcher.end(1) : -1;
+    }
+    int length = text.length();
+    for (int i = from; i < length; i++) {
+      if (i > 0 && isWordBefore(text, i)) {
+        continue;
+      }
+      int end = matchAt(text, i, length);
+      if (end >= 0) {
+        return ((long) i << 32) | end;
+      }
+    }
+    return -1;
+  }
+
+  private int matchAt(CharSequence text, int start, int length) {
+    if (projectKeys == null) {
+      int position = start;
+      while (position < length && isUpperCase(text.charAt(position))) {
+        position++;
+      }
+      return position > start ? matchNumber(text, position, length) : -1;
+    }
+    return projectKeys.match(text, start, length);
+  }
+
+  /**
+   * Matches the dash and the digits of the issue number and returns the end of the number or -1.
+   */
+  static int matchNumber(CharSequence text, int dash, int length) {
+    if (dash + 1 >= length || text.charAt(dash) != '-' || !isDigit(text.charAt(dash + 1))) {
+      return -1;
+    }
+    int position = dash + 2;
+    while (position < length && isDigit(text.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  private static boolean isUpperCase(char c) {
+    return c >= 'A' && c <= 'Z';
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Returns {@code true} if the code point before the index is a word character, like the left side of {@code \b}.
+   * Combining marks count as word characters, if they follow a letter or digit.
+   */
+  static boolean isWordBefore(CharSequence text, int index) {
+    if (text.charAt(index - 1) == '_') {
+      return true;
+    }
+    int position = index;
+    while (position > 0) {
+      int c = Character.codePointBefore(text, position);
+      if (Character.isLetterOrDigit(c)) {
+        return true;
+      }
+      if (Character.getType(c) != Character.NON_SPACING_MARK) {
+        return false;
+      }
+      position -= Character.charCount(c);
+    }
+    return false;
+  }
+
+  /**
+   * Iterates over the issue keys of a text, similar to {@link java.util.regex.Matcher#find()}.
+   */
+  public final class KeyMatcher {
+
+    private final CharSequence text;
+    private int position;
+    private int start = -1;
+    private int end = -1;
+
+    private KeyMatcher(CharSequence text) {
+      this.text = text;
+    }
+
+    /**
+     * Searches the next issue key.
+     *
+     * @return {@code true} if another key was found
+     */
+    public boolean find() {
+      long match = position <= text.length() ? IssueKeyScanner.this.find(text, position) : -1;
+      if (match < 0) {
+        start = -1;
+        end = -1;
+        position = text.length() + 1;
+        return false;
+      }
+      start = (int) (match >>> 32);
+      end = (int) match;
+      position = end;
+      return true;
+    }
+
+    /**
+     * Returns the start index of the found key.
+     */
+    public int start() {
+      checkMatch();
+      return start;
+    }
+
+    /**
+     * Returns the index after the last character of the found key.
+     */
+    public int end() {
+      checkMatch();
+      return end;
+    }
+
+    /**
+     * Returns the found key.
+     */
+    public String key() {
+      checkMatch();
+      return text.subSequence(start, end).toString();
+    }
+
+    private void checkMatch() {
+      if (start < 0) {
+        throw new IllegalStateException("no issue key found");
+      }
+    }
+  }
+}
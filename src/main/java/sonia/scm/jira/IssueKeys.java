@@ -25,7 +25,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import sonia.scm.jira.config.JiraConfiguration;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.function.UnaryOperator;
@@ -50,20 +49,15 @@ public final class IssueKeys {
             buffer.append("[A-Z]+");
         } else {
             List<String> keys = Splitter.on(KEY_SEPARATOR).omitEmptyStrings().trimResults().splitToList(key);
-            if (keys.size() == 1) {
-                // match only one project
+            if (ProjectKeyTrie.isLiteral(keys)) {
+                // factor out common prefixes, so that filters with thousands of projects do not produce a flat
+                // alternation which is tried key by key at every word boundary
+                buffer.append(ProjectKeyTrie.of(keys).toRegex());
+            } else if (keys.size() == 1) {
+                // the entries of the filter are regular expressions, e.g. PRJ.*
                 buffer.append(keys.get(0));
             } else {
-                //create non capturing "or" group
-                buffer.append("(?:");
-                Iterator<String> it = keys.iterator();
-                while (it.hasNext()) {
-                    buffer.append(it.next());
-                    if (it.hasNext()) {
-                        buffer.append('|');
-                    }
-                }
-                buffer.append(')');
+                buffer.append("(?:").append(String.join("|", keys)).append(')');
             }
         }
         buffer.append("-\\d+)");
@@ -95,7 +89,10 @@ public final class IssueKeys {
      * @param commaSeparatedIssueKeys comma separated list of jira project keys
      *
      * @return regex pattern which matches the given jira projects
+     * @deprecated use {@link IssueKeyMatcherRegistry#get(String)}, which is bounded and shared with the other
+     *             components of the plugin
      */
+    @Deprecated
     public static Pattern createPattern(String commaSeparatedIssueKeys) {
         return PATTERN_CACHE.getUnchecked(Strings.nullToEmpty(commaSeparatedIssueKeys).trim());
     }
@@ -106,7 +103,9 @@ public final class IssueKeys {
      * @param configuration jira configuration
      *
      * @return regex pattern which matches the configured jira projects
+     * @deprecated use {@link IssueKeyMatcherRegistry#get(String)}
      */
+    @Deprecated
     public static Pattern createPattern(JiraConfiguration configuration) {
         return createPattern(configuration.getFilter());
     }
@@ -29,17 +29,17 @@ public class JiraCommentator implements Commentator {
   private final RestApi restApi;
   private final JiraConfiguration configuration;
 
-  JiraCommentator(RestApi restApi, JiraConfiguration configuration) {
+  public JiraCommentator(RestApi restApi, JiraConfiguration configuration) {
     this.restApi = restApi;
     this.configuration = configuration;
   }
 
   @Override
   public void comment(String issueKey, String content) throws IOException {
-    restApi.addComment(issueKey, comment(content));
+    restApi.addComment(issueKey, comment(configuration, content));
   }
 
-  private RestComment comment(String content) {
+  static RestComment comment(JiraConfiguration configuration, String content) {
     return new RestComment(content, Strings.emptyToNull(configuration.getRoleLevel()));
   }
 }
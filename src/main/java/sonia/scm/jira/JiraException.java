@@ -26,6 +26,9 @@ public class JiraException extends IOException {
 
   private static final long serialVersionUID = 789942536863663559L;
 
+  /** http status code of the failed request or 0 */
+  private final int status;
+
   /**
    * Constructs ...
    *
@@ -33,8 +36,32 @@ public class JiraException extends IOException {
    * @param message
    */
   public JiraException(String message)
+  {
+    this(message, 0);
+  }
+
+  /**
+   * Constructs a new exception for a failed request.
+   *
+   *
+   * @param message exception message
+   * @param status http status code returned by jira
+   */
+  public JiraException(String message, int status)
   {
     super(message);
+    this.status = status;
+  }
+
+  /**
+   * Returns the http status code returned by jira or 0, if the exception was not caused by a failed request.
+   *
+   *
+   * @return http status code or 0
+   */
+  public int getStatus()
+  {
+    return status;
   }
 
 }
@@ -17,7 +17,6 @@
 package sonia.scm.jira;
 
 import sonia.scm.issuetracker.IssueMatcher;
-import sonia.scm.jira.config.JiraConfiguration;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -25,9 +24,11 @@ import java.util.regex.Pattern;
 public class JiraIssueMatcher implements IssueMatcher {
 
   private final Pattern keyPattern;
+  private final IssueKeyScanner keyScanner;
 
-  JiraIssueMatcher(JiraConfiguration configuration) {
-    this.keyPattern = IssueKeys.createPattern(configuration);
+  JiraIssueMatcher(IssueKeyFilter filter) {
+    this.keyPattern = filter.getPattern();
+    this.keyScanner = filter.getScanner();
   }
 
   @Override
@@ -35,6 +36,16 @@ public class JiraIssueMatcher implements IssueMatcher {
     return keyPattern;
   }
 
+  /**
+   * Returns a scanner, which finds the same keys as {@link #getKeyPattern()} without regular expressions. The pattern
+   * is still required by the issue tracker api, code of this plugin should use the scanner.
+   *
+   * @return scanner for issue keys
+   */
+  public IssueKeyScanner getKeyScanner() {
+    return keyScanner;
+  }
+
   @Override
   public String getKey(Matcher matcher) {
     return matcher.group();
@@ -16,57 +16,255 @@
 
 package sonia.scm.jira;
 
+import com.github.legman.Subscribe;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.Commentator;
 import sonia.scm.issuetracker.spi.IssueTrackerBuilder;
 import sonia.scm.issuetracker.spi.IssueTrackerProvider;
+import sonia.scm.issuetracker.spi.StateChanger;
+import sonia.scm.jira.aggregation.AggregatingCommentator;
+import sonia.scm.jira.aggregation.CommentAggregator;
+import sonia.scm.jira.branch.BranchFilteringCommentator;
+import sonia.scm.jira.branch.BranchMatcher;
+import sonia.scm.jira.branch.ChangesetBranches;
 import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationChangedEvent;
 import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.fingerprint.CommentFingerprintIndex;
+import sonia.scm.jira.fingerprint.DeduplicatingCommentator;
+import sonia.scm.jira.fingerprint.PatchIds;
+import sonia.scm.jira.outbox.FailoverCommentator;
+import sonia.scm.jira.outbox.FailoverStateChanger;
+import sonia.scm.jira.outbox.JiraOutbox;
+import sonia.scm.jira.outbox.OutboxCommentator;
+import sonia.scm.jira.outbox.OutboxStateChanger;
+import sonia.scm.jira.project.ProjectKeySync;
+import sonia.scm.jira.rest.JiraCircuitBreaker;
 import sonia.scm.jira.rest.RestApi;
-import sonia.scm.net.ahc.AdvancedHttpClient;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.jira.storm.ImportStormCommentator;
+import sonia.scm.jira.storm.ImportStormGuard;
+import sonia.scm.jira.storm.ImportStormStateChanger;
 import sonia.scm.plugin.Extension;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
 
 import jakarta.inject.Inject;
-import jakarta.inject.Provider;
+import javax.annotation.Nullable;
+import java.util.Objects;
 import java.util.Optional;
 
+/**
+ * Provides the jira issue tracker of a repository. The jira side of the issue trackers (issue matcher, link factory,
+ * commentator and state changer) is cached per repository, together with the configuration, the project key filter
+ * and the delivery mode it was built from. The cached components are reused as long as all of them are unchanged, but
+ * the issue tracker is assembled with the builder of each call, because the builder belongs to the caller. The cache
+ * is cleared if a configuration is stored ({@link JiraConfigurationChangedEvent}) and the entry of a repository is
+ * removed if the repository is modified or deleted, because the components hold the repository.
+ */
 @Extension
+@EagerSingleton
 public class JiraIssueTrackerProvider implements IssueTrackerProvider {
 
   private static final String NAME = "jira";
+  private static final int MAXIMUM_CACHED_REPOSITORIES = 10000;
 
   private final JiraConfigurationResolver resolver;
-  private final Provider<AdvancedHttpClient> httpClient;
+  private final JiraConfigurationStore configurationStore;
+  private final RestApiFactory restApiFactory;
+  private final JiraOutbox outbox;
+  private final CommentAggregator commentAggregator;
+  private final JiraCircuitBreaker circuitBreaker;
+  private final ProjectKeySync projectKeySync;
+  private final IssueKeyMatcherRegistry matcherRegistry;
+  private final CommentFingerprintIndex fingerprintIndex;
+  private final PatchIds patchIds;
+  private final ChangesetBranches changesetBranches;
+  private final ImportStormGuard importStormGuard;
+  private final Counter avoidedTransitionLookups;
+
+  /** jira side of the issue trackers, the key is the id of the repository */
+  private final Cache<String, JiraComponents> jiraComponents = CacheBuilder.newBuilder()
+    .maximumSize(MAXIMUM_CACHED_REPOSITORIES)
+    .build();
 
   @Inject
-  public JiraIssueTrackerProvider(JiraConfigurationResolver resolver, Provider<AdvancedHttpClient> httpClient) {
+  public JiraIssueTrackerProvider(JiraConfigurationResolver resolver,
+                                  JiraConfigurationStore configurationStore,
+                                  RestApiFactory restApiFactory,
+                                  JiraOutbox outbox,
+                                  CommentAggregator commentAggregator,
+                                  JiraCircuitBreaker circuitBreaker,
+                                  ProjectKeySync projectKeySync,
+                                  IssueKeyMatcherRegistry matcherRegistry,
+                                  CommentFingerprintIndex fingerprintIndex,
+                                  PatchIds patchIds,
+                                  ChangesetBranches changesetBranches,
+                                  ImportStormGuard importStormGuard,
+                                  MeterRegistry meterRegistry) {
     this.resolver = resolver;
-    this.httpClient = httpClient;
+    this.configurationStore = configurationStore;
+    this.restApiFactory = restApiFactory;
+    this.outbox = outbox;
+    this.commentAggregator = commentAggregator;
+    this.circuitBreaker = circuitBreaker;
+    this.projectKeySync = projectKeySync;
+    this.matcherRegistry = matcherRegistry;
+    this.fingerprintIndex = fingerprintIndex;
+    this.patchIds = patchIds;
+    this.changesetBranches = changesetBranches;
+    this.importStormGuard = importStormGuard;
+    this.avoidedTransitionLookups = JiraStateChanger.avoidedTransitionLookups(meterRegistry);
   }
 
   @Override
   public Optional<IssueTracker> create(IssueTrackerBuilder builder, Repository repository) {
-    return resolver.resolve(repository).map(configuration -> create(builder, configuration, repository));
+    Optional<JiraConfiguration> configuration = resolver.resolve(repository);
+    if (!configuration.isPresent()) {
+      jiraComponents.invalidate(repository.getId());
+      return Optional.empty();
+    }
+    return Optional.of(get(builder, configuration.get(), repository));
   }
 
-  private IssueTracker create(IssueTrackerBuilder builder, JiraConfiguration configuration, Repository repository) {
-    IssueTrackerBuilder.ReadStage readStage = builder.start(
-      NAME, new JiraIssueMatcher(configuration), new JiraIssueLinkFactory(configuration)
+  private IssueTracker get(IssueTrackerBuilder builder, JiraConfiguration configuration, Repository repository) {
+    String filter = projectKeySync.getFilter(configuration);
+    // while jira is unavailable, updates are queued instead of failing
+    boolean async = configuration.isUpdateIssues() && (
+      configurationStore.getGlobalConfiguration().isAsyncDelivery() || circuitBreaker.isOpen(configuration.getUrl())
     );
 
-    if (configuration.isUpdateIssues()) {
-      RestApi restApi = new RestApi(httpClient.get(), configuration);
-      IssueTrackerBuilder.ChangeStateStage changeStateStage = readStage.commenting(repository, new JiraCommentator(restApi, configuration))
-        .template("/sonia/scm/jira/{0}_reference.mustache");
-      if (configuration.isAutoClose()) {
-        return changeStateStage.stateChanging(new JiraStateChanger(restApi, configuration))
-          .template("/sonia/scm/jira/{0}_statechange.mustache")
-          .build();
+    JiraComponents components = jiraComponents.getIfPresent(repository.getId());
+    if (components == null || !components.isBuiltFrom(configuration, filter, async)) {
+      components = create(configuration, filter, async, repository);
+      jiraComponents.put(repository.getId(), components);
+    }
+    return build(builder, components, repository);
+  }
+
+  /**
+   * Assembles the issue tracker from the cached components. The builder is passed per call and may hold state of the
+   * current invocation, so the issue tracker itself is built anew every time.
+   */
+  private IssueTracker build(IssueTrackerBuilder builder, JiraComponents components, Repository repository) {
+    IssueTrackerBuilder.ReadStage readStage = builder.start(NAME, components.issueMatcher, components.linkFactory);
+    if (components.commentator == null) {
+      return readStage.build();
+    }
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = readStage.commenting(repository, components.commentator)
+      .template("/sonia/scm/jira/{0}_reference.mustache");
+    if (components.stateChanger == null) {
+      return changeStateStage.build();
+    }
+    return changeStateStage.stateChanging(components.stateChanger)
+      .template("/sonia/scm/jira/{0}_statechange.mustache")
+      .build();
+  }
+
+  private JiraComponents create(JiraConfiguration configuration, String filter, boolean async, Repository repository) {
+    JiraIssueMatcher issueMatcher = new JiraIssueMatcher(matcherRegistry.get(filter));
+    JiraIssueLinkFactory linkFactory = new JiraIssueLinkFactory(configuration);
+    if (!configuration.isUpdateIssues()) {
+      return new JiraComponents(configuration, filter, async, issueMatcher, linkFactory, null, null);
+    }
+
+    RestApi restApi = restApiFactory.create(configuration);
+
+    Commentator commentator;
+    if (async) {
+      commentator = new OutboxCommentator(outbox, repository);
+    } else {
+      // comments are queued, if jira throttles the requests or the circuit breaker opens during the push
+      commentator = new FailoverCommentator(outbox, repository, new JiraCommentator(restApi, configuration));
+    }
+    // the references of a push to the same issue are posted as a single comment
+    AggregatingCommentator aggregatingCommentator = new AggregatingCommentator(commentAggregator, repository, commentator);
+    // re-pushed or mirrored changesets must not comment the same reference again, the references are recorded after
+    // the aggregated comment was posted
+    commentator = new DeduplicatingCommentator(fingerprintIndex, patchIds, repository, aggregatingCommentator);
+    // large pushes and imports must not compute patch ids or comment every changeset
+    boolean guarded = configurationStore.getGlobalConfiguration().getImportStormThreshold() > 0;
+    if (guarded) {
+      commentator = new ImportStormCommentator(importStormGuard, repository, commentator);
+    }
+    BranchMatcher branchMatcher = BranchMatcher.compile(configuration.getReferenceBranches());
+    if (!branchMatcher.isMatchingAll()) {
+      // filtered references are skipped before they are recorded as commented
+      commentator = new BranchFilteringCommentator(changesetBranches, branchMatcher, repository, commentator);
+    }
+
+    StateChanger stateChanger = null;
+    if (configuration.isAutoClose()) {
+      JiraStateChanger jiraStateChanger = new JiraStateChanger(restApi, configuration, avoidedTransitionLookups);
+      if (async) {
+        stateChanger = new OutboxStateChanger(outbox, repository, jiraStateChanger);
       } else {
-        return changeStateStage.build();
+        // state changes are queued, if jira throttles the requests or the circuit breaker opens during the push
+        stateChanger = new FailoverStateChanger(outbox, repository, jiraStateChanger);
+      }
+      if (guarded) {
+        stateChanger = new ImportStormStateChanger(importStormGuard, repository, stateChanger);
       }
+    }
+    return new JiraComponents(configuration, filter, async, issueMatcher, linkFactory, commentator, stateChanger);
+  }
+
+  @Subscribe(async = false)
+  public void onConfigurationChanged(JiraConfigurationChangedEvent event) {
+    if (event.isGlobal()) {
+      jiraComponents.invalidateAll();
     } else {
-      return readStage.build();
+      jiraComponents.invalidate(event.getRepository().getId());
+    }
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.MODIFY || event.getEventType() == HandlerEventType.DELETE) {
+      jiraComponents.invalidate(event.getItem().getId());
+    }
+  }
+
+  /**
+   * The jira side of an issue tracker. None of the components refers to the {@link IssueTrackerBuilder}, so they can
+   * be reused for later pushes to the same repository.
+   */
+  private static final class JiraComponents {
+
+    private final JiraConfiguration configuration;
+    private final String filter;
+    private final boolean async;
+    private final JiraIssueMatcher issueMatcher;
+    private final JiraIssueLinkFactory linkFactory;
+    @Nullable
+    private final Commentator commentator;
+    @Nullable
+    private final StateChanger stateChanger;
+
+    private JiraComponents(JiraConfiguration configuration, String filter, boolean async,
+                           JiraIssueMatcher issueMatcher, JiraIssueLinkFactory linkFactory,
+                           @Nullable Commentator commentator, @Nullable StateChanger stateChanger) {
+      this.configuration = configuration;
+      this.filter = filter;
+      this.async = async;
+      this.issueMatcher = issueMatcher;
+      this.linkFactory = linkFactory;
+      this.commentator = commentator;
+      this.stateChanger = stateChanger;
+    }
+
+    /**
+     * The resolved configurations are shared and replaced on change, so the identity is sufficient.
+     */
+    private boolean isBuiltFrom(JiraConfiguration configuration, String filter, boolean async) {
+      return this.configuration == configuration && Objects.equals(this.filter, filter) && this.async == async;
     }
   }
 }
@@ -17,9 +17,14 @@
 package sonia.scm.jira;
 
 import com.google.common.base.Splitter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import sonia.scm.issuetracker.spi.StateChanger;
 import sonia.scm.jira.config.JiraConfiguration;
 import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestComment;
 import sonia.scm.jira.rest.RestTransition;
 
 import java.io.IOException;
@@ -31,12 +36,29 @@ import java.util.Set;
 
 public class JiraStateChanger implements StateChanger {
 
+  private static final Logger LOG = LoggerFactory.getLogger(JiraStateChanger.class);
+
   private final RestApi restApi;
   private final JiraConfiguration configuration;
+  private final Counter avoidedTransitionLookups;
 
-  public JiraStateChanger(RestApi restApi, JiraConfiguration configuration) {
+  public JiraStateChanger(RestApi restApi, JiraConfiguration configuration, Counter avoidedTransitionLookups) {
     this.restApi = restApi;
     this.configuration = configuration;
+    this.avoidedTransitionLookups = avoidedTransitionLookups;
+  }
+
+  /**
+   * Returns the counter for transition requests, which were avoided by the lazy transition lookup.
+   *
+   * @param meterRegistry registry to register the counter
+   *
+   * @return counter of avoided transition lookups
+   */
+  public static Counter avoidedTransitionLookups(MeterRegistry meterRegistry) {
+    return Counter.builder("scm.jira.transitions.lookups.avoided")
+      .description("Number of transition requests to jira, which were avoided by the lazy transition lookup")
+      .register(meterRegistry);
   }
 
   @Override
@@ -45,6 +67,31 @@ public class JiraStateChanger implements StateChanger {
     restApi.changeState(issueKey, transitionId);
   }
 
+  /**
+   * Changes the state of the issue and adds the comment within a single request, so that jira applies both or none.
+   * If jira rejects the combined request, the transition and the comment are sent separately.
+   *
+   * @param issueKey key of the issue
+   * @param keyWord key word or name of the transition
+   * @param comment content of the comment
+   *
+   * @throws IOException if the state could not be changed
+   */
+  public void changeState(String issueKey, String keyWord, String comment) throws IOException {
+    String transitionId = findTransition(issueKey, createMapping().getOrDefault(keyWord, keyWord));
+    RestComment restComment = JiraCommentator.comment(configuration, comment);
+    try {
+      restApi.changeState(issueKey, transitionId, restComment);
+    } catch (JiraException ex) {
+      if (ex.getStatus() != 400) {
+        throw ex;
+      }
+      LOG.warn("jira rejected transition with comment for issue {}, send them separately", issueKey, ex);
+      restApi.changeState(issueKey, transitionId);
+      restApi.addComment(issueKey, restComment);
+    }
+  }
+
   private String findTransition(String issueKey, String keyWord) throws IOException {
     return restApi.getTransitions(issueKey)
       .stream()
@@ -56,9 +103,20 @@ public class JiraStateChanger implements StateChanger {
       );
   }
 
+  /**
+   * Returns the key words which could trigger a state change of the given issue. If the lazy transition lookup is
+   * enabled, only the locally mapped key words are returned and Jira is not asked for the transitions of the issue.
+   * The transitions are then resolved by {@link #changeState(String, String)}, which is only called if the message
+   * really contains one of the key words.
+   */
   @Override
   public Iterable<String> getKeyWords(String issueKey) throws IOException {
-    Set<String> keyWords = new HashSet<>(createMapping().keySet());
+    Set<String> keyWords = getMappedKeyWords();
+
+    if (configuration.isLazyTransitionLookup()) {
+      avoidedTransitionLookups.increment();
+      return keyWords;
+    }
 
     restApi.getTransitions(issueKey)
       .stream()
@@ -69,6 +127,15 @@ public class JiraStateChanger implements StateChanger {
     return keyWords;
   }
 
+  /**
+   * Returns the key words of the configured mapping, without asking Jira for the transitions of an issue.
+   *
+   * @return locally mapped key words
+   */
+  public Set<String> getMappedKeyWords() {
+    return new HashSet<>(createMapping().keySet());
+  }
+
   @Override
   public boolean isStateChangeActivatedForCommits() {
     return !configuration.isDisableStateChangeByCommit();
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Prefix tree of jira project keys. The tree is used to find issue keys of a filter with thousands of projects in time
+ * proportional to the length of the key instead of the number of projects. It is also used to create a regular
+ * expression, in which common prefixes are factored out, so that the alternation of the issue key pattern branches only
+ * where the project keys differ.
+ */
+final class ProjectKeyTrie {
+
+  private static final int ROOT = 0;
+
+  /** sorted labels of the outgoing edges of each node */
+  private final char[][] labels;
+  /** target nodes of the outgoing edges of each node, in the same order as the labels */
+  private final int[][] children;
+  /** true if a project key ends at the node */
+  private final boolean[] terminal;
+
+  private final Node root;
+
+  private ProjectKeyTrie(Node root, int size) {
+    this.root = root;
+    this.labels = new char[size][];
+    this.children = new int[size][];
+    this.terminal = new boolean[size];
+    flatten(root, new int[]{0});
+  }
+
+  /**
+   * Returns {@code true} if the project keys consist only of letters, digits and underscores and can be stored in a
+   * trie. Other entries of a filter are regular expressions, e.g. {@code ABC|DEF} or {@code PRJ.*}.
+   */
+  static boolean isLiteral(Collection<String> projectKeys) {
+    for (String projectKey : projectKeys) {
+      for (int i = 0; i < projectKey.length(); i++) {
+        char c = projectKey.charAt(i);
+        if (!(c >= 'A' && c <= 'Z') && !(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != '_') {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  static ProjectKeyTrie of(Collection<String> projectKeys) {
+    Node root = new Node();
+    int size = 1;
+    for (String projectKey : projectKeys) {
+      Node node = root;
+      for (int i = 0; i < projectKey.length(); i++) {
+        Node child = node.children.get(projectKey.charAt(i));
+        if (child == null) {
+          child = new Node();
+          node.children.put(projectKey.charAt(i), child);
+          size++;
+        }
+        node = child;
+      }
+      node.terminal = true;
+    }
+    return new ProjectKeyTrie(root, size);
+  }
+
+  private int flatten(Node node, int[] next) {
+    int index = next[0]++;
+    terminal[index] = node.terminal;
+    labels[index] = new char[node.children.size()];
+    children[index] = new int[node.children.size()];
+    int i = 0;
+    for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+      labels[index][i] = entry.getKey();
+      children[index][i] = flatten(entry.getValue(), next);
+      i++;
+    }
+    return index;
+  }
+
+  /**
+   * Returns the end of the issue key which starts at {@code start} with one of the project keys, or -1 if there is no
+   * such issue key. The text is read at most up to the end of the longest project key plus the issue number.
+   */
+  int match(CharSequence text, int start, int length) {
+    int node = ROOT;
+    for (int position = start; position < length; position++) {
+      if (terminal[node]) {
+        int end = IssueKeyScanner.matchNumber(text, position, length);
+        if (end >= 0) {
+          return end;
+        }
+      }
+      node = child(node, text.charAt(position));
+      if (node < 0) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private int child(int node, char c) {
+    char[] nodeLabels = labels[node];
+    int low = 0;
+    int high = nodeLabels.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (nodeLabels[middle] < c) {
+        low = middle + 1;
+      } else if (nodeLabels[middle] > c) {
+        high = middle - 1;
+      } else {
+        return children[node][middle];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a regular expression, which matches exactly the project keys of the tree. Characters other than ascii
+   * letters and digits are escaped.
+   */
+  String toRegex() {
+    return toRegex(root);
+  }
+
+  private static String toRegex(Node node) {
+    List<String> alternatives = new ArrayList<>(node.children.size());
+    for (Map.Entry<Character, Node> entry : node.children.entrySet()) {
+      alternatives.add(escape(entry.getKey()) + toRegex(entry.getValue()));
+    }
+    if (alternatives.isEmpty()) {
+      return "";
+    }
+    String expression = alternatives.size() == 1 ? alternatives.get(0) : "(?:" + String.join("|", alternatives) + ")";
+    if (node.terminal) {
+      return alternatives.size() == 1 ? "(?:" + expression + ")?" : expression + "?";
+    }
+    return expression;
+  }
+
+  private static String escape(char c) {
+    if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+      return String.valueOf(c);
+    }
+    return "\\" + c;
+  }
+
+  private static class Node {
+    private final Map<Character, Node> children = new TreeMap<>();
+    private boolean terminal;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.repository.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * References of changesets to an issue, which are collected to be posted as a single comment. A single reference is
+ * posted as it was rendered, multiple references are listed one changeset per line.
+ */
+class AggregatedComment {
+
+  private final Repository repository;
+  private final String issueKey;
+  private final Commentator commentator;
+  private final List<ChangesetReference> references = new ArrayList<>();
+  private final List<DeliveryCallback> callbacks = new ArrayList<>();
+  private final long created;
+
+  private int length;
+  private long updated;
+
+  AggregatedComment(Repository repository, String issueKey, Commentator commentator, long created) {
+    this.repository = repository;
+    this.issueKey = issueKey;
+    this.commentator = commentator;
+    this.created = created;
+  }
+
+  /**
+   * Adds the reference, if the resulting comment does not exceed the maximum length.
+   */
+  boolean add(ChangesetReference reference, DeliveryCallback callback, int maximumLength, long now) {
+    int itemLength = reference.getItem().length() + 1;
+    if (!references.isEmpty() && length + itemLength > maximumLength) {
+      return false;
+    }
+    references.add(reference);
+    callbacks.add(callback);
+    length += itemLength;
+    updated = now;
+    return true;
+  }
+
+  /**
+   * Returns the time at which the comment is posted, unless further references are added.
+   */
+  long due(long aggregationWindow, long maximumDelay) {
+    return Math.min(updated + aggregationWindow, created + maximumDelay);
+  }
+
+  Repository getRepository() {
+    return repository;
+  }
+
+  String getIssueKey() {
+    return issueKey;
+  }
+
+  Commentator getCommentator() {
+    return commentator;
+  }
+
+  void delivered() {
+    callbacks.forEach(DeliveryCallback::delivered);
+  }
+
+  void failed() {
+    callbacks.forEach(DeliveryCallback::failed);
+  }
+
+  int size() {
+    return references.size();
+  }
+
+  String render() {
+    if (references.size() == 1) {
+      return references.get(0).getContent();
+    }
+    StringBuilder content = new StringBuilder("[SCM] Issue referenced by ")
+      .append(references.size())
+      .append(" commits of repository ")
+      .append(references.get(0).getRepository())
+      .append("\n\n");
+    for (ChangesetReference reference : references) {
+      content.append(reference.getItem()).append('\n');
+    }
+    return content.toString();
+  }
+}
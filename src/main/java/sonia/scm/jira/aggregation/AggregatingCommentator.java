@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+
+/**
+ * {@link Commentator} which passes the comments through the {@link CommentAggregator}, so that the references of a
+ * push to the same issue result in a single comment. As {@link DeferredCommentator} it reports when the combined
+ * comment was posted.
+ */
+public class AggregatingCommentator implements Commentator, DeferredCommentator {
+
+  private final CommentAggregator aggregator;
+  private final Repository repository;
+  private final Commentator commentator;
+
+  public AggregatingCommentator(CommentAggregator aggregator, Repository repository, Commentator commentator) {
+    this.aggregator = aggregator;
+    this.repository = repository;
+    this.commentator = commentator;
+  }
+
+  @Override
+  public void comment(String issueKey, String content) throws IOException {
+    aggregator.comment(repository, issueKey, content, commentator);
+  }
+
+  @Override
+  public void comment(String issueKey, String content, DeliveryCallback callback) throws IOException {
+    aggregator.comment(repository, issueKey, content, commentator, callback);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+import com.google.common.base.Splitter;
+import sonia.scm.jira.fingerprint.CommentFingerprints;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A comment which was rendered from the {@code changeset_reference.mustache} template. Only the parts which are
+ * required to list the changeset in an aggregated comment are extracted.
+ */
+final class ChangesetReference {
+
+  static final String HEADER = "[SCM] Issue referenced by commit of repository ";
+
+  private static final String AUTHOR = "*Author:* ";
+  private static final Pattern CHANGES_LINK = Pattern.compile("^\\[Changes\\|([^|\\]]+)]$", Pattern.MULTILINE);
+  private static final int SHORT_ID_LENGTH = 7;
+
+  private final String content;
+  private final String repository;
+  private final String item;
+
+  private ChangesetReference(String content, String repository, String item) {
+    this.content = content;
+    this.repository = repository;
+    this.item = item;
+  }
+
+  /**
+   * Parses a rendered comment, or returns an empty optional if the comment does not reference a changeset.
+   */
+  static Optional<ChangesetReference> parse(String content) {
+    if (!content.startsWith(HEADER)) {
+      return Optional.empty();
+    }
+    Optional<String> changesetId = CommentFingerprints.changesetId(content);
+    Matcher link = CHANGES_LINK.matcher(content);
+    if (!changesetId.isPresent() || !link.find()) {
+      return Optional.empty();
+    }
+    List<String> lines = Splitter.on('\n').trimResults().splitToList(content);
+    String repository = lines.get(0).substring(HEADER.length());
+    String summary = "";
+    String author = null;
+    for (String line : lines.subList(1, lines.size())) {
+      if (line.startsWith(AUTHOR)) {
+        author = line.substring(AUTHOR.length());
+        break;
+      }
+      if (summary.isEmpty()) {
+        summary = line;
+      }
+    }
+
+    String id = changesetId.get();
+    StringBuilder item = new StringBuilder("* [")
+      .append(id, 0, Math.min(id.length(), SHORT_ID_LENGTH))
+      .append('|').append(link.group(1)).append("] ")
+      .append(summary);
+    if (author != null) {
+      item.append(" (").append(author).append(')');
+    }
+    return Optional.of(new ChangesetReference(content, repository, item.toString()));
+  }
+
+  /** the comment as it was rendered for the single changeset */
+  String getContent() {
+    return content;
+  }
+
+  /** namespace and name of the repository */
+  String getRepository() {
+    return repository;
+  }
+
+  /** line of the changeset in an aggregated comment */
+  String getItem() {
+    return item;
+  }
+}
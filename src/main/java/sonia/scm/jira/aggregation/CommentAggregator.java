@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.outbox.JiraOutbox;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combines the changeset references to an issue, which are created within a few seconds (e.g. by a push of many
+ * commits), into a single comment. The references are collected in memory, until no further reference to the issue
+ * was added for {@link #AGGREGATION_WINDOW} milliseconds, but at most for {@link #MAXIMUM_DELAY} milliseconds. Then
+ * the combined comment is passed to the commentator of the first reference, which either sends it to jira or queues
+ * it in the outbox. This works the same with and without asynchronous delivery, and the outbox stores each combined
+ * comment only once. The combined comments are posted by a pool of {@link #POSTING_THREADS} threads, so that a slow
+ * jira does not delay the comments of other issues.
+ * <p>
+ * A combined comment which could not be posted is handed over to the persistent {@link JiraOutbox}, which retries it.
+ * On shutdown the collected comments are handed over to the outbox as well, so that they are delivered after the
+ * restart instead of delaying the shutdown.
+ * <p>
+ * Other comments, e.g. references of pull requests or the comments of state changes, are passed on immediately.
+ * <p>
+ * The {@link DeliveryCallback} of a reference is called after the combined comment was posted, so that callers can
+ * record the reference as delivered only if it really reached jira or the outbox.
+ */
+@Singleton
+public class CommentAggregator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CommentAggregator.class);
+
+  static final long AGGREGATION_WINDOW = TimeUnit.SECONDS.toMillis(10);
+  static final long MAXIMUM_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+  static final int POSTING_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+  /** jira rejects comments with more than 32767 characters */
+  static final int MAXIMUM_COMMENT_LENGTH = 30000;
+
+  private static final DeliveryCallback NO_CALLBACK = new DeliveryCallback() {
+    @Override
+    public void delivered() {
+      // nothing to record
+    }
+
+    @Override
+    public void failed() {
+      // nothing to record
+    }
+  };
+
+  private final JiraOutbox outbox;
+  private final Clock clock;
+
+  /** collected comments, the key is build from repository id and issue key */
+  private final Map<String, AggregatedComment> comments = new HashMap<>();
+
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public CommentAggregator(JiraOutbox outbox) {
+    this(outbox, Clock.systemUTC());
+  }
+
+  CommentAggregator(JiraOutbox outbox, Clock clock) {
+    this.outbox = outbox;
+    this.clock = clock;
+  }
+
+  /**
+   * Collects the comment, if it references a changeset, or passes it to the commentator.
+   */
+  public void comment(Repository repository, String issueKey, String content, Commentator commentator) throws IOException {
+    comment(repository, issueKey, content, commentator, NO_CALLBACK);
+  }
+
+  /**
+   * Collects the comment, if it references a changeset, or passes it to the commentator. The callback is called after
+   * the comment was posted.
+   */
+  public void comment(Repository repository, String issueKey, String content, Commentator commentator,
+                      DeliveryCallback callback) throws IOException {
+    Optional<ChangesetReference> reference = ChangesetReference.parse(content);
+    AggregatedComment full = null;
+    synchronized (this) {
+      if (reference.isPresent() && executor != null) {
+        long now = clock.millis();
+        String key = repository.getId() + "/" + issueKey;
+        AggregatedComment comment = comments.get(key);
+        if (comment != null && !comment.add(reference.get(), callback, MAXIMUM_COMMENT_LENGTH, now)) {
+          full = comments.remove(key);
+          comment = null;
+        }
+        if (comment == null) {
+          comment = new AggregatedComment(repository, issueKey, commentator, now);
+          comment.add(reference.get(), callback, MAXIMUM_COMMENT_LENGTH, now);
+          comments.put(key, comment);
+          schedule(key, AGGREGATION_WINDOW);
+        }
+        if (full == null) {
+          return;
+        }
+      }
+    }
+    if (full != null) {
+      post(full);
+    } else {
+      try {
+        commentator.comment(issueKey, content);
+      } catch (IOException | RuntimeException ex) {
+        callback.failed();
+        throw ex;
+      }
+      callback.delivered();
+    }
+  }
+
+  void start() {
+    start(Executors.newScheduledThreadPool(
+      POSTING_THREADS, new ThreadFactoryBuilder().setNameFormat("JiraCommentAggregator-%d").setDaemon(true).build()
+    ));
+  }
+
+  synchronized void start(ScheduledExecutorService executorService) {
+    if (executor == null) {
+      executor = executorService;
+    }
+  }
+
+  /**
+   * Stops the aggregation and hands all collected comments over to the outbox.
+   */
+  void stop() {
+    List<AggregatedComment> remaining;
+    synchronized (this) {
+      if (executor == null) {
+        return;
+      }
+      executor.shutdownNow();
+      executor = null;
+      remaining = new ArrayList<>(comments.values());
+      comments.clear();
+    }
+    remaining.forEach(this::queue);
+  }
+
+  private void schedule(String key, long delay) {
+    executor.schedule(() -> flush(key), delay, TimeUnit.MILLISECONDS);
+  }
+
+  void flush(String key) {
+    AggregatedComment comment;
+    synchronized (this) {
+      comment = comments.get(key);
+      if (comment == null) {
+        return;
+      }
+      long remaining = comment.due(AGGREGATION_WINDOW, MAXIMUM_DELAY) - clock.millis();
+      if (remaining > 0) {
+        if (executor != null) {
+          schedule(key, remaining);
+        }
+        return;
+      }
+      comments.remove(key);
+    }
+    post(comment);
+  }
+
+  private void post(AggregatedComment comment) {
+    LOG.debug("post {} aggregated references to issue {}", comment.size(), comment.getIssueKey());
+    try {
+      comment.getCommentator().comment(comment.getIssueKey(), comment.render());
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("failed to post {} aggregated references to issue {}, queue them for a retry", comment.size(), comment.getIssueKey(), ex);
+      queue(comment);
+      return;
+    }
+    comment.delivered();
+  }
+
+  private void queue(AggregatedComment comment) {
+    try {
+      outbox.comment(comment.getRepository(), comment.getIssueKey(), comment.render());
+    } catch (RuntimeException ex) {
+      LOG.error("failed to queue {} aggregated references to issue {}", comment.size(), comment.getIssueKey(), ex);
+      comment.failed();
+      return;
+    }
+    comment.delivered();
+  }
+}
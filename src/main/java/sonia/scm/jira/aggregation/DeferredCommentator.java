@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+import java.io.IOException;
+
+/**
+ * Commentator which may send the comment after the call has returned, e.g. because it is combined with other
+ * comments. The result is reported to the {@link DeliveryCallback}, which is called exactly once, also if the call
+ * fails with an exception.
+ */
+@FunctionalInterface
+public interface DeferredCommentator {
+
+  void comment(String issueKey, String content, DeliveryCallback callback) throws IOException;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+/**
+ * Receives the result of a comment, which is sent after the call of {@link DeferredCommentator} has returned.
+ */
+public interface DeliveryCallback {
+
+  /**
+   * Called after the comment was sent to jira or stored in the outbox.
+   */
+  void delivered();
+
+  /**
+   * Called if the comment could not be delivered.
+   */
+  void failed();
+}
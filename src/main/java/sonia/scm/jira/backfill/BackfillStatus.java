@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.backfill;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of the backfill of a repository, which is stored after each page of changesets. The last processed
+ * changeset is the checkpoint from which an interrupted backfill is resumed.
+ */
+@Getter
+@NoArgsConstructor
+@XmlRootElement(name = "jira-backfill")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BackfillStatus {
+
+  public enum State {
+    RUNNING, COMPLETED, CANCELED, FAILED
+  }
+
+  private State state;
+
+  /** newest changeset at the start of the backfill, the log is read from this changeset on */
+  private String head;
+
+  @XmlElement(name = "processed-changesets")
+  private long processedChangesets;
+
+  @XmlElement(name = "posted-comments")
+  private long postedComments;
+
+  /** references which were already commented, by a live update or an earlier run */
+  @XmlElement(name = "skipped-comments")
+  private long skippedComments;
+
+  /** references to issues which do not exist */
+  @XmlElement(name = "unknown-issues")
+  private long unknownIssues;
+
+  /** last processed changeset, the next page is read from the changeset after this one */
+  @XmlElement(name = "last-changeset")
+  private String lastChangeset;
+
+  private long started;
+
+  private long updated;
+
+  private String error;
+
+  BackfillStatus(long started) {
+    this.state = State.RUNNING;
+    this.started = started;
+    this.updated = started;
+  }
+
+  public boolean isRunning() {
+    return state == State.RUNNING;
+  }
+
+  void posted() {
+    postedComments++;
+  }
+
+  void skipped() {
+    skippedComments++;
+  }
+
+  void unknownIssue() {
+    unknownIssues++;
+  }
+
+  void resumed(long now) {
+    finish(State.RUNNING, null, now);
+  }
+
+  void head(String head) {
+    this.head = head;
+  }
+
+  void pageProcessed(int changesets, String lastChangeset, long now) {
+    this.processedChangesets += changesets;
+    this.lastChangeset = lastChangeset;
+    this.updated = now;
+  }
+
+  void completed(long now) {
+    finish(State.COMPLETED, null, now);
+  }
+
+  void canceled(long now) {
+    finish(State.CANCELED, null, now);
+  }
+
+  void failed(String error, long now) {
+    finish(State.FAILED, error, now);
+  }
+
+  private void finish(State state, String error, long now) {
+    this.state = state;
+    this.error = error;
+    this.updated = now;
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.backfill;
+
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.config.ScmConfiguration;
+import sonia.scm.jira.IssueKeyMatcherRegistry;
+import sonia.scm.jira.IssueKeyScanner;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.fingerprint.CommentFingerprintIndex;
+import sonia.scm.jira.fingerprint.CommentFingerprints;
+import sonia.scm.jira.project.ProjectKeySync;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.jira.rest.RestComment;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+import sonia.scm.util.HttpUtil;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts references to jira for the existing history of a repository. The backfill is started by an administrator,
+ * e.g. after jira was configured for a repository with years of commits.
+ * <p>
+ * The changeset log is read page by page, starting from the newest changeset at the start of the backfill, so that the
+ * memory does not depend on the size of the history and pushes during the backfill do not shift the pages. Each page
+ * is read from the last processed changeset on, so reading a page does not get slower with the position in the
+ * history. The last processed changeset is stored after each page and an interrupted backfill is resumed from there. Comments are
+ * recorded in the {@link CommentFingerprintIndex}, so that a resumed backfill or a later push does not comment a
+ * reference twice.
+ * <p>
+ * Backfills run one after another on a single thread. The comments are posted without notification of the watchers
+ * and at half of the configured request rate, so that live updates keep the rest of the jira rate limit. If jira
+ * throttles the requests or is unavailable, the backfill is continued after the announced delay.
+ */
+@Singleton
+public class JiraBackfill {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JiraBackfill.class);
+
+  private static final String STORE_NAME = "jira-backfill";
+
+  static final int PAGE_SIZE = 200;
+
+  /** request rate of a backfill, if the request rate to jira is not limited */
+  private static final double DEFAULT_RATE = 5;
+
+  private final DataStore<BackfillStatus> store;
+  private final RepositoryManager repositoryManager;
+  private final RepositoryServiceFactory serviceFactory;
+  private final JiraConfigurationResolver resolver;
+  private final JiraConfigurationStore configurationStore;
+  private final ProjectKeySync projectKeySync;
+  private final IssueKeyMatcherRegistry matcherRegistry;
+  private final RestApiFactory restApiFactory;
+  private final CommentFingerprintIndex fingerprintIndex;
+  private final ScmConfiguration scmConfiguration;
+  private final Clock clock;
+
+  /** ids of running repositories, for which the backfill was canceled */
+  private final Set<String> canceled = ConcurrentHashMap.newKeySet();
+
+  private ScheduledExecutorService executor;
+  private String active;
+
+  @Inject
+  public JiraBackfill(DataStoreFactory storeFactory,
+                      RepositoryManager repositoryManager,
+                      RepositoryServiceFactory serviceFactory,
+                      JiraConfigurationResolver resolver,
+                      JiraConfigurationStore configurationStore,
+                      ProjectKeySync projectKeySync,
+                      IssueKeyMatcherRegistry matcherRegistry,
+                      RestApiFactory restApiFactory,
+                      CommentFingerprintIndex fingerprintIndex,
+                      ScmConfiguration scmConfiguration) {
+    this(storeFactory, repositoryManager, serviceFactory, resolver, configurationStore, projectKeySync, matcherRegistry,
+      restApiFactory, fingerprintIndex, scmConfiguration, Clock.systemUTC());
+  }
+
+  JiraBackfill(DataStoreFactory storeFactory,
+               RepositoryManager repositoryManager,
+               RepositoryServiceFactory serviceFactory,
+               JiraConfigurationResolver resolver,
+               JiraConfigurationStore configurationStore,
+               ProjectKeySync projectKeySync,
+               IssueKeyMatcherRegistry matcherRegistry,
+               RestApiFactory restApiFactory,
+               CommentFingerprintIndex fingerprintIndex,
+               ScmConfiguration scmConfiguration,
+               Clock clock) {
+    this.store = storeFactory.withType(BackfillStatus.class).withName(STORE_NAME).build();
+    this.repositoryManager = repositoryManager;
+    this.serviceFactory = serviceFactory;
+    this.resolver = resolver;
+    this.configurationStore = configurationStore;
+    this.projectKeySync = projectKeySync;
+    this.matcherRegistry = matcherRegistry;
+    this.restApiFactory = restApiFactory;
+    this.fingerprintIndex = fingerprintIndex;
+    this.scmConfiguration = scmConfiguration;
+    this.clock = clock;
+  }
+
+  /**
+   * Starts the backfill of the repository. A failed or canceled backfill is resumed from its last checkpoint, unless
+   * a restart is requested.
+   *
+   * @return status of the started backfill or an empty optional, if a backfill of the repository is already running
+   */
+  public synchronized Optional<BackfillStatus> start(Repository repository, boolean restart) {
+    BackfillStatus status = store.get(repository.getId());
+    if (status != null && status.isRunning()) {
+      return Optional.empty();
+    }
+    if (status == null || restart || status.getState() == BackfillStatus.State.COMPLETED) {
+      status = new BackfillStatus(clock.millis());
+    } else {
+      status.resumed(clock.millis());
+    }
+    LOG.info("start jira backfill of {} after changeset {}", repository, status.getLastChangeset());
+    store.put(repository.getId(), status);
+    schedule(repository.getId(), 0);
+    return Optional.of(status);
+  }
+
+  /**
+   * Cancels the backfill of the repository. The progress is kept, so that the backfill can be resumed later on.
+   *
+   * @return {@code true} if a running backfill was canceled
+   */
+  public synchronized boolean cancel(Repository repository) {
+    BackfillStatus status = store.get(repository.getId());
+    if (status == null || !status.isRunning()) {
+      return false;
+    }
+    LOG.info("cancel jira backfill of {}", repository);
+    if (repository.getId().equals(active)) {
+      canceled.add(repository.getId());
+    } else {
+      status.canceled(clock.millis());
+      store.put(repository.getId(), status);
+    }
+    return true;
+  }
+
+  public Optional<BackfillStatus> getStatus(Repository repository) {
+    return Optional.ofNullable(store.get(repository.getId()));
+  }
+
+  void start() {
+    start(Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("JiraBackfill").setDaemon(true).build()
+    ));
+  }
+
+  synchronized void start(ScheduledExecutorService executorService) {
+    if (executor != null) {
+      return;
+    }
+    executor = executorService;
+    store.getAll().forEach((repositoryId, status) -> {
+      if (status.isRunning()) {
+        LOG.info("resume jira backfill of repository {} after changeset {}", repositoryId, status.getLastChangeset());
+        schedule(repositoryId, 0);
+      }
+    });
+  }
+
+  synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private synchronized void schedule(String repositoryId, long delay) {
+    if (executor != null) {
+      executor.schedule(() -> run(repositoryId), delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void run(String repositoryId) {
+    BackfillStatus status;
+    synchronized (this) {
+      status = store.get(repositoryId);
+      if (status == null || !status.isRunning()) {
+        return;
+      }
+      active = repositoryId;
+    }
+    try {
+      run(repositoryId, status);
+    } finally {
+      synchronized (this) {
+        active = null;
+        canceled.remove(repositoryId);
+      }
+    }
+  }
+
+  private void run(String repositoryId, BackfillStatus status) {
+    Repository repository = repositoryManager.get(repositoryId);
+    if (repository == null) {
+      LOG.info("repository {} was removed, discard jira backfill", repositoryId);
+      store.remove(repositoryId);
+      return;
+    }
+    Optional<JiraConfiguration> configuration = resolver.resolve(repository).filter(JiraConfiguration::isUpdateIssues);
+    if (!configuration.isPresent()) {
+      finish(repositoryId, status, () -> status.failed("issue updates are not enabled for the repository", clock.millis()));
+      return;
+    }
+    Backfill backfill = new Backfill(repository, configuration.get(), status);
+    try {
+      backfill.run();
+    } catch (JiraRateLimitException ex) {
+      postpone(repository, status, ex.getRetryAfter());
+    } catch (JiraUnavailableException ex) {
+      postpone(repository, status, ex.getRetryAfter());
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("jira backfill of {} failed after changeset {}", repository, status.getLastChangeset(), ex);
+      finish(repositoryId, status, () -> status.failed(Strings.nullToEmpty(ex.getMessage()), clock.millis()));
+    }
+  }
+
+  private void postpone(Repository repository, BackfillStatus status, long delay) {
+    LOG.info("jira is throttled or unavailable, continue jira backfill of {} in {}ms", repository, delay);
+    checkpoint(repository.getId(), status);
+    schedule(repository.getId(), delay);
+  }
+
+  private synchronized void checkpoint(String repositoryId, BackfillStatus status) {
+    store.put(repositoryId, status);
+  }
+
+  private synchronized void finish(String repositoryId, BackfillStatus status, Runnable transition) {
+    transition.run();
+    store.put(repositoryId, status);
+  }
+
+  private double rate() {
+    double maxRequestsPerSecond = configurationStore.getGlobalConfiguration().getMaxRequestsPerSecond();
+    return maxRequestsPerSecond > 0 ? maxRequestsPerSecond / 2 : DEFAULT_RATE;
+  }
+
+  private class Backfill {
+
+    private final Repository repository;
+    private final JiraConfiguration configuration;
+    private final BackfillStatus status;
+    private final RestApi restApi;
+    private final IssueKeyScanner scanner;
+    private final RateLimiter rateLimiter;
+
+    private Backfill(Repository repository, JiraConfiguration configuration, BackfillStatus status) {
+      this.repository = repository;
+      this.configuration = configuration;
+      this.status = status;
+      this.restApi = restApiFactory.create(configuration);
+      this.scanner = matcherRegistry.get(projectKeySync.getFilter(configuration)).getScanner();
+      this.rateLimiter = RateLimiter.create(rate());
+    }
+
+    private void run() throws IOException {
+      try (RepositoryService service = serviceFactory.create(repository)) {
+        while (true) {
+          if (canceled.contains(repository.getId())) {
+            LOG.info("jira backfill of {} canceled after changeset {}", repository, status.getLastChangeset());
+            finish(repository.getId(), status, () -> status.canceled(clock.millis()));
+            return;
+          }
+          if (Thread.currentThread().isInterrupted()) {
+            // shutdown, the backfill is resumed from the last checkpoint on the next start
+            return;
+          }
+          List<Changeset> changesets = page(service).getChangesets();
+          if (changesets.isEmpty()) {
+            LOG.info("jira backfill of {} completed, {} comments posted", repository, status.getPostedComments());
+            finish(repository.getId(), status, () -> status.completed(clock.millis()));
+            return;
+          }
+          if (status.getHead() == null) {
+            status.head(changesets.get(0).getId());
+          }
+          if (process(changesets)) {
+            status.pageProcessed(changesets.size(), changesets.get(changesets.size() - 1).getId(), clock.millis());
+            checkpoint(repository.getId(), status);
+          }
+        }
+      }
+    }
+
+    /**
+     * Processes the changesets of a page and returns {@code false}, if the backfill was stopped before the end of the
+     * page. The changesets of an incomplete page are processed again on resume, but their references are already
+     * recorded in the fingerprint index.
+     */
+    private boolean process(List<Changeset> changesets) throws IOException {
+      for (Changeset changeset : changesets) {
+        if (canceled.contains(repository.getId()) || Thread.currentThread().isInterrupted()) {
+          return false;
+        }
+        process(changeset);
+      }
+      return true;
+    }
+
+    private ChangesetPagingResult page(RepositoryService service) throws IOException {
+      // the log cache would keep every page of the history
+      LogCommandBuilder log = service.getLogCommand()
+        .setDisableCache(true)
+        .setPagingLimit(PAGE_SIZE);
+      if (status.getLastChangeset() != null) {
+        // the log starts with the last processed changeset itself
+        log.setStartChangeset(status.getLastChangeset()).setPagingStart(1);
+      } else {
+        if (status.getHead() != null) {
+          log.setStartChangeset(status.getHead());
+        }
+        log.setPagingStart(0);
+      }
+      return log.getChangesets();
+    }
+
+    private void process(Changeset changeset) throws IOException {
+      String description = Strings.nullToEmpty(changeset.getDescription());
+      Set<String> issueKeys = new LinkedHashSet<>();
+      IssueKeyScanner.KeyMatcher matcher = scanner.matcher(description);
+      while (matcher.find()) {
+        issueKeys.add(matcher.key());
+      }
+      for (String issueKey : issueKeys) {
+        comment(issueKey, content(changeset, description));
+      }
+    }
+
+    private void comment(String issueKey, String content) throws IOException {
+      long fingerprint = CommentFingerprints.of(repository.getId(), issueKey, content);
+      if (fingerprintIndex.contains(fingerprint)) {
+        status.skipped();
+        return;
+      }
+      rateLimiter.acquire();
+      try {
+        restApi.addComment(issueKey, new RestComment(content, Strings.emptyToNull(configuration.getRoleLevel())), false);
+      } catch (JiraException ex) {
+        if (ex.getStatus() != 404) {
+          throw ex;
+        }
+        LOG.debug("skip backfill of unknown issue {}", issueKey);
+        status.unknownIssue();
+        return;
+      }
+      fingerprintIndex.add(fingerprint);
+      status.posted();
+    }
+
+    /**
+     * Creates the comment like the changeset reference template, so that a later push of the same changeset results
+     * in the same fingerprint.
+     */
+    private String content(Changeset changeset, String description) {
+      StringBuilder content = new StringBuilder("[SCM] Issue referenced by commit of repository ")
+        .append(repository.getNamespace()).append('/').append(repository.getName())
+        .append("\n\n").append(description).append("\n\n");
+      if (changeset.getAuthor() != null) {
+        content.append("*Author:* ").append(changeset.getAuthor().getName()).append('\n');
+      }
+      return content.append("\n[Changes|").append(link(changeset)).append(']').toString();
+    }
+
+    private String link(Changeset changeset) {
+      return HttpUtil.concatenate(
+        scmConfiguration.getBaseUrl(), "repo", repository.getNamespace(), repository.getName(), "code", "changeset", changeset.getId()
+      );
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.branch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.fingerprint.CommentFingerprints;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link Commentator} which only comments references of changesets, which were pushed to one of the configured
+ * branches. Comments which do not link a changeset, e.g. references of pull requests, and changesets whose branches
+ * are unknown are always passed on.
+ */
+public class BranchFilteringCommentator implements Commentator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BranchFilteringCommentator.class);
+
+  private final ChangesetBranches changesetBranches;
+  private final BranchMatcher branchMatcher;
+  private final Repository repository;
+  private final Commentator commentator;
+
+  public BranchFilteringCommentator(ChangesetBranches changesetBranches, BranchMatcher branchMatcher,
+                                    Repository repository, Commentator commentator) {
+    this.changesetBranches = changesetBranches;
+    this.branchMatcher = branchMatcher;
+    this.repository = repository;
+    this.commentator = commentator;
+  }
+
+  @Override
+  public void comment(String issueKey, String content) throws IOException {
+    Optional<String> changesetId = CommentFingerprints.changesetId(content);
+    if (changesetId.isPresent()) {
+      Optional<List<String>> branches = changesetBranches.get(repository.getId(), changesetId.get());
+      if (branches.isPresent() && !branchMatcher.matchesAny(branches.get())) {
+        LOG.debug("skip comment for issue {}, because changeset {} was pushed to {}", issueKey, changesetId.get(), branches.get());
+        return;
+      }
+    }
+    commentator.comment(issueKey, content);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.branch;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Matches branch names against a comma separated list of branch patterns. A {@code *} matches any characters except
+ * {@code /}, {@code **} matches any characters and {@code ?} matches a single character except {@code /}. Patterns
+ * without wildcards are compared by a hash lookup, all other patterns are compiled into a single regular expression.
+ * An empty list matches every branch.
+ */
+public final class BranchMatcher {
+
+  private static final BranchMatcher ALL = new BranchMatcher(Collections.emptySet(), null, true);
+
+  private final Set<String> names;
+  private final Pattern pattern;
+  private final boolean all;
+
+  private BranchMatcher(Set<String> names, Pattern pattern, boolean all) {
+    this.names = names;
+    this.pattern = pattern;
+    this.all = all;
+  }
+
+  public static BranchMatcher compile(String patterns) {
+    if (Strings.isNullOrEmpty(patterns) || patterns.trim().isEmpty()) {
+      return ALL;
+    }
+    Set<String> names = new HashSet<>();
+    List<String> expressions = new ArrayList<>();
+    for (String branchPattern : Splitter.on(',').omitEmptyStrings().trimResults().split(patterns)) {
+      if (branchPattern.indexOf('*') < 0 && branchPattern.indexOf('?') < 0) {
+        names.add(branchPattern);
+      } else {
+        expressions.add(toRegex(branchPattern));
+      }
+    }
+    if (names.isEmpty() && expressions.isEmpty()) {
+      return ALL;
+    }
+    Pattern pattern = expressions.isEmpty() ? null : Pattern.compile(String.join("|", expressions));
+    return new BranchMatcher(names, pattern, false);
+  }
+
+  static String toRegex(String glob) {
+    StringBuilder regex = new StringBuilder("(?:");
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < glob.length(); i++) {
+      char c = glob.charAt(i);
+      if (c == '*' || c == '?') {
+        appendLiteral(regex, literal);
+        if (c == '?') {
+          regex.append("[^/]");
+        } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+          regex.append(".*");
+          i++;
+        } else {
+          regex.append("[^/]*");
+        }
+      } else {
+        literal.append(c);
+      }
+    }
+    appendLiteral(regex, literal);
+    return regex.append(')').toString();
+  }
+
+  private static void appendLiteral(StringBuilder regex, StringBuilder literal) {
+    if (literal.length() > 0) {
+      regex.append(Pattern.quote(literal.toString()));
+      literal.setLength(0);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the matcher was compiled from an empty list and accepts every branch.
+   */
+  public boolean isMatchingAll() {
+    return all;
+  }
+
+  public boolean matches(String branch) {
+    return all || names.contains(branch) || (pattern != null && pattern.matcher(branch).matches());
+  }
+
+  public boolean matchesAny(Iterable<String> branches) {
+    if (all) {
+      return true;
+    }
+    for (String branch : branches) {
+      if (matches(branch)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.branch;
+
+import com.github.legman.Subscribe;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PreReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers the branches of pushed changesets. The issue tracker api renders the references without the branch, so
+ * the branches are collected before the push is accepted and looked up by the changeset id, when the references are
+ * commented after the push. Changesets are only collected for repositories whose jira configuration restricts the
+ * reference branches, and they are kept only for a short time.
+ */
+@Extension
+@EagerSingleton
+public class ChangesetBranches {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ChangesetBranches.class);
+
+  private static final int MAXIMUM_CHANGESETS = 100_000;
+  private static final long RETENTION = TimeUnit.HOURS.toMillis(1);
+
+  private final JiraConfigurationResolver resolver;
+
+  /** branches of the pushed changesets, the key is build from repository id and changeset id */
+  private final Cache<String, List<String>> branches = CacheBuilder.newBuilder()
+    .maximumSize(MAXIMUM_CHANGESETS)
+    .expireAfterWrite(RETENTION, TimeUnit.MILLISECONDS)
+    .build();
+
+  @Inject
+  public ChangesetBranches(JiraConfigurationResolver resolver) {
+    this.resolver = resolver;
+  }
+
+  @Subscribe(async = false)
+  public void onPreReceive(PreReceiveRepositoryHookEvent event) {
+    Repository repository = event.getRepository();
+    boolean restricted = resolver.resolve(repository)
+      .map(JiraConfiguration::getReferenceBranches)
+      .map(patterns -> !BranchMatcher.compile(patterns).isMatchingAll())
+      .orElse(false);
+    HookContext context = event.getContext();
+    if (!restricted || !context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)) {
+      return;
+    }
+
+    List<String> pushedBranches = Collections.emptyList();
+    if (context.isFeatureSupported(HookFeature.BRANCH_PROVIDER)) {
+      pushedBranches = context.getBranchProvider().getCreatedOrModified();
+    }
+    int count = 0;
+    for (Changeset changeset : context.getChangesetProvider().getChangesets()) {
+      List<String> changesetBranches = changeset.getBranches();
+      if (changesetBranches == null || changesetBranches.isEmpty()) {
+        changesetBranches = pushedBranches;
+      }
+      if (!changesetBranches.isEmpty()) {
+        branches.put(key(repository.getId(), changeset.getId()), ImmutableList.copyOf(changesetBranches));
+        count++;
+      }
+    }
+    LOG.debug("collected branches of {} changesets pushed to {}", count, repository);
+  }
+
+  /**
+   * Returns the branches to which the changeset was pushed, or an empty optional if the changeset is unknown.
+   */
+  public Optional<List<String>> get(String repositoryId, String changesetId) {
+    return Optional.ofNullable(branches.getIfPresent(key(repositoryId, changesetId)));
+  }
+
+  private static String key(String repositoryId, String changesetId) {
+    return repositoryId + "/" + changesetId;
+  }
+}
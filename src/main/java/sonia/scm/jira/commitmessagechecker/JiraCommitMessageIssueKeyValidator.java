@@ -20,54 +20,45 @@ import com.cloudogu.scm.commitmessagechecker.Context;
 import com.cloudogu.scm.commitmessagechecker.InvalidCommitMessageException;
 import com.cloudogu.scm.commitmessagechecker.Validator;
 import com.google.common.base.Strings;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import sonia.scm.ContextEntry;
-import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.IssueKeyMatcherRegistry;
 import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.project.ProjectKeySync;
 import sonia.scm.plugin.Extension;
 import sonia.scm.plugin.Requires;
 import sonia.scm.util.GlobUtil;
 
 import jakarta.inject.Inject;
 import jakarta.xml.bind.annotation.XmlRootElement;
-import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
-import java.util.regex.Pattern;
-
-import static sonia.scm.jira.IssueKeys.PATTERN_EXPRESSION_LOADER;
 
+/**
+ * Rejects commits without a jira issue key in the commit message. The validation runs within the pre receive hook,
+ * so the message is searched with an {@link sonia.scm.jira.IssueKeyScanner} instead of a regular expression. The work
+ * is linear in the length of the message, regardless of its content and of the number of projects in the filter.
+ */
 @Extension
 @Requires("scm-commit-message-checker-plugin")
 public class JiraCommitMessageIssueKeyValidator implements Validator {
 
   private static final String DEFAULT_ERROR_MESSAGE = "The commit message doesn't contain a valid Jira issue key.";
 
-  private static final CacheLoader<String, Pattern> PATTERN_LOADER = new CacheLoader<String, Pattern>() {
-    @Override
-    public Pattern load(String key) {
-      String pattern = PATTERN_EXPRESSION_LOADER.apply(key);
-      return Pattern.compile(MessageFormat.format(".*{0}.*", pattern));
-    }
-  };
-
-  private static final LoadingCache<String, Pattern> PATTERN_CACHE = CacheBuilder
-    .newBuilder()
-    .expireAfterAccess(2, TimeUnit.HOURS)
-    .build(PATTERN_LOADER);
-
   private final JiraConfigurationResolver jiraConfigurationResolver;
+  private final ProjectKeySync projectKeySync;
+  private final IssueKeyMatcherRegistry matcherRegistry;
 
   @Inject
-  public JiraCommitMessageIssueKeyValidator(JiraConfigurationResolver jiraConfigurationResolver) {
+  public JiraCommitMessageIssueKeyValidator(JiraConfigurationResolver jiraConfigurationResolver,
+                                            ProjectKeySync projectKeySync,
+                                            IssueKeyMatcherRegistry matcherRegistry) {
     this.jiraConfigurationResolver = jiraConfigurationResolver;
+    this.projectKeySync = projectKeySync;
+    this.matcherRegistry = matcherRegistry;
   }
 
   @Override
@@ -86,7 +77,7 @@ public class JiraCommitMessageIssueKeyValidator implements Validator {
     String commitBranch = context.getBranch();
 
     String filter = jiraConfigurationResolver.resolve(context.getRepository())
-      .map(JiraConfiguration::getFilter)
+      .map(projectKeySync::getFilter)
       .orElse(null);
     if (shouldValidateBranch(configuration, commitBranch) && isInvalidCommitMessage(filter, commitMessage)) {
       throw new InvalidCommitMessageException(
@@ -106,7 +97,7 @@ public class JiraCommitMessageIssueKeyValidator implements Validator {
   }
 
   private boolean isInvalidCommitMessage(String filter, String commitMessage) {
-    return !PATTERN_CACHE.getUnchecked(filter).matcher(commitMessage).matches();
+    return !matcherRegistry.get(filter).getScanner().containsKey(commitMessage);
   }
 
   @AllArgsConstructor
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import de.otto.edison.hal.Links;
+import jakarta.inject.Inject;
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Context;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.jira.JiraPermissions;
+import sonia.scm.jira.backfill.BackfillStatus;
+import sonia.scm.repository.Repository;
+
+import java.time.Instant;
+
+import static de.otto.edison.hal.Link.link;
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Mapper
+public abstract class BackfillStatusMapper {
+
+  @Inject
+  private ScmPathInfoStore scmPathInfoStore;
+
+  @Mapping(target = "attributes", ignore = true)
+  public abstract BackfillStatusDto map(BackfillStatus status, @Context Repository repository);
+
+  Instant mapTime(long time) {
+    return Instant.ofEpochMilli(time);
+  }
+
+  @AfterMapping
+  void appendLinks(@MappingTarget BackfillStatusDto target, BackfillStatus status, @Context Repository repository) {
+    Links.Builder linksBuilder = linkingTo().self(backfill(repository, "getBackfill"));
+    if (JiraPermissions.isPermittedWriteGlobalConfig()) {
+      if (status.isRunning()) {
+        linksBuilder.single(link("cancel", backfill(repository, "cancelBackfill")));
+      } else {
+        linksBuilder.single(link("start", backfill(repository, "startBackfill")));
+      }
+    }
+    target.add(linksBuilder.build());
+  }
+
+  private String backfill(Repository repository, String method) {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
+    return linkBuilder.method(method).parameters(repository.getNamespace(), repository.getName()).href();
+  }
+
+  void setScmPathInfoStore(ScmPathInfoStore scmPathInfoStore) {
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import de.otto.edison.hal.HalRepresentation;
+import jakarta.inject.Inject;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.jira.rest.JiraCircuitBreaker;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static de.otto.edison.hal.Embedded.embedded;
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Mapper
+public abstract class CircuitBreakerMapper {
+
+  @Inject
+  private ScmPathInfoStore scmPathInfoStore;
+
+  @Mapping(target = "attributes", ignore = true)
+  public abstract CircuitBreakerDto map(JiraCircuitBreaker.Status status);
+
+  public HalRepresentation map(List<JiraCircuitBreaker.Status> status) {
+    List<CircuitBreakerDto> dtos = status.stream().map(this::map).collect(Collectors.toList());
+    return new HalRepresentation(linkingTo().self(self()).build(), embedded("circuitBreakers", dtos));
+  }
+
+  private String self() {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
+    return linkBuilder.method("getCircuitBreakers").parameters().href();
+  }
+
+  void setScmPathInfoStore(ScmPathInfoStore scmPathInfoStore) {
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+}
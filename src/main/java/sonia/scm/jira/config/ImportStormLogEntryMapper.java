@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import de.otto.edison.hal.HalRepresentation;
+import jakarta.inject.Inject;
+import org.mapstruct.AfterMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.jira.storm.ImportStormLogEntry;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static de.otto.edison.hal.Embedded.embedded;
+import static de.otto.edison.hal.Link.link;
+import static de.otto.edison.hal.Links.linkingTo;
+
+@Mapper
+public abstract class ImportStormLogEntryMapper {
+
+  @Inject
+  private ScmPathInfoStore scmPathInfoStore;
+
+  @Mapping(target = "attributes", ignore = true)
+  public abstract ImportStormLogEntryDto map(ImportStormLogEntry entry);
+
+  public HalRepresentation map(List<ImportStormLogEntry> entries) {
+    List<ImportStormLogEntryDto> dtos = entries.stream().map(this::map).collect(Collectors.toList());
+    return new HalRepresentation(linkingTo().self(self()).build(), embedded("importStorms", dtos));
+  }
+
+  Instant mapTime(long time) {
+    return Instant.ofEpochMilli(time);
+  }
+
+  @AfterMapping
+  void appendLinks(@MappingTarget ImportStormLogEntryDto target, ImportStormLogEntry entry) {
+    target.add(linkingTo()
+      .single(link("configuration", repositoryLink("getForRepository", entry)))
+      .single(link("backfill", repositoryLink("getBackfill", entry)))
+      .build());
+  }
+
+  private String self() {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
+    return linkBuilder.method("getImportStorms").parameters().href();
+  }
+
+  private String repositoryLink(String method, ImportStormLogEntry entry) {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
+    return linkBuilder.method(method).parameters(entry.getNamespace(), entry.getName()).href();
+  }
+
+  void setScmPathInfoStore(ScmPathInfoStore scmPathInfoStore) {
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+}
@@ -54,10 +54,18 @@ public class JiraConfiguration implements Validateable {
   @XmlElement(name = "filter")
   private String filter;
 
+  /** use the project keys of the jira instance instead of the filter */
+  @XmlElement(name = "sync-project-keys")
+  private boolean syncProjectKeys;
+
   /** update jira issues */
   @XmlElement(name = "update-issues")
   private boolean updateIssues;
 
+  /** comma separated branch patterns, only changesets of matching branches are commented */
+  @XmlElement(name = "reference-branches")
+  private String referenceBranches;
+
   /** connection username */
   private String username;
 
@@ -89,6 +97,10 @@ public class JiraConfiguration implements Validateable {
   @XmlElement(name = "disable-state-change-by-commit")
   private boolean disableStateChangeByCommit;
 
+  /** query jira transitions only if a mapped keyword was found */
+  @XmlElement(name = "lazy-transition-lookup")
+  private boolean lazyTransitionLookup;
+
   /**
    * Returns {@code true} if the configuration is valid.
    *
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import lombok.Getter;
+import sonia.scm.event.Event;
+import sonia.scm.repository.Repository;
+
+import javax.annotation.Nullable;
+
+/**
+ * Event which is fired after the global or a repository specific jira configuration was stored.
+ */
+@Event
+@Getter
+public class JiraConfigurationChangedEvent {
+
+  /** repository of the changed configuration or {@code null} for the global configuration */
+  @Nullable
+  private final Repository repository;
+
+  JiraConfigurationChangedEvent(@Nullable Repository repository) {
+    this.repository = repository;
+  }
+
+  public boolean isGlobal() {
+    return repository == null;
+  }
+}
@@ -29,8 +29,10 @@ import java.util.Map;
 public class JiraConfigurationDto extends HalRepresentation {
   private String url;
   private String filter;
+  private boolean syncProjectKeys;
 
   private boolean updateIssues;
+  private String referenceBranches;
   private String username;
   private String password;
   private String accessToken;
@@ -39,6 +41,7 @@ public class JiraConfigurationDto extends HalRepresentation {
 
   private boolean autoClose;
   private boolean disableStateChangeByCommit;
+  private boolean lazyTransitionLookup;
   private Map<String,String> autoCloseWords;
 
   @Override
@@ -33,5 +33,8 @@ public class JiraConfigurationModule extends AbstractModule {
     bind(JiraConfigurationStore.class);
     bind(JiraConfigurationMapper.class).to(Mappers.getMapper(JiraConfigurationMapper.class).getClass());
     bind(JiraGlobalConfigurationMapper.class).to(Mappers.getMapper(JiraGlobalConfigurationMapper.class).getClass());
+    bind(CircuitBreakerMapper.class).to(Mappers.getMapper(CircuitBreakerMapper.class).getClass());
+    bind(BackfillStatusMapper.class).to(Mappers.getMapper(BackfillStatusMapper.class).getClass());
+    bind(ImportStormLogEntryMapper.class).to(Mappers.getMapper(ImportStormLogEntryMapper.class).getClass());
   }
 }
@@ -18,18 +18,32 @@ package sonia.scm.jira.config;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.github.legman.Subscribe;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.plugin.Extension;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
 
 import jakarta.inject.Inject;
 import java.util.Optional;
 
 /**
+ * Resolves the effective jira configuration of a repository. The resolved configurations are kept in memory, so that
+ * the stores are only read once per repository. The cached entries are invalidated if the global or the repository
+ * configuration was stored ({@link JiraConfigurationChangedEvent}) or if the repository was deleted.
+ * <p>
+ * The returned configurations are shared between all callers and must not be modified.
  *
  * @author Sebastian Sdorra
  */
+@Extension
+@EagerSingleton
 public class JiraConfigurationResolver
 {
 
@@ -39,16 +53,48 @@ public class JiraConfigurationResolver
   private static final Logger LOG =
     LoggerFactory.getLogger(JiraConfigurationResolver.class);
 
+  private static final int MAXIMUM_CACHED_REPOSITORIES = 10000;
+
   //~--- methods --------------------------------------------------------------
 
   private final JiraConfigurationStore context;
 
+  /** resolved configurations, the key is the id of the repository */
+  private final Cache<String, Optional<JiraConfiguration>> cache = CacheBuilder.newBuilder()
+    .maximumSize(MAXIMUM_CACHED_REPOSITORIES)
+    .build();
+
+  /**
+   * incremented on each invalidation, to avoid caching a configuration which was read before the invalidation; the
+   * check of the generation and the put into the cache are atomic with respect to the invalidations
+   */
+  private long generation;
+
+  private final Object lock = new Object();
+
   @Inject
   public JiraConfigurationResolver(JiraConfigurationStore context) {
     this.context = context;
   }
 
   public Optional<JiraConfiguration> resolve(Repository repository) {
+    Optional<JiraConfiguration> configuration = cache.getIfPresent(repository.getId());
+    if (configuration == null) {
+      long loadedGeneration;
+      synchronized (lock) {
+        loadedGeneration = generation;
+      }
+      configuration = load(repository);
+      synchronized (lock) {
+        if (generation == loadedGeneration) {
+          cache.put(repository.getId(), configuration);
+        }
+      }
+    }
+    return configuration;
+  }
+
+  Optional<JiraConfiguration> load(Repository repository) {
     JiraGlobalConfiguration globalConfiguration = context.getGlobalConfiguration();
 
     if (globalConfiguration.isDisableRepositoryConfiguration()) {
@@ -74,4 +120,27 @@ public class JiraConfigurationResolver
     return Optional.of(configuration);
   }
 
+  @Subscribe(async = false)
+  public void onConfigurationChanged(JiraConfigurationChangedEvent event) {
+    synchronized (lock) {
+      generation++;
+      if (event.isGlobal()) {
+        LOG.debug("global jira configuration changed, clear resolved configurations");
+        cache.invalidateAll();
+      } else {
+        cache.invalidate(event.getRepository().getId());
+      }
+    }
+  }
+
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE) {
+      synchronized (lock) {
+        generation++;
+        cache.invalidate(event.getItem().getId());
+      }
+    }
+  }
+
 }
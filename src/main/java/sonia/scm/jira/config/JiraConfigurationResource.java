@@ -27,6 +27,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import sonia.scm.api.v2.resources.ErrorDto;
 import sonia.scm.jira.JiraPermissions;
+import sonia.scm.jira.backfill.BackfillStatus;
+import sonia.scm.jira.backfill.JiraBackfill;
+import sonia.scm.jira.rest.JiraCircuitBreaker;
+import sonia.scm.jira.storm.ImportStormLog;
 import sonia.scm.repository.NamespaceAndName;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryManager;
@@ -34,14 +38,19 @@ import sonia.scm.web.VndMediaType;
 
 import jakarta.validation.Valid;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.util.Optional;
+
 import static sonia.scm.ContextEntry.ContextBuilder.entity;
 import static sonia.scm.NotFoundException.notFound;
 
@@ -62,17 +71,35 @@ public class JiraConfigurationResource {
   private final JiraGlobalConfigurationMapper jiraGlobalConfigurationMapper;
   private final JiraConfigurationMapper jenkinsConfigurationMapper;
   private final RepositoryManager repositoryManager;
+  private final JiraCircuitBreaker circuitBreaker;
+  private final CircuitBreakerMapper circuitBreakerMapper;
+  private final JiraBackfill backfill;
+  private final BackfillStatusMapper backfillStatusMapper;
+  private final ImportStormLog importStormLog;
+  private final ImportStormLogEntryMapper importStormLogEntryMapper;
 
   @Inject
   public JiraConfigurationResource(
     JiraConfigurationStore context,
     JiraGlobalConfigurationMapper jiraGlobalConfigurationMapper,
     JiraConfigurationMapper jenkinsConfigurationMapper,
-    RepositoryManager repositoryManager) {
+    RepositoryManager repositoryManager,
+    JiraCircuitBreaker circuitBreaker,
+    CircuitBreakerMapper circuitBreakerMapper,
+    JiraBackfill backfill,
+    BackfillStatusMapper backfillStatusMapper,
+    ImportStormLog importStormLog,
+    ImportStormLogEntryMapper importStormLogEntryMapper) {
     this.context = context;
     this.jiraGlobalConfigurationMapper = jiraGlobalConfigurationMapper;
     this.jenkinsConfigurationMapper = jenkinsConfigurationMapper;
     this.repositoryManager = repositoryManager;
+    this.circuitBreaker = circuitBreaker;
+    this.circuitBreakerMapper = circuitBreakerMapper;
+    this.backfill = backfill;
+    this.backfillStatusMapper = backfillStatusMapper;
+    this.importStormLog = importStormLog;
+    this.importStormLogEntryMapper = importStormLogEntryMapper;
   }
 
   @GET
@@ -133,6 +160,56 @@ public class JiraConfigurationResource {
     return Response.noContent().build();
   }
 
+  @GET
+  @Path("/circuit-breakers")
+  @Produces({MediaType.APPLICATION_JSON})
+  @Operation(
+    summary = "Get jira circuit breakers",
+    description = "Returns the state of the circuit breaker for each jira instance.",
+    tags = "Jira Plugin",
+    operationId = "jira_get_circuit_breakers"
+  )
+  @ApiResponse(responseCode = "200", description = "success")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user has no privileges to read the configuration")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response getCircuitBreakers() {
+    JiraPermissions.checkReadGlobalConfig();
+    return Response.ok(circuitBreakerMapper.map(circuitBreaker.getStatus())).build();
+  }
+
+  @GET
+  @Path("/import-storms")
+  @Produces({MediaType.APPLICATION_JSON})
+  @Operation(
+    summary = "Get jira import storms",
+    description = "Returns the latest pushes, which exceeded the changeset threshold and did not update jira.",
+    tags = "Jira Plugin",
+    operationId = "jira_get_import_storms"
+  )
+  @ApiResponse(responseCode = "200", description = "success")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user has no privileges to read the configuration")
+  @ApiResponse(
+    responseCode = "500",
+    description = "internal server error",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response getImportStorms() {
+    JiraPermissions.checkReadGlobalConfig();
+    return Response.ok(importStormLogEntryMapper.map(importStormLog.getEntries())).build();
+  }
+
   @GET
   @Path("/{namespace}/{name}")
   @Produces({MediaType.APPLICATION_JSON})
@@ -209,6 +286,105 @@ public class JiraConfigurationResource {
     return Response.noContent().build();
   }
 
+  @GET
+  @Path("/{namespace}/{name}/backfill")
+  @Produces({MediaType.APPLICATION_JSON})
+  @Operation(
+    summary = "Get jira backfill status",
+    description = "Returns the progress of the backfill of the repository history.",
+    tags = "Jira Plugin",
+    operationId = "jira_get_backfill"
+  )
+  @ApiResponse(
+    responseCode = "200",
+    description = "success",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = BackfillStatusDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "204", description = "no backfill was started for the repository")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user has no privileges to read the configuration")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response getBackfill(@PathParam("namespace") String namespace, @PathParam("name") String name) {
+    Repository repository = loadRepository(namespace, name);
+    JiraPermissions.checkReadRepositoryConfig(repository);
+    return backfill.getStatus(repository)
+      .map(status -> Response.ok(backfillStatusMapper.map(status, repository)).build())
+      .orElseGet(() -> Response.noContent().build());
+  }
+
+  @POST
+  @Path("/{namespace}/{name}/backfill")
+  @Produces({MediaType.APPLICATION_JSON})
+  @Operation(
+    summary = "Start jira backfill",
+    description = "Starts to post references for the existing history of the repository. A failed or canceled backfill is resumed, unless restart is set.",
+    tags = "Jira Plugin",
+    operationId = "jira_start_backfill"
+  )
+  @ApiResponse(
+    responseCode = "202",
+    description = "backfill started",
+    content = @Content(
+      mediaType = MediaType.APPLICATION_JSON,
+      schema = @Schema(implementation = BackfillStatusDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the privilege to change the global configuration")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  @ApiResponse(responseCode = "409", description = "a backfill of the repository is already running")
+  public Response startBackfill(@PathParam("namespace") String namespace, @PathParam("name") String name, @QueryParam("restart") boolean restart) {
+    Repository repository = loadRepository(namespace, name);
+    JiraPermissions.checkWriteGlobalConfig();
+    Optional<BackfillStatus> status = backfill.start(repository, restart);
+    if (!status.isPresent()) {
+      return Response.status(Response.Status.CONFLICT).build();
+    }
+    return Response.accepted(backfillStatusMapper.map(status.get(), repository)).build();
+  }
+
+  @DELETE
+  @Path("/{namespace}/{name}/backfill")
+  @Operation(
+    summary = "Cancel jira backfill",
+    description = "Cancels the running backfill of the repository. The progress is kept, so that the backfill can be resumed.",
+    tags = "Jira Plugin",
+    operationId = "jira_cancel_backfill"
+  )
+  @ApiResponse(responseCode = "204", description = "backfill canceled or not running")
+  @ApiResponse(responseCode = "401", description = "not authenticated / invalid credentials")
+  @ApiResponse(responseCode = "403", description = "not authorized, the current user does not have the privilege to change the global configuration")
+  @ApiResponse(
+    responseCode = "404",
+    description = "not found, no repository with the specified namespace and name available",
+    content = @Content(
+      mediaType = VndMediaType.ERROR_TYPE,
+      schema = @Schema(implementation = ErrorDto.class)
+    )
+  )
+  public Response cancelBackfill(@PathParam("namespace") String namespace, @PathParam("name") String name) {
+    Repository repository = loadRepository(namespace, name);
+    JiraPermissions.checkWriteGlobalConfig();
+    backfill.cancel(repository);
+    return Response.noContent().build();
+  }
 
   private Repository loadRepository(String namespace, String name) {
     Repository repository = repositoryManager.get(new NamespaceAndName(namespace, name));
@@ -18,29 +18,53 @@ package sonia.scm.jira.config;
 
 //~--- non-JDK imports --------------------------------------------------------
 
+import com.github.legman.Subscribe;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sonia.scm.EagerSingleton;
+import sonia.scm.HandlerEventType;
+import sonia.scm.event.ScmEventBus;
 import sonia.scm.jira.JiraPermissions;
+import sonia.scm.plugin.Extension;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
 import sonia.scm.store.ConfigurationStore;
 import sonia.scm.store.ConfigurationStoreFactory;
 
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
 /**
  * Global jira context.
+ * <p>
+ * The global configuration is read once and kept until it is stored again. The kept instance is shared by all
+ * readers, so it must be treated as read-only; changes are made on a new instance, which is passed to
+ * {@link #setGlobalConfiguration(JiraGlobalConfiguration)}. The stores of the repository
+ * configurations are cached by repository id, because building a store resolves the
+ * location of the repository each time. A cached store is removed if its repository is deleted or renamed.
  *
  * @author Sebastian Sdorra
  */
 @Singleton
+@Extension
+@EagerSingleton
 public class JiraConfigurationStore
 {
 
   /** configuration store name */
   private static final String NAME = "jira";
 
+  /** maximum number of cached repository stores */
+  private static final int MAXIMUM_CACHED_STORES = 50000;
+
   /**
    * the logger for JiraGlobalContext
    */
@@ -54,27 +78,40 @@ public class JiraConfigurationStore
    *
    *
    * @param storeFactory store factory
+   * @param eventBus event bus for {@link JiraConfigurationChangedEvent}
    */
   @Inject
-  public JiraConfigurationStore(ConfigurationStoreFactory storeFactory)
+  public JiraConfigurationStore(ConfigurationStoreFactory storeFactory, ScmEventBus eventBus)
   {
     this.storeFactory = storeFactory;
+    this.eventBus = eventBus;
     this.store = storeFactory.withType(JiraGlobalConfiguration.class).withName(NAME).build();
   }
 
 
   //~--- get methods ----------------------------------------------------------
   /**
-   * Returns the global jira configuration.
+   * Returns the global jira configuration. The returned instance is shared by all callers and must not be modified,
+   * otherwise the change would be visible to every reader without being stored and without a
+   * {@link JiraConfigurationChangedEvent}.
    *
    *
-   * @return global jira configuration
+   * @return global jira configuration, read-only
    */
   public JiraGlobalConfiguration getGlobalConfiguration()
   {
-    return store
-      .getOptional()
-      .orElse(new JiraGlobalConfiguration());
+    JiraGlobalConfiguration configuration = globalConfiguration;
+    if (configuration == null) {
+      synchronized (this) {
+        if (globalConfiguration == null) {
+          globalConfiguration = store
+            .getOptional()
+            .orElse(new JiraGlobalConfiguration());
+        }
+        configuration = globalConfiguration;
+      }
+    }
+    return configuration;
   }
 
   public JiraConfiguration getConfiguration(Repository repository) {
@@ -95,16 +132,30 @@ public class JiraConfigurationStore
   {
     JiraPermissions.checkWriteGlobalConfig();
     logger.debug("store jira configuration");
-    this.store.set(configuration);
+    synchronized (this) {
+      this.store.set(configuration);
+      this.globalConfiguration = null;
+    }
+    eventBus.post(new JiraConfigurationChangedEvent(null));
   }
 
   public void setConfiguration(JiraConfiguration configuration, Repository repository) {
     JiraPermissions.checkWriteRepositoryConfig(repository);
     getRepositoryStore(repository)
       .set(configuration);
+    eventBus.post(new JiraConfigurationChangedEvent(repository));
   }
 
   private ConfigurationStore<JiraConfiguration> getRepositoryStore(Repository repository) {
+    try {
+      return repositoryStores.get(repository.getId(), () -> createRepositoryStore(repository));
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      Throwables.throwIfUnchecked(ex.getCause());
+      throw new IllegalStateException("failed to create jira configuration store for " + repository, ex.getCause());
+    }
+  }
+
+  ConfigurationStore<JiraConfiguration> createRepositoryStore(Repository repository) {
     return storeFactory
       .withType(JiraConfiguration.class)
       .withName(NAME)
@@ -112,8 +163,31 @@ public class JiraConfigurationStore
       .build();
   }
 
+  @Subscribe(async = false)
+  public void onRepositoryEvent(RepositoryEvent event) {
+    if (event.getEventType() == HandlerEventType.DELETE || isRenamed(event)) {
+      logger.debug("remove cached jira configuration store of repository {}", event.getItem().getId());
+      repositoryStores.invalidate(event.getItem().getId());
+    }
+  }
+
+  private boolean isRenamed(RepositoryEvent event) {
+    Repository oldRepository = event.getOldItem();
+    return event.getEventType() == HandlerEventType.MODIFY && oldRepository != null
+      && !Objects.equals(oldRepository.getNamespaceAndName(), event.getItem().getNamespaceAndName());
+  }
+
   //~--- fields ---------------------------------------------------------------
   /** global configuration store */
   private final ConfigurationStore<JiraGlobalConfiguration> store;
   private final ConfigurationStoreFactory storeFactory;
+  private final ScmEventBus eventBus;
+
+  /** snapshot of the global configuration, which is read on almost every request */
+  private volatile JiraGlobalConfiguration globalConfiguration;
+
+  /** stores of the repository configurations, the key is the id of the repository */
+  private final Cache<String, ConfigurationStore<JiraConfiguration>> repositoryStores = CacheBuilder.newBuilder()
+    .maximumSize(MAXIMUM_CACHED_STORES)
+    .build();
 }
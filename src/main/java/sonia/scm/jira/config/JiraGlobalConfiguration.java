@@ -38,4 +38,32 @@ public class JiraGlobalConfiguration extends JiraConfiguration {
   /** repository configuration is disabled */
   @XmlElement(name = "disable-repository-configuration")
   private boolean disableRepositoryConfiguration = false;
+
+  /** deliver comments and state changes with the persistent outbox */
+  @XmlElement(name = "async-delivery")
+  private boolean asyncDelivery = false;
+
+  /** maximum number of concurrent requests to a jira instance, 0 disables the limit */
+  @XmlElement(name = "max-concurrent-requests")
+  private int maxConcurrentRequests = 0;
+
+  /** maximum number of requests per second to a jira instance, 0 disables the limit */
+  @XmlElement(name = "max-requests-per-second")
+  private double maxRequestsPerSecond = 0;
+
+  /** pushes with more changesets skip the live updates, 0 disables the limit */
+  @XmlElement(name = "import-storm-threshold")
+  private int importStormThreshold = 0;
+
+  /** hand the skipped updates of large pushes over to the backfill instead of dropping them */
+  @XmlElement(name = "import-storm-backfill")
+  private boolean importStormBackfill = false;
+
+  /** timeout in seconds for establishing a connection to jira */
+  @XmlElement(name = "connect-timeout")
+  private int connectTimeout = 10;
+
+  /** timeout in seconds for the response of jira */
+  @XmlElement(name = "read-timeout")
+  private int readTimeout = 30;
 }
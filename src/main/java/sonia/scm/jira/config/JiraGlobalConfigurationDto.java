@@ -22,4 +22,11 @@ import lombok.Setter;
 @Getter @Setter
 public class JiraGlobalConfigurationDto extends JiraConfigurationDto {
   private boolean disableRepositoryConfiguration;
+  private boolean asyncDelivery;
+  private int maxConcurrentRequests;
+  private double maxRequestsPerSecond;
+  private int importStormThreshold;
+  private boolean importStormBackfill;
+  private int connectTimeout;
+  private int readTimeout;
 }
@@ -45,6 +45,8 @@ public abstract class JiraGlobalConfigurationMapper extends BaseMapper {
   @AfterMapping
   void appendLinks(@MappingTarget JiraGlobalConfigurationDto target) {
     Links.Builder linksBuilder = linkingTo().self(self());
+    linksBuilder.single(link("circuitBreakers", circuitBreakers()));
+    linksBuilder.single(link("importStorms", importStorms()));
     if (JiraPermissions.isPermittedWriteGlobalConfig()) {
       linksBuilder.single(link("update", update()));
     }
@@ -56,6 +58,16 @@ public abstract class JiraGlobalConfigurationMapper extends BaseMapper {
     return linkBuilder.method("get").parameters().href();
   }
 
+  private String circuitBreakers() {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
+    return linkBuilder.method("getCircuitBreakers").parameters().href();
+  }
+
+  private String importStorms() {
+    LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
+    return linkBuilder.method("getImportStorms").parameters().href();
+  }
+
   private String update() {
     LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get(), JiraConfigurationResource.class);
     return linkBuilder.method("update").parameters().href();
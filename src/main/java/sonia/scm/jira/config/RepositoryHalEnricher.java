@@ -16,11 +16,14 @@
 
 package sonia.scm.jira.config;
 
+import com.google.common.escape.Escaper;
+import com.google.common.net.UrlEscapers;
 import sonia.scm.api.v2.resources.Enrich;
 import sonia.scm.api.v2.resources.HalAppender;
 import sonia.scm.api.v2.resources.LinkBuilder;
 import sonia.scm.api.v2.resources.HalEnricher;
 import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.api.v2.resources.ScmPathInfo;
 import sonia.scm.api.v2.resources.ScmPathInfoStore;
 import sonia.scm.jira.JiraPermissions;
 import sonia.scm.plugin.Extension;
@@ -28,14 +31,27 @@ import sonia.scm.repository.Repository;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
+import java.net.URI;
 
+/**
+ * Appends the link to the jira configuration of a repository. The enricher runs for every repository of a listing,
+ * so the href is built only once per base uri with placeholders for namespace and name. The placeholders are
+ * replaced with the escaped path segments of each repository.
+ */
 @Extension
 @Enrich(Repository.class)
 public class RepositoryHalEnricher implements HalEnricher {
 
+  private static final String NAMESPACE_PLACEHOLDER = "__namespace__";
+  private static final String NAME_PLACEHOLDER = "__name__";
+
+  private static final Escaper ESCAPER = UrlEscapers.urlPathSegmentEscaper();
+
   private final Provider<ScmPathInfoStore> scmPathInfoStore;
   private final JiraConfigurationStore jiraContext;
 
+  private volatile LinkTemplate template;
+
   @Inject
   public RepositoryHalEnricher(Provider<ScmPathInfoStore> scmPathInfoStore, JiraConfigurationStore jiraContext) {
     this.scmPathInfoStore = scmPathInfoStore;
@@ -46,11 +62,51 @@ public class RepositoryHalEnricher implements HalEnricher {
   public void enrich(HalEnricherContext context, HalAppender appender) {
     Repository repository = context.oneRequireByType(Repository.class);
     if (!jiraContext.getGlobalConfiguration().isDisableRepositoryConfiguration() && JiraPermissions.isPermittedReadRepositoryConfig(repository)) {
-      String globalJiraConfigUrl = new LinkBuilder(scmPathInfoStore.get().get(), JiraConfigurationResource.class)
+      appender.appendLink("jiraConfig", template().expand(repository.getNamespace(), repository.getName()));
+    }
+  }
+
+  private LinkTemplate template() {
+    ScmPathInfo pathInfo = scmPathInfoStore.get().get();
+    URI baseUri = pathInfo.getApiRestUri();
+    LinkTemplate current = template;
+    if (current == null || !current.baseUri.equals(baseUri)) {
+      String href = new LinkBuilder(pathInfo, JiraConfigurationResource.class)
         .method("getForRepository")
-        .parameters(repository.getNamespace(), repository.getName())
+        .parameters(NAMESPACE_PLACEHOLDER, NAME_PLACEHOLDER)
         .href();
-      appender.appendLink("jiraConfig", globalJiraConfigUrl);
+      current = new LinkTemplate(baseUri, href);
+      template = current;
+    }
+    return current;
+  }
+
+  private static final class LinkTemplate {
+
+    private final URI baseUri;
+    private final String prefix;
+    private final String infix;
+    private final String suffix;
+
+    private LinkTemplate(URI baseUri, String href) {
+      this.baseUri = baseUri;
+      int namespaceIndex = href.indexOf(NAMESPACE_PLACEHOLDER);
+      int nameIndex = href.indexOf(NAME_PLACEHOLDER, namespaceIndex + NAMESPACE_PLACEHOLDER.length());
+      this.prefix = href.substring(0, namespaceIndex);
+      this.infix = href.substring(namespaceIndex + NAMESPACE_PLACEHOLDER.length(), nameIndex);
+      this.suffix = href.substring(nameIndex + NAME_PLACEHOLDER.length());
+    }
+
+    private String expand(String namespace, String name) {
+      String escapedNamespace = ESCAPER.escape(namespace);
+      String escapedName = ESCAPER.escape(name);
+      return new StringBuilder(prefix.length() + escapedNamespace.length() + infix.length() + escapedName.length() + suffix.length())
+        .append(prefix)
+        .append(escapedNamespace)
+        .append(infix)
+        .append(escapedName)
+        .append(suffix)
+        .toString();
     }
   }
 }
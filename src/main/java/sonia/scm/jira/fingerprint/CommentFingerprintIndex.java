@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.store.Blob;
+import sonia.scm.store.BlobStore;
+import sonia.scm.store.BlobStoreFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisted index of the fingerprints of delivered comments, see {@link CommentFingerprints}.
+ * <p>
+ * The most recent fingerprints are kept in an exact window. All fingerprints are also added to a bloom filter. If the
+ * bloom filter reaches its capacity, it becomes the previous generation and a new one is started, so that the index
+ * never grows beyond two generations and the window. A lookup is answered by the window and both generations, each
+ * in constant time. Fingerprints which are older than two generations are forgotten.
+ * <p>
+ * A comment which is currently sent can be claimed with {@link #claim(long)}, so that a concurrent push of the same
+ * changesets does not send it a second time. The claimed fingerprint is added with {@link #complete(long)} after the
+ * comment was sent or released with {@link #release(long)} if sending failed.
+ * <p>
+ * The index is loaded on first use and written to a blob store periodically and on shutdown. The blob is written from a
+ * copy of the index, so that lookups are not blocked while it is written. If the blob cannot be read, the index starts
+ * empty.
+ */
+@Singleton
+public class CommentFingerprintIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CommentFingerprintIndex.class);
+
+  private static final String STORE_NAME = "jira-comment-fingerprints";
+  private static final String BLOB_ID = "index";
+  private static final int VERSION = 1;
+
+  private static final int WINDOW_SIZE = 100_000;
+  private static final int GENERATION_SIZE = 1_000_000;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.000001;
+
+  private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+  private final BlobStore store;
+  private final int windowSize;
+  private final int generationSize;
+
+  /** serializes the writes of the blob */
+  private final Object flushLock = new Object();
+
+  /** fingerprints of comments which are currently sent */
+  private final Set<Long> claimed = new HashSet<>();
+
+  private LinkedHashSet<Long> window;
+  private BloomFilter<Long> current;
+  private int currentSize;
+  private BloomFilter<Long> previous;
+
+  private boolean loaded;
+  private boolean dirty;
+
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public CommentFingerprintIndex(BlobStoreFactory storeFactory) {
+    this(storeFactory, WINDOW_SIZE, GENERATION_SIZE);
+  }
+
+  CommentFingerprintIndex(BlobStoreFactory storeFactory, int windowSize, int generationSize) {
+    this.store = storeFactory.withName(STORE_NAME).build();
+    this.windowSize = windowSize;
+    this.generationSize = generationSize;
+  }
+
+  public synchronized boolean contains(long fingerprint) {
+    load();
+    return window.contains(fingerprint)
+      || current.mightContain(fingerprint)
+      || (previous != null && previous.mightContain(fingerprint));
+  }
+
+  /**
+   * Claims the fingerprint of a comment which is about to be sent.
+   *
+   * @param fingerprint fingerprint of the comment
+   *
+   * @return {@code false} if the fingerprint is already known or claimed by another thread
+   */
+  public synchronized boolean claim(long fingerprint) {
+    if (claimed.contains(fingerprint) || contains(fingerprint)) {
+      return false;
+    }
+    claimed.add(fingerprint);
+    return true;
+  }
+
+  /**
+   * Adds a claimed fingerprint, after the comment was sent.
+   *
+   * @param fingerprint fingerprint of the comment
+   */
+  public synchronized void complete(long fingerprint) {
+    claimed.remove(fingerprint);
+    add(fingerprint);
+  }
+
+  /**
+   * Releases a claimed fingerprint without adding it, because the comment could not be sent.
+   *
+   * @param fingerprint fingerprint of the comment
+   */
+  public synchronized void release(long fingerprint) {
+    claimed.remove(fingerprint);
+  }
+
+  public synchronized void add(long fingerprint) {
+    load();
+    window.add(fingerprint);
+    if (window.size() > windowSize) {
+      Iterator<Long> oldest = window.iterator();
+      oldest.next();
+      oldest.remove();
+    }
+    if (current.put(fingerprint)) {
+      currentSize++;
+      if (currentSize >= generationSize) {
+        LOG.debug("comment fingerprint generation is full, start a new one");
+        previous = current;
+        current = createGeneration();
+        currentSize = 0;
+      }
+    }
+    dirty = true;
+  }
+
+  synchronized void start() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat("JiraCommentFingerprints").setDaemon(true).build()
+      );
+      executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void stop() {
+    synchronized (this) {
+      if (executor != null) {
+        executor.shutdownNow();
+        executor = null;
+      }
+    }
+    flush();
+  }
+
+  @VisibleForTesting
+  void flush() {
+    synchronized (flushLock) {
+      Snapshot snapshot = snapshot();
+      if (snapshot == null) {
+        return;
+      }
+      try {
+        Blob blob = store.getOptional(BLOB_ID).orElseGet(() -> store.create(BLOB_ID));
+        try (OutputStream output = blob.getOutputStream()) {
+          snapshot.write(new DataOutputStream(new BufferedOutputStream(output)));
+        }
+        blob.commit();
+      } catch (IOException | RuntimeException ex) {
+        LOG.warn("failed to store jira comment fingerprints", ex);
+        synchronized (this) {
+          dirty = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Copies the index for writing, the bloom filters are copied in a single pass over their bits.
+   *
+   * @return copy of the index or {@code null} if nothing has changed since the last write
+   */
+  private synchronized Snapshot snapshot() {
+    if (!dirty) {
+      return null;
+    }
+    dirty = false;
+    return new Snapshot(
+      new ArrayList<>(window), currentSize, current.copy(), previous != null ? previous.copy() : null
+    );
+  }
+
+  private void load() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    window = new LinkedHashSet<>();
+    current = createGeneration();
+    currentSize = 0;
+    previous = null;
+
+    Optional<Blob> blob = store.getOptional(BLOB_ID);
+    if (blob.isPresent()) {
+      try (InputStream input = blob.get().getInputStream()) {
+        read(new DataInputStream(new BufferedInputStream(input)));
+      } catch (IOException | RuntimeException ex) {
+        LOG.warn("failed to read jira comment fingerprints, start with an empty index", ex);
+        window.clear();
+        current = createGeneration();
+        currentSize = 0;
+        previous = null;
+      }
+    }
+  }
+
+  private void read(DataInputStream input) throws IOException {
+    int version = input.readInt();
+    if (version != VERSION) {
+      throw new IOException("unsupported version of jira comment fingerprints: " + version);
+    }
+    int size = input.readInt();
+    for (int i = 0; i < size; i++) {
+      window.add(input.readLong());
+    }
+    currentSize = input.readInt();
+    current = BloomFilter.readFrom(input, Funnels.longFunnel());
+    if (input.readBoolean()) {
+      previous = BloomFilter.readFrom(input, Funnels.longFunnel());
+    }
+  }
+
+  private BloomFilter<Long> createGeneration() {
+    return BloomFilter.create(Funnels.longFunnel(), generationSize, FALSE_POSITIVE_PROBABILITY);
+  }
+
+  private static final class Snapshot {
+
+    private final List<Long> window;
+    private final int currentSize;
+    private final BloomFilter<Long> current;
+    private final BloomFilter<Long> previous;
+
+    private Snapshot(List<Long> window, int currentSize, BloomFilter<Long> current, BloomFilter<Long> previous) {
+      this.window = window;
+      this.currentSize = currentSize;
+      this.current = current;
+      this.previous = previous;
+    }
+
+    private void write(DataOutputStream output) throws IOException {
+      output.writeInt(VERSION);
+      output.writeInt(window.size());
+      for (long fingerprint : window) {
+        output.writeLong(fingerprint);
+      }
+      output.writeInt(currentSize);
+      current.writeTo(output);
+      output.writeBoolean(previous != null);
+      if (previous != null) {
+        previous.writeTo(output);
+      }
+      output.flush();
+    }
+  }
+}
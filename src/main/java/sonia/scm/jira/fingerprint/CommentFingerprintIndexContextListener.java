@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import sonia.scm.plugin.Extension;
+
+/**
+ * Starts the periodic flush of the {@link CommentFingerprintIndex} and writes it on shutdown.
+ */
+@Extension
+public class CommentFingerprintIndexContextListener implements ServletContextListener {
+
+  private final CommentFingerprintIndex index;
+
+  @Inject
+  public CommentFingerprintIndexContextListener(CommentFingerprintIndex index) {
+    this.index = index;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    index.start();
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    index.stop();
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Computes the fingerprint of a comment. The comment templates start with a line which names the kind of the
+ * reference, e.g. "Issue referenced by commit", and contain links to the referencing changeset, pull request or
+ * comment. The fingerprint is built from the repository, the issue key, the first line and the link targets, so that
+ * the same reference results in the same fingerprint, even if it was pushed again by another user or to another
+ * branch. Comments without links are fingerprinted by their whole content.
+ */
+public final class CommentFingerprints {
+
+  /** target of a jira link: [label|target] */
+  private static final Pattern LINK = Pattern.compile("\\|([^|\\]\\s]+)\\]");
+
+  /** link to a changeset in the scm-manager ui */
+  private static final Pattern CHANGESET_LINK = Pattern.compile("/code/changeset/([^/?#|\\]\\s]+)");
+
+  private CommentFingerprints() {
+  }
+
+  public static long of(String repositoryId, String issueKey, String content) {
+    Hasher hasher = Hashing.murmur3_128().newHasher()
+      .putString(repositoryId, StandardCharsets.UTF_8)
+      .putChar('\n')
+      .putString(issueKey, StandardCharsets.UTF_8)
+      .putChar('\n');
+
+    int firstLineEnd = content.indexOf('\n');
+    hasher.putString(firstLineEnd >= 0 ? content.substring(0, firstLineEnd) : content, StandardCharsets.UTF_8);
+
+    boolean linked = false;
+    Matcher matcher = LINK.matcher(content);
+    while (matcher.find()) {
+      hasher.putChar('\n').putString(matcher.group(1), StandardCharsets.UTF_8);
+      linked = true;
+    }
+    if (!linked) {
+      hasher.putChar('\n').putString(content, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Returns the fingerprint of a changeset content for an issue in a repository. Like the fingerprint of a comment,
+   * it is scoped to the repository, so that equal changes in another repository are still commented.
+   */
+  public static long ofPatch(String repositoryId, String issueKey, long patchId) {
+    return Hashing.murmur3_128().newHasher()
+      .putString("patch", StandardCharsets.UTF_8)
+      .putChar('\n')
+      .putString(repositoryId, StandardCharsets.UTF_8)
+      .putChar('\n')
+      .putString(issueKey, StandardCharsets.UTF_8)
+      .putChar('\n')
+      .putLong(patchId)
+      .hash()
+      .asLong();
+  }
+
+  /**
+   * Returns the id of the first changeset, which is linked by the comment.
+   */
+  public static Optional<String> changesetId(String content) {
+    Matcher matcher = CHANGESET_LINK.matcher(content);
+    return matcher.find() ? Optional.of(matcher.group(1)) : Optional.empty();
+  }
+}
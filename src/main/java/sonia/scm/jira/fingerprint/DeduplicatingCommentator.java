@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.aggregation.DeferredCommentator;
+import sonia.scm.jira.aggregation.DeliveryCallback;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * {@link Commentator} which skips comments whose fingerprint is already known. Besides the fingerprint of the
+ * reference, the patch id of a linked changeset is checked for the issue, so that rebased or cherry-picked changesets
+ * are not commented again. The fingerprints are claimed before the comment is passed to the wrapped commentator, so
+ * that a concurrent push of the same changesets skips it. The wrapped commentator may post the comment later, e.g.
+ * combined with other references, so the fingerprints are recorded only when it reports the delivery. A failed comment
+ * is not treated as delivered and is commented again, if the changeset is pushed again.
+ */
+public class DeduplicatingCommentator implements Commentator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DeduplicatingCommentator.class);
+
+  private final CommentFingerprintIndex index;
+  private final PatchIds patchIds;
+  private final Repository repository;
+  private final DeferredCommentator commentator;
+
+  public DeduplicatingCommentator(CommentFingerprintIndex index, PatchIds patchIds, Repository repository, DeferredCommentator commentator) {
+    this.index = index;
+    this.patchIds = patchIds;
+    this.repository = repository;
+    this.commentator = commentator;
+  }
+
+  @Override
+  public void comment(String issueKey, String content) throws IOException {
+    long fingerprint = CommentFingerprints.of(repository.getId(), issueKey, content);
+    if (!index.claim(fingerprint)) {
+      LOG.debug("skip comment for issue {}, because the reference was already commented", issueKey);
+      return;
+    }
+    OptionalLong patchFingerprint = patchFingerprint(issueKey, content);
+    if (patchFingerprint.isPresent() && !index.claim(patchFingerprint.getAsLong())) {
+      LOG.debug("skip comment for issue {}, because a changeset with the same changes was already commented", issueKey);
+      index.complete(fingerprint);
+      return;
+    }
+    commentator.comment(issueKey, content, new DeliveryCallback() {
+      @Override
+      public void delivered() {
+        index.complete(fingerprint);
+        patchFingerprint.ifPresent(index::complete);
+      }
+
+      @Override
+      public void failed() {
+        index.release(fingerprint);
+        patchFingerprint.ifPresent(index::release);
+      }
+    });
+  }
+
+  private OptionalLong patchFingerprint(String issueKey, String content) {
+    Optional<String> changesetId = CommentFingerprints.changesetId(content);
+    if (!changesetId.isPresent()) {
+      return OptionalLong.empty();
+    }
+    OptionalLong patchId = patchIds.get(repository, changesetId.get());
+    return patchId.isPresent() ? OptionalLong.of(CommentFingerprints.ofPatch(repository.getId(), issueKey, patchId.getAsLong())) : OptionalLong.empty();
+  }
+}
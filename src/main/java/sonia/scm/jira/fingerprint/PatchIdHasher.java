@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.OptionalLong;
+
+/**
+ * Computes a content fingerprint of a changeset from its unified diff, in the style of {@code git patch-id --stable}.
+ * Only added and removed lines, including the {@code ---} and {@code +++} file headers, are taken into account.
+ * Whitespace, line numbers, context lines and object ids are ignored, and the hashes of the files are summed, so that
+ * the order of the files does not matter. A rebased or cherry-picked changeset therefore has the same patch id as its
+ * original.
+ * <p>
+ * The diff is streamed into the hasher line by line, it is never kept in memory as a whole. If the diff exceeds the
+ * maximum size, the hasher aborts the diff with a {@link DiffTooLargeException}.
+ */
+class PatchIdHasher extends OutputStream {
+
+  private static final byte[] FILE_HEADER = "diff --git ".getBytes(StandardCharsets.US_ASCII);
+
+  private final long maximumSize;
+  private long size;
+
+  private byte[] line = new byte[256];
+  private int length;
+
+  private Hasher file;
+  private long sum;
+  private boolean changed;
+
+  PatchIdHasher(long maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  @Override
+  public void write(int b) throws DiffTooLargeException {
+    if (++size > maximumSize) {
+      throw new DiffTooLargeException(maximumSize);
+    }
+    if (b == '\n') {
+      endOfLine();
+    } else {
+      if (length == line.length) {
+        line = Arrays.copyOf(line, line.length * 2);
+      }
+      line[length++] = (byte) b;
+    }
+  }
+
+  @Override
+  public void write(byte[] buffer, int offset, int count) throws DiffTooLargeException {
+    for (int i = offset; i < offset + count; i++) {
+      write(buffer[i]);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the diff was aborted, because it exceeded the maximum size.
+   */
+  boolean isSizeExceeded() {
+    return size > maximumSize;
+  }
+
+  /**
+   * Returns the patch id, or an empty optional if the diff did not contain any change.
+   */
+  OptionalLong patchId() {
+    if (length > 0) {
+      endOfLine();
+    }
+    endOfFile();
+    return changed ? OptionalLong.of(sum) : OptionalLong.empty();
+  }
+
+  private void endOfLine() {
+    if (startsWith(FILE_HEADER)) {
+      endOfFile();
+    } else if (length > 0 && (line[0] == '+' || line[0] == '-')) {
+      if (file == null) {
+        file = Hashing.murmur3_128().newHasher();
+      }
+      for (int i = 0; i < length; i++) {
+        if (!Character.isWhitespace(line[i])) {
+          file.putByte(line[i]);
+        }
+      }
+      file.putByte((byte) '\n');
+      changed = true;
+    }
+    length = 0;
+  }
+
+  private void endOfFile() {
+    if (file != null) {
+      sum += file.hash().asLong();
+      file = null;
+    }
+  }
+
+  /**
+   * Thrown if the diff of a changeset exceeds the maximum size.
+   */
+  static class DiffTooLargeException extends IOException {
+
+    DiffTooLargeException(long maximumSize) {
+      super("diff exceeds maximum size of " + maximumSize + " bytes");
+    }
+  }
+
+  private boolean startsWith(byte[] prefix) {
+    if (length < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (line[i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
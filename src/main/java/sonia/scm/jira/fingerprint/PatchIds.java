@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Provides the patch ids of changesets, see {@link PatchIdHasher}. A patch id is only computed, when a changeset
+ * actually references an issue, and it is computed only once per changeset, because the content of a changeset never
+ * changes. Because the diff is read while the push is processed, the patch id is not computed for changesets whose
+ * diff exceeds {@link #MAXIMUM_DIFF_SIZE}; those changesets are only deduplicated by their id.
+ */
+@Singleton
+public class PatchIds {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PatchIds.class);
+
+  private static final int MAXIMUM_CHANGESETS = 100_000;
+  static final long MAXIMUM_DIFF_SIZE = 1024L * 1024L;
+
+  private final RepositoryServiceFactory serviceFactory;
+
+  /** computed patch ids, the key is build from repository id and changeset id */
+  private final Cache<String, OptionalLong> patchIds = CacheBuilder.newBuilder()
+    .maximumSize(MAXIMUM_CHANGESETS)
+    .build();
+
+  @Inject
+  public PatchIds(RepositoryServiceFactory serviceFactory) {
+    this.serviceFactory = serviceFactory;
+  }
+
+  /**
+   * Returns the patch id of the changeset, or an empty optional if the repository does not support diffs or the
+   * changeset has no textual changes.
+   */
+  public OptionalLong get(Repository repository, String changesetId) {
+    try {
+      return patchIds.get(repository.getId() + "/" + changesetId, () -> compute(repository, changesetId));
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      LOG.warn("failed to compute patch id of changeset {} in {}", changesetId, repository, ex.getCause());
+      return OptionalLong.empty();
+    }
+  }
+
+  private OptionalLong compute(Repository repository, String changesetId) throws IOException {
+    try (RepositoryService service = serviceFactory.create(repository)) {
+      if (!service.isSupported(Command.DIFF)) {
+        return OptionalLong.empty();
+      }
+      PatchIdHasher hasher = new PatchIdHasher(MAXIMUM_DIFF_SIZE);
+      try {
+        service.getDiffCommand().setRevision(changesetId).retrieveContent(hasher);
+      } catch (IOException | RuntimeException ex) {
+        // the repository implementation may wrap the exception of the hasher
+        if (!hasher.isSizeExceeded()) {
+          throw ex;
+        }
+        LOG.debug("skip patch id of changeset {} in {}, because the diff is too large", changesetId, repository);
+        return OptionalLong.empty();
+      }
+      return hasher.patchId();
+    }
+  }
+}
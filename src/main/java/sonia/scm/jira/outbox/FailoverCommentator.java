@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.JiraCommentator;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+
+/**
+ * {@link Commentator} which posts the comments directly to Jira, but queues the comment in the {@link JiraOutbox}, if
+ * Jira throttles the request or the circuit breaker of the Jira instance is open, so that the comment is not lost.
+ */
+public class FailoverCommentator implements Commentator {
+
+  private final JiraOutbox outbox;
+  private final Repository repository;
+  private final JiraCommentator commentator;
+
+  public FailoverCommentator(JiraOutbox outbox, Repository repository, JiraCommentator commentator) {
+    this.outbox = outbox;
+    this.repository = repository;
+    this.commentator = commentator;
+  }
+
+  @Override
+  public void comment(String issueKey, String content) throws IOException {
+    try {
+      commentator.comment(issueKey, content);
+    } catch (JiraUnavailableException | JiraRateLimitException ex) {
+      outbox.comment(repository, issueKey, content);
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import sonia.scm.issuetracker.spi.StateChanger;
+import sonia.scm.jira.JiraStateChanger;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+
+/**
+ * {@link StateChanger} which changes the state directly in Jira, but queues the state change in the
+ * {@link JiraOutbox}, if Jira throttles the requests or the circuit breaker of the Jira instance opens during the push.
+ * The key words are then taken from the local mapping only, so that the state changes of the push are not lost.
+ */
+public class FailoverStateChanger implements StateChanger {
+
+  private final JiraOutbox outbox;
+  private final Repository repository;
+  private final JiraStateChanger stateChanger;
+
+  public FailoverStateChanger(JiraOutbox outbox, Repository repository, JiraStateChanger stateChanger) {
+    this.outbox = outbox;
+    this.repository = repository;
+    this.stateChanger = stateChanger;
+  }
+
+  @Override
+  public void changeState(String issueKey, String keyWord) throws IOException {
+    try {
+      stateChanger.changeState(issueKey, keyWord);
+    } catch (JiraUnavailableException | JiraRateLimitException ex) {
+      outbox.changeState(repository, issueKey, keyWord);
+    }
+  }
+
+  @Override
+  public Iterable<String> getKeyWords(String issueKey) throws IOException {
+    try {
+      return stateChanger.getKeyWords(issueKey);
+    } catch (JiraUnavailableException | JiraRateLimitException ex) {
+      return stateChanger.getMappedKeyWords();
+    }
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForCommits() {
+    return stateChanger.isStateChangeActivatedForCommits();
+  }
+}
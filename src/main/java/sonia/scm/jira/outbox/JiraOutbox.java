@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.repository.Repository;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent queue for comments and state changes. The hook path only stores the updates in the outbox, a background
+ * worker pool delivers them to jira. Failed deliveries are retried with an exponential backoff and pending entries are
+ * recovered after a restart.
+ * <p>
+ * Due entries are handed over to {@link OutboxLanes}, partitioned by issue key, so that the updates of an issue are
+ * delivered one after another while unrelated issues are delivered in parallel. An entry is not delivered before the
+ * older entries of the same issue and repository, unless those have already failed and wait for a retry, so that a
+ * single broken update does not block the issue. If a lane is full, the entry stays in the store and is dispatched
+ * again after a delay, which starts with {@link #BACKPRESSURE_DELAY} milliseconds and grows with each rejection.
+ * <p>
+ * The outbox tracks and schedules at most {@link #MAXIMUM_ENTRIES} entries in memory. Further updates are only written
+ * to the store and are picked up in the order of their creation, as soon as less than half of this number is pending.
+ * Failed entries are retried until they are delivered, with a backoff of at most one hour; only updates which jira
+ * rejects permanently (e.g. with a 4xx status code) are dropped.
+ * <p>
+ * State changes are delayed for {@link #AGGREGATION_WINDOW} milliseconds. The issue tracker renders the comment of the state change template
+ * directly after the state change of a changeset, on the same thread. Only this comment is attached to the state
+ * change and both are sent to jira within a single request, so a comment of a concurrent push for the same issue is
+ * never paired with the wrong state change. If the state change fails, the attached comment is queued as an entry of
+ * its own, so that it is not lost with the state change.
+ * <p>
+ * Entries which are throttled by jira or rejected by an open circuit breaker are postponed without counting as a
+ * failed attempt.
+ */
+@Singleton
+public class JiraOutbox {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JiraOutbox.class);
+
+  private static final String STORE_NAME = "jira-outbox";
+  private static final int LANES = Math.max(4, Runtime.getRuntime().availableProcessors());
+  private static final int LANE_CAPACITY = 1000;
+
+  static final long BACKPRESSURE_DELAY = TimeUnit.SECONDS.toMillis(1);
+  private static final long MAXIMUM_BACKPRESSURE_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+  static final int MAXIMUM_ENTRIES = 10_000;
+
+  /** delay after the next attempt of an older entry for the same issue */
+  static final long ORDERING_DELAY = TimeUnit.SECONDS.toMillis(1);
+
+  private static final long INITIAL_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+  private static final long MAXIMUM_BACKOFF = TimeUnit.HOURS.toMillis(1);
+
+  /** delay of state changes, so that the following comment can be attached */
+  static final long AGGREGATION_WINDOW = TimeUnit.SECONDS.toMillis(10);
+
+  private final DataStore<OutboxEntry> store;
+  private final OutboxDelivery delivery;
+  private final OutboxLanes lanes;
+  private final Clock clock;
+
+  /** guards the store and the order of the pending entries */
+  private final Object lock = new Object();
+
+  /** state change which was queued last by the current thread and could take the following comment */
+  private final ThreadLocal<String> openStateChange = new ThreadLocal<>();
+
+  /** ids of the pending entries in the order of their creation, the key is build from repository id and issue key */
+  private final Map<String, Deque<String>> pendingEntries = new HashMap<>();
+
+  /** number of ids in {@link #pendingEntries} */
+  private int pendingCount;
+
+  /** number of stored entries which are not yet tracked in {@link #pendingEntries}, because the outbox was full */
+  private int spilledCount;
+
+  private ScheduledExecutorService executor;
+
+  @Inject
+  public JiraOutbox(DataStoreFactory storeFactory, OutboxDelivery delivery, MeterRegistry meterRegistry) {
+    this(storeFactory, delivery, new OutboxLanes(LANES, LANE_CAPACITY, meterRegistry), Clock.systemUTC());
+  }
+
+  JiraOutbox(DataStoreFactory storeFactory, OutboxDelivery delivery, OutboxLanes lanes, Clock clock) {
+    this.store = storeFactory.withType(OutboxEntry.class).withName(STORE_NAME).build();
+    this.delivery = delivery;
+    this.lanes = lanes;
+    this.clock = clock;
+  }
+
+  public void comment(Repository repository, String issueKey, String content) {
+    long now = clock.millis();
+    String aggregationKey = repository.getId() + "/" + issueKey;
+    String stateChangeId = openStateChange.get();
+    openStateChange.remove();
+    synchronized (lock) {
+      if (stateChangeId != null) {
+        OutboxEntry stateChange = store.get(stateChangeId);
+        if (stateChange != null && aggregationKey.equals(aggregationKey(stateChange)) && stateChange.attachComment(content)) {
+          LOG.debug("attach comment for issue {} to state change {}", issueKey, stateChangeId);
+          store.put(stateChangeId, stateChange);
+          return;
+        }
+      }
+      enqueue(new OutboxEntry(OutboxEntry.Type.COMMENT, repository.getId(), issueKey, content, now));
+    }
+  }
+
+  public void changeState(Repository repository, String issueKey, String keyWord) {
+    long now = clock.millis();
+    synchronized (lock) {
+      openStateChange.set(enqueue(
+        new OutboxEntry(OutboxEntry.Type.STATE_CHANGE, repository.getId(), issueKey, keyWord, now, now + AGGREGATION_WINDOW)
+      ));
+    }
+  }
+
+  /**
+   * Stores and schedules the entry. If the outbox is full, or older entries are still waiting in the store, the entry
+   * is only stored and scheduled later by {@link #refill()}.
+   *
+   * @return id of the entry
+   */
+  private String enqueue(OutboxEntry entry) {
+    String id = store.put(entry);
+    if (spilledCount > 0 || pendingCount >= MAXIMUM_ENTRIES) {
+      LOG.warn("jira outbox is full, keep {} for issue {} in the store until jira catches up", entry.getType(), entry.getIssueKey());
+      spilledCount++;
+      return id;
+    }
+    LOG.debug("queued {} for issue {} as {}", entry.getType(), entry.getIssueKey(), id);
+    track(id, entry);
+    schedule(id, entry);
+    return id;
+  }
+
+  private void track(String id, OutboxEntry entry) {
+    pendingEntries.computeIfAbsent(aggregationKey(entry), key -> new ArrayDeque<>()).add(id);
+    pendingCount++;
+  }
+
+  /**
+   * Tracks and schedules the oldest entries, which were only written to the store, because the outbox was full.
+   */
+  private void refill() {
+    Set<String> tracked = new HashSet<>();
+    pendingEntries.values().forEach(tracked::addAll);
+    List<Map.Entry<String, OutboxEntry>> spilled = store.getAll()
+      .entrySet()
+      .stream()
+      .filter(e -> !tracked.contains(e.getKey()))
+      .sorted(Comparator.comparingLong(e -> e.getValue().getCreated()))
+      .collect(Collectors.toList());
+    int count = Math.min(spilled.size(), MAXIMUM_ENTRIES - pendingCount);
+    LOG.info("schedule {} of {} jira updates, which were kept in the store", count, spilled.size());
+    for (Map.Entry<String, OutboxEntry> e : spilled.subList(0, count)) {
+      track(e.getKey(), e.getValue());
+      schedule(e.getKey(), e.getValue());
+    }
+    spilledCount = spilled.size() - count;
+  }
+
+  void start() {
+    start(Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("JiraOutbox-timer").setDaemon(true).build()
+    ));
+  }
+
+  void start(ScheduledExecutorService executorService) {
+    Map<String, OutboxEntry> pending;
+    // same lock order as process and enqueue
+    synchronized (lock) {
+      synchronized (this) {
+        if (executor != null) {
+          return;
+        }
+        executor = executorService;
+        lanes.start();
+      }
+      Map<String, OutboxEntry> stored = store.getAll();
+      LOG.info("recover {} pending jira updates", stored.size());
+      pendingEntries.clear();
+      pendingCount = 0;
+      pending = new LinkedHashMap<>();
+      stored.entrySet()
+        .stream()
+        .sorted(Comparator.comparingLong(e -> e.getValue().getCreated()))
+        .limit(MAXIMUM_ENTRIES)
+        .forEach(e -> {
+          track(e.getKey(), e.getValue());
+          pending.put(e.getKey(), e.getValue());
+        });
+      spilledCount = stored.size() - pending.size();
+    }
+    pending.forEach(this::schedule);
+  }
+
+  synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+      lanes.stop();
+    }
+  }
+
+  private synchronized void schedule(String id, OutboxEntry entry) {
+    schedule(id, entry.getIssueKey(), Math.max(0, entry.getNextAttempt() - clock.millis()));
+  }
+
+  private void schedule(String id, String issueKey, long delay) {
+    schedule(id, issueKey, delay, 0);
+  }
+
+  private synchronized void schedule(String id, String issueKey, long delay, int rejections) {
+    if (executor != null) {
+      executor.schedule(() -> dispatch(id, issueKey, rejections), delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void dispatch(String id, String issueKey, int rejections) {
+    if (!lanes.submit(issueKey, () -> process(id))) {
+      long delay = Math.min(BACKPRESSURE_DELAY << Math.min(rejections, 16), MAXIMUM_BACKPRESSURE_DELAY);
+      LOG.debug("lane for issue {} is full, dispatch {} again in {}ms", issueKey, id, delay);
+      schedule(id, issueKey, delay, rejections + 1);
+    }
+  }
+
+  void process(String id) {
+    OutboxEntry entry;
+    synchronized (lock) {
+      entry = store.get(id);
+      if (entry == null) {
+        return;
+      }
+      if (entry.getNextAttempt() > clock.millis()) {
+        // the entry was postponed, e.g. to wait for the comment of a state change
+        schedule(id, entry);
+        return;
+      }
+      OutboxEntry predecessor = predecessor(id, entry);
+      if (predecessor != null) {
+        LOG.debug("{} for issue {} waits for an older update of the issue", entry.getType(), entry.getIssueKey());
+        entry.postpone(Math.max(clock.millis(), predecessor.getNextAttempt()) + ORDERING_DELAY);
+        store.put(id, entry);
+        schedule(id, entry);
+        return;
+      }
+    }
+    try {
+      delivery.deliver(entry);
+      remove(id, entry);
+    } catch (JiraRateLimitException ex) {
+      LOG.info("jira throttled {} for issue {}, retry in {}ms", entry.getType(), entry.getIssueKey(), ex.getRetryAfter());
+      entry.postpone(clock.millis() + ex.getRetryAfter());
+      store.put(id, entry);
+      schedule(id, entry);
+    } catch (JiraUnavailableException ex) {
+      LOG.debug("jira is unavailable, retry {} for issue {} in {}ms", entry.getType(), entry.getIssueKey(), ex.getRetryAfter());
+      entry.postpone(clock.millis() + ex.getRetryAfter());
+      store.put(id, entry);
+      schedule(id, entry);
+    } catch (IOException ex) {
+      detachComment(id, entry);
+      if (isPermanent(ex)) {
+        LOG.warn("dropping {} for issue {}, because jira rejected the update", entry.getType(), entry.getIssueKey(), ex);
+        remove(id, entry);
+      } else {
+        retry(id, entry, ex);
+      }
+    } catch (RuntimeException ex) {
+      detachComment(id, entry);
+      retry(id, entry, ex);
+    }
+  }
+
+  /**
+   * Queues the comment of a failed state change as an entry of its own, e.g. if the transition could not be found.
+   */
+  private void detachComment(String id, OutboxEntry entry) {
+    String comment = entry.detachComment();
+    if (comment != null) {
+      LOG.info("state change {} for issue {} failed, queue its comment separately", id, entry.getIssueKey());
+      long now = clock.millis();
+      synchronized (lock) {
+        store.put(id, entry);
+        enqueue(new OutboxEntry(OutboxEntry.Type.COMMENT, entry.getRepositoryId(), entry.getIssueKey(), comment, now));
+      }
+    }
+  }
+
+  /**
+   * Returns the oldest pending entry of the same issue and repository, if it was created before the given entry and
+   * has not failed yet. Entries which are no longer stored are removed from the order on the way.
+   */
+  private OutboxEntry predecessor(String id, OutboxEntry entry) {
+    Deque<String> pending = pendingEntries.get(aggregationKey(entry));
+    if (pending == null) {
+      return null;
+    }
+    Iterator<String> ids = pending.iterator();
+    while (ids.hasNext()) {
+      String predecessorId = ids.next();
+      if (id.equals(predecessorId)) {
+        return null;
+      }
+      OutboxEntry predecessor = store.get(predecessorId);
+      if (predecessor == null) {
+        ids.remove();
+        pendingCount--;
+      } else if (predecessor.getAttempts() == 0) {
+        return predecessor;
+      }
+    }
+    return null;
+  }
+
+  private void remove(String id, OutboxEntry entry) {
+    synchronized (lock) {
+      store.remove(id);
+      String aggregationKey = aggregationKey(entry);
+      Deque<String> pending = pendingEntries.get(aggregationKey);
+      if (pending != null) {
+        if (pending.remove(id)) {
+          pendingCount--;
+        }
+        if (pending.isEmpty()) {
+          pendingEntries.remove(aggregationKey);
+        }
+      }
+      if (spilledCount > 0 && pendingCount <= MAXIMUM_ENTRIES / 2) {
+        refill();
+      }
+    }
+  }
+
+  private static String aggregationKey(OutboxEntry entry) {
+    return entry.getRepositoryId() + "/" + entry.getIssueKey();
+  }
+
+  private void retry(String id, OutboxEntry entry, Exception ex) {
+    long backoff = backoff(entry.getAttempts());
+    LOG.warn("failed to deliver {} for issue {}, retry in {} seconds", entry.getType(), entry.getIssueKey(), backoff / 1000, ex);
+    entry.failed(clock.millis() + backoff);
+    store.put(id, entry);
+    schedule(id, entry);
+  }
+
+  private long backoff(int attempts) {
+    if (attempts >= 20) {
+      return MAXIMUM_BACKOFF;
+    }
+    return Math.min(INITIAL_BACKOFF << attempts, MAXIMUM_BACKOFF);
+  }
+
+  private boolean isPermanent(IOException ex) {
+    if (ex instanceof JiraException) {
+      int status = ((JiraException) ex).getStatus();
+      return status == 0 || (status >= 400 && status < 500 && status != 408 && status != 429);
+    }
+    return false;
+  }
+}
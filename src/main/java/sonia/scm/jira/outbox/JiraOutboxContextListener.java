@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import sonia.scm.plugin.Extension;
+
+/**
+ * Starts the workers of the {@link JiraOutbox} and stops them on shutdown.
+ */
+@Extension
+public class JiraOutboxContextListener implements ServletContextListener {
+
+  private final JiraOutbox outbox;
+
+  @Inject
+  public JiraOutboxContextListener(JiraOutbox outbox) {
+    this.outbox = outbox;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    outbox.start();
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    outbox.stop();
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.repository.Repository;
+
+/**
+ * {@link Commentator} which queues the comments in the {@link JiraOutbox}.
+ */
+public class OutboxCommentator implements Commentator {
+
+  private final JiraOutbox outbox;
+  private final Repository repository;
+
+  public OutboxCommentator(JiraOutbox outbox, Repository repository) {
+    this.outbox = outbox;
+    this.repository = repository;
+  }
+
+  @Override
+  public void comment(String issueKey, String content) {
+    outbox.comment(repository, issueKey, content);
+  }
+}
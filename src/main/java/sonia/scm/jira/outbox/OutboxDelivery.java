@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.jira.JiraCommentator;
+import sonia.scm.jira.JiraStateChanger;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.web.security.AdministrationContext;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers entries of the {@link JiraOutbox} with the current jira configuration of their repository.
+ */
+public class OutboxDelivery {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OutboxDelivery.class);
+
+  private final RepositoryManager repositoryManager;
+  private final AdministrationContext administrationContext;
+  private final JiraConfigurationResolver resolver;
+  private final RestApiFactory restApiFactory;
+  private final Counter avoidedTransitionLookups;
+
+  @Inject
+  public OutboxDelivery(RepositoryManager repositoryManager,
+                        AdministrationContext administrationContext,
+                        JiraConfigurationResolver resolver,
+                        RestApiFactory restApiFactory,
+                        MeterRegistry meterRegistry) {
+    this.repositoryManager = repositoryManager;
+    this.administrationContext = administrationContext;
+    this.resolver = resolver;
+    this.restApiFactory = restApiFactory;
+    this.avoidedTransitionLookups = JiraStateChanger.avoidedTransitionLookups(meterRegistry);
+  }
+
+  void deliver(OutboxEntry entry) throws IOException {
+    Optional<JiraConfiguration> configuration = findRepository(entry.getRepositoryId())
+      .flatMap(resolver::resolve)
+      .filter(JiraConfiguration::isUpdateIssues);
+
+    if (!configuration.isPresent()) {
+      LOG.info("skip {} for issue {}, because the repository or its jira configuration is gone", entry.getType(), entry.getIssueKey());
+      return;
+    }
+
+    RestApi restApi = restApiFactory.create(configuration.get());
+    if (entry.getType() == OutboxEntry.Type.STATE_CHANGE) {
+      JiraStateChanger stateChanger = new JiraStateChanger(restApi, configuration.get(), avoidedTransitionLookups);
+      if (entry.getComment() != null) {
+        stateChanger.changeState(entry.getIssueKey(), entry.getContent(), entry.getComment());
+      } else {
+        stateChanger.changeState(entry.getIssueKey(), entry.getContent());
+      }
+    } else {
+      new JiraCommentator(restApi, configuration.get())
+        .comment(entry.getIssueKey(), entry.getContent());
+    }
+  }
+
+  private Optional<Repository> findRepository(String repositoryId) {
+    AtomicReference<Repository> repository = new AtomicReference<>();
+    administrationContext.runAsAdmin(() -> repository.set(repositoryManager.get(repositoryId)));
+    return Optional.ofNullable(repository.get());
+  }
+}
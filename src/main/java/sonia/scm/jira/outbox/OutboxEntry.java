@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * A pending update of a jira issue, which is stored in the {@link JiraOutbox} until it was delivered.
+ */
+@Getter
+@NoArgsConstructor
+@XmlRootElement(name = "jira-outbox-entry")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class OutboxEntry {
+
+  public enum Type {
+    COMMENT, STATE_CHANGE
+  }
+
+  private Type type;
+
+  @XmlElement(name = "repository-id")
+  private String repositoryId;
+
+  @XmlElement(name = "issue-key")
+  private String issueKey;
+
+  /** body of the comment or key word of the state change */
+  private String content;
+
+  /** comment which is added together with the state change */
+  private String comment;
+
+  private long created;
+
+  private int attempts;
+
+  @XmlElement(name = "next-attempt")
+  private long nextAttempt;
+
+  OutboxEntry(Type type, String repositoryId, String issueKey, String content, long created) {
+    this(type, repositoryId, issueKey, content, created, created);
+  }
+
+  OutboxEntry(Type type, String repositoryId, String issueKey, String content, long created, long nextAttempt) {
+    this.type = type;
+    this.repositoryId = repositoryId;
+    this.issueKey = issueKey;
+    this.content = content;
+    this.created = created;
+    this.nextAttempt = nextAttempt;
+  }
+
+  /**
+   * Attaches a comment to a state change, so that both are sent within a single request. This is only possible if
+   * the entry was not delivered yet and has no comment.
+   */
+  boolean attachComment(String comment) {
+    if (type != Type.STATE_CHANGE || attempts > 0 || this.comment != null) {
+      return false;
+    }
+    this.comment = comment;
+    return true;
+  }
+
+  /**
+   * Removes the comment from a state change and returns it, or {@code null} if no comment was attached.
+   */
+  String detachComment() {
+    String detached = comment;
+    this.comment = null;
+    return detached;
+  }
+
+  void postpone(long nextAttempt) {
+    this.nextAttempt = nextAttempt;
+  }
+
+  void failed(long nextAttempt) {
+    this.attempts++;
+    this.nextAttempt = nextAttempt;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed number of ordered worker lanes. Each lane is processed by a single thread, tasks are assigned to a lane by the
+ * hash of their partition key. Tasks with the same key are therefore executed one after another in submission order,
+ * while tasks with different keys are spread over all lanes.
+ * <p>
+ * The queue of each lane is bounded. If a lane is full, {@link #submit(String, Runnable)} rejects the task and the
+ * caller has to try again later.
+ */
+class OutboxLanes {
+
+  private final int capacity;
+  private final AtomicReferenceArray<ThreadPoolExecutor> lanes;
+  private final Timer waitTime;
+  private final Counter rejected;
+
+  OutboxLanes(int count, int capacity, MeterRegistry meterRegistry) {
+    this.capacity = capacity;
+    this.lanes = new AtomicReferenceArray<>(count);
+    this.waitTime = Timer.builder("scm.jira.outbox.lane.wait")
+      .description("Time jira updates wait in a lane of the outbox until they are processed")
+      .register(meterRegistry);
+    this.rejected = Counter.builder("scm.jira.outbox.lane.rejected")
+      .description("Number of jira updates which were rejected, because their lane was full")
+      .register(meterRegistry);
+    for (int i = 0; i < count; i++) {
+      int lane = i;
+      Gauge.builder("scm.jira.outbox.lane.depth", () -> depth(lane))
+        .description("Number of jira updates waiting in a lane of the outbox")
+        .tag("lane", String.valueOf(lane))
+        .register(meterRegistry);
+    }
+  }
+
+  synchronized void start() {
+    for (int i = 0; i < lanes.length(); i++) {
+      if (lanes.get(i) == null) {
+        lanes.set(i, new ThreadPoolExecutor(
+          1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(capacity),
+          new ThreadFactoryBuilder().setNameFormat("JiraOutbox-lane-" + i).setDaemon(true).build()
+        ));
+      }
+    }
+  }
+
+  synchronized void stop() {
+    for (int i = 0; i < lanes.length(); i++) {
+      ThreadPoolExecutor lane = lanes.getAndSet(i, null);
+      if (lane != null) {
+        lane.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * Queues the task in the lane of the partition key.
+   *
+   * @return {@code false} if the lane is full or the lanes are not started
+   */
+  boolean submit(String partitionKey, Runnable task) {
+    ThreadPoolExecutor lane = lanes.get(lane(partitionKey));
+    if (lane == null) {
+      return false;
+    }
+    long queued = System.nanoTime();
+    try {
+      lane.execute(() -> {
+        waitTime.record(System.nanoTime() - queued, TimeUnit.NANOSECONDS);
+        task.run();
+      });
+      return true;
+    } catch (RejectedExecutionException ex) {
+      rejected.increment();
+      return false;
+    }
+  }
+
+  int lane(String partitionKey) {
+    return Math.floorMod(partitionKey.hashCode(), lanes.length());
+  }
+
+  private int depth(int lane) {
+    ThreadPoolExecutor executor = lanes.get(lane);
+    return executor != null ? executor.getQueue().size() : 0;
+  }
+}
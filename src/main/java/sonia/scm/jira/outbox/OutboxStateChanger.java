@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import sonia.scm.issuetracker.spi.StateChanger;
+import sonia.scm.jira.JiraStateChanger;
+import sonia.scm.repository.Repository;
+
+/**
+ * {@link StateChanger} which queues the state changes in the {@link JiraOutbox}. Only the locally mapped key words
+ * are used to detect the state changes, so that the hook does not have to wait for Jira. The transition is resolved
+ * when the outbox delivers the state change.
+ */
+public class OutboxStateChanger implements StateChanger {
+
+  private final JiraOutbox outbox;
+  private final Repository repository;
+  private final JiraStateChanger stateChanger;
+
+  public OutboxStateChanger(JiraOutbox outbox, Repository repository, JiraStateChanger stateChanger) {
+    this.outbox = outbox;
+    this.repository = repository;
+    this.stateChanger = stateChanger;
+  }
+
+  @Override
+  public void changeState(String issueKey, String keyWord) {
+    outbox.changeState(repository, issueKey, keyWord);
+  }
+
+  @Override
+  public Iterable<String> getKeyWords(String issueKey) {
+    return stateChanger.getMappedKeyWords();
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForCommits() {
+    return stateChanger.isStateChangeActivatedForCommits();
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.project;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Project keys of a jira instance, which were fetched by the {@link ProjectKeySync}.
+ */
+@Getter
+@NoArgsConstructor
+@XmlRootElement(name = "jira-project-keys")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ProjectKeyList {
+
+  private String url;
+
+  @XmlElement(name = "key")
+  private List<String> keys = new ArrayList<>();
+
+  @XmlElement(name = "last-sync")
+  private long lastSync;
+
+  ProjectKeyList(String url, List<String> keys, long lastSync) {
+    this.url = url;
+    this.keys = keys;
+    this.lastSync = lastSync;
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.project;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.rest.JiraCredentials;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Synchronizes the project keys of jira instances, which are configured with
+ * {@link JiraConfiguration#isSyncProjectKeys()}. The keys are stored locally and used as filter for issue keys instead
+ * of the manually maintained filter, so that only keys of existing projects trigger requests to jira.
+ * <p>
+ * The synchronization runs in the background: the current keys are returned immediately and an outdated list is
+ * refreshed every {@link #SYNC_INTERVAL} milliseconds. The resulting filter only changes if the projects of jira have
+ * changed, so the filters compiled by the {@link sonia.scm.jira.IssueKeyMatcherRegistry} are reused until then.
+ * <p>
+ * The visible projects depend on the permissions of the jira user, so the keys are synchronized for each combination
+ * of jira url and credentials (see {@link JiraCredentials}).
+ */
+@Singleton
+public class ProjectKeySync {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProjectKeySync.class);
+
+  private static final String STORE_NAME = "jira-project-keys";
+
+  static final long SYNC_INTERVAL = TimeUnit.MINUTES.toMillis(15);
+
+  private final DataStore<ProjectKeyList> store;
+  private final RestApiFactory restApiFactory;
+  private final ExecutorService executor;
+  private final Clock clock;
+
+  /** filters of the jira instances, the key is the id of jira url and credentials */
+  private final Map<String, SyncedFilter> filters = new ConcurrentHashMap<>();
+  private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+  @Inject
+  public ProjectKeySync(DataStoreFactory storeFactory, RestApiFactory restApiFactory) {
+    this(storeFactory, restApiFactory, Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("JiraProjectKeySync-%d").setDaemon(true).build()
+    ), Clock.systemUTC());
+  }
+
+  ProjectKeySync(DataStoreFactory storeFactory, RestApiFactory restApiFactory, ExecutorService executor, Clock clock) {
+    this.store = storeFactory.withType(ProjectKeyList.class).withName(STORE_NAME).build();
+    this.restApiFactory = restApiFactory;
+    this.executor = executor;
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the filter for issue keys of the given configuration. If the synchronization is enabled, the filter is the
+   * comma separated list of the synchronized project keys. Until the first synchronization was successful, the
+   * configured filter is used.
+   *
+   * @param configuration jira configuration
+   *
+   * @return comma separated list of project keys or an empty string to match every project
+   */
+  public String getFilter(JiraConfiguration configuration) {
+    if (!configuration.isSyncProjectKeys() || Strings.isNullOrEmpty(configuration.getUrl())) {
+      return configuration.getFilter();
+    }
+    SyncedFilter filter = filters.computeIfAbsent(id(configuration), this::load);
+    if (filter.nextSync <= clock.millis()) {
+      scheduleSync(configuration);
+    }
+    return filter.value != null ? filter.value : configuration.getFilter();
+  }
+
+  private SyncedFilter load(String id) {
+    ProjectKeyList projectKeys = store.get(id);
+    if (projectKeys == null || projectKeys.getKeys().isEmpty()) {
+      return new SyncedFilter(null, 0);
+    }
+    return new SyncedFilter(String.join(",", projectKeys.getKeys()), projectKeys.getLastSync() + SYNC_INTERVAL);
+  }
+
+  private void scheduleSync(JiraConfiguration configuration) {
+    if (running.add(id(configuration))) {
+      executor.execute(() -> sync(configuration));
+    }
+  }
+
+  void sync(JiraConfiguration configuration) {
+    String url = configuration.getUrl();
+    String id = id(configuration);
+    long now = clock.millis();
+    try {
+      SortedSet<String> projectKeys = new TreeSet<>(restApiFactory.create(configuration).getProjectKeys());
+      if (projectKeys.isEmpty()) {
+        // an empty filter would match every project, which is the opposite of what we want
+        LOG.warn("jira at {} returned no projects, check the permissions of the configured user", url);
+        keepFilter(id, now);
+        return;
+      }
+      String value = String.join(",", projectKeys);
+      SyncedFilter current = filters.get(id);
+      if (current == null || !value.equals(current.value)) {
+        LOG.info("project keys of jira at {} have changed, found {} projects", url, projectKeys.size());
+      }
+      store.put(id, new ProjectKeyList(url, new ArrayList<>(projectKeys), now));
+      filters.put(id, new SyncedFilter(value, now + SYNC_INTERVAL));
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("failed to synchronize project keys of jira at {}", url, ex);
+      keepFilter(id, now);
+    } finally {
+      running.remove(id);
+    }
+  }
+
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  private void keepFilter(String id, long now) {
+    filters.compute(id, (i, current) -> new SyncedFilter(current != null ? current.value : null, now + SYNC_INTERVAL));
+  }
+
+  private static String id(JiraConfiguration configuration) {
+    String key = configuration.getUrl() + "\n" + JiraCredentials.identity(configuration);
+    return Hashing.sha256().hashString(key, StandardCharsets.UTF_8).toString();
+  }
+
+  private static class SyncedFilter {
+
+    /** comma separated project keys or {@code null} if no keys were synchronized yet */
+    private final String value;
+    private final long nextSync;
+
+    private SyncedFilter(String value, long nextSync) {
+      this.value = value;
+      this.nextSync = nextSync;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.project;
+
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import sonia.scm.plugin.Extension;
+
+/**
+ * Stops the synchronization of the {@link ProjectKeySync} on shutdown.
+ */
+@Extension
+public class ProjectKeySyncContextListener implements ServletContextListener {
+
+  private final ProjectKeySync projectKeySync;
+
+  @Inject
+  public ProjectKeySyncContextListener(ProjectKeySync projectKeySync) {
+    this.projectKeySync = projectKeySync;
+  }
+
+  @Override
+  public void contextInitialized(ServletContextEvent sce) {
+    // the synchronization is started on demand
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent sce) {
+    projectKeySync.stop();
+  }
+}
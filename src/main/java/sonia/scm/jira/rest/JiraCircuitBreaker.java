@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Circuit breaker for the requests to a jira instance. Each jira url gets its own breaker. After
+ * {@link #FAILURE_THRESHOLD} consecutive failures the breaker opens and all further requests fail immediately with a
+ * {@link JiraUnavailableException}, instead of waiting for connect or read timeouts. After {@link #OPEN_DURATION}
+ * the breaker lets a single probe request pass (half open). If the probe succeeds, the breaker closes again, otherwise
+ * it stays open for another period.
+ * <p>
+ * Network errors and responses with a 5xx status code count as failures. Requests which were rejected by the
+ * {@link JiraRateLimiter} and requests which were throttled by jira itself are neither a failure nor a success.
+ */
+@Slf4j
+@Singleton
+public class JiraCircuitBreaker {
+
+  static final int FAILURE_THRESHOLD = 5;
+  static final long OPEN_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+  private final Clock clock;
+  private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+  @Inject
+  public JiraCircuitBreaker() {
+    this(Clock.systemUTC());
+  }
+
+  JiraCircuitBreaker(Clock clock) {
+    this.clock = clock;
+  }
+
+  <T> T execute(String url, JiraRateLimiter.Call<T> call, Predicate<T> isFailure) throws IOException {
+    return execute(url, call, isFailure, result -> false);
+  }
+
+  <T> T execute(String url, JiraRateLimiter.Call<T> call, Predicate<T> isFailure, Predicate<T> isNeutral) throws IOException {
+    Circuit circuit = circuits.computeIfAbsent(url, u -> new Circuit());
+    circuit.acquire(url);
+    T result;
+    try {
+      result = call.execute();
+    } catch (JiraRateLimitException ex) {
+      circuit.release();
+      throw ex;
+    } catch (IOException | RuntimeException ex) {
+      circuit.failure(url);
+      throw ex;
+    }
+    if (isNeutral.test(result)) {
+      circuit.release();
+    } else if (isFailure.test(result)) {
+      circuit.failure(url);
+    } else {
+      circuit.success(url);
+    }
+    return result;
+  }
+
+  /**
+   * Returns {@code true} if the breaker for the given jira url is open, so that requests would fail immediately.
+   *
+   * @param url jira url
+   *
+   * @return {@code true} if requests would fail
+   */
+  public boolean isOpen(String url) {
+    Circuit circuit = circuits.get(url);
+    return circuit != null && circuit.isOpen();
+  }
+
+  /**
+   * Returns the state of all breakers, which have seen at least one request.
+   *
+   * @return state of all breakers
+   */
+  public List<Status> getStatus() {
+    return circuits.entrySet()
+      .stream()
+      .map(e -> e.getValue().status(e.getKey()))
+      .sorted(Comparator.comparing(Status::getUrl))
+      .collect(Collectors.toList());
+  }
+
+  public enum State {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  @Value
+  public static class Status {
+    String url;
+    State state;
+    int failures;
+    Instant openedAt;
+  }
+
+  private class Circuit {
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean probing;
+
+    private synchronized void acquire(String url) throws JiraUnavailableException {
+      if (state == State.OPEN) {
+        long remaining = openedAt + OPEN_DURATION - clock.millis();
+        if (remaining > 0) {
+          throw new JiraUnavailableException("circuit breaker for " + url + " is open", remaining);
+        }
+        log.debug("circuit breaker for {} is half open, send probe request", url);
+        state = State.HALF_OPEN;
+        probing = false;
+      }
+      if (state == State.HALF_OPEN) {
+        if (probing) {
+          throw new JiraUnavailableException("circuit breaker for " + url + " waits for probe request", OPEN_DURATION);
+        }
+        probing = true;
+      }
+    }
+
+    private synchronized void release() {
+      probing = false;
+    }
+
+    private synchronized void success(String url) {
+      if (state != State.CLOSED) {
+        log.info("jira at {} is available again, close circuit breaker", url);
+      }
+      state = State.CLOSED;
+      failures = 0;
+      probing = false;
+    }
+
+    private synchronized void failure(String url) {
+      failures++;
+      probing = false;
+      if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= FAILURE_THRESHOLD)) {
+        log.warn("jira at {} failed {} times in a row, open circuit breaker for {}ms", url, failures, OPEN_DURATION);
+        state = State.OPEN;
+        openedAt = clock.millis();
+      }
+    }
+
+    private synchronized boolean isOpen() {
+      return state == State.OPEN && openedAt + OPEN_DURATION > clock.millis();
+    }
+
+    private synchronized Status status(String url) {
+      Instant opened = state == State.CLOSED ? null : Instant.ofEpochMilli(openedAt);
+      return new Status(url, state, failures, opened);
+    }
+  }
+}
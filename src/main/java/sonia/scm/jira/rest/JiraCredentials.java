@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import sonia.scm.jira.config.JiraConfiguration;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Identifies the jira user of a configuration. Results of jira which depend on the permissions of the user must be
+ * cached with this identity, so that configurations with other credentials for the same jira do not share them.
+ */
+public final class JiraCredentials {
+
+  private JiraCredentials() {
+  }
+
+  /**
+   * Returns the identity of the jira user of the configuration. Access tokens are hashed, so that the identity can be
+   * kept in memory or used as store id without revealing the token.
+   *
+   * @param configuration jira configuration
+   *
+   * @return identity of the jira user
+   */
+  public static String identity(JiraConfiguration configuration) {
+    if (configuration.isUseAccessToken()) {
+      String token = Strings.nullToEmpty(configuration.getAccessToken());
+      return "token:" + Hashing.sha256().hashString(token, StandardCharsets.UTF_8);
+    }
+    return "user:" + Strings.nullToEmpty(configuration.getUsername());
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableListMultimap;
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.inject.Singleton;
+import lombok.ToString;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import sonia.scm.config.ScmConfiguration;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.config.JiraGlobalConfiguration;
+import sonia.scm.trace.Span;
+import sonia.scm.trace.Tracer;
+import sonia.scm.util.GlobUtil;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.Authenticator;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Http client for the requests to jira. In contrast to the {@link sonia.scm.net.ahc.AdvancedHttpClient}, which opens a
+ * new connection for every request, the client keeps a pool of persistent connections for each jira instance, so that
+ * consecutive requests reuse the connection and the tls session. The number of connections in the pool is bounded by
+ * the number of concurrent requests, if they are limited by the {@link JiraRateLimiter}.
+ * <p>
+ * The client uses the ssl context with the trust store of SCM-Manager, the proxy settings of SCM-Manager and the
+ * connect and read timeouts of the {@link JiraGlobalConfiguration}. If one of these settings changes, a new pool is
+ * created.
+ * <p>
+ * Note that the jdk client does not answer basic authentication challenges of a proxy for https tunnels, unless basic
+ * is removed from the system property {@value #TUNNELING_DISABLED_SCHEMES}.
+ */
+@Slf4j
+@Singleton
+public class JiraHttpClient {
+
+  private static final String SPAN_KIND = "Jira";
+  private static final String CONTENT_TYPE_JSON = "application/json";
+  private static final String TUNNELING_DISABLED_SCHEMES = "jdk.http.auth.tunneling.disabledSchemes";
+
+  private final JiraConfigurationStore configurationStore;
+  private final ScmConfiguration scmConfiguration;
+  private final Provider<SSLContext> sslContextProvider;
+  private final Tracer tracer;
+  private final ObjectMapper objectMapper;
+
+  private final Map<ClientKey, HttpClient> clients = new ConcurrentHashMap<>();
+
+  @Inject
+  public JiraHttpClient(JiraConfigurationStore configurationStore, ScmConfiguration scmConfiguration,
+                        Provider<SSLContext> sslContextProvider, Tracer tracer) {
+    this.configurationStore = configurationStore;
+    this.scmConfiguration = scmConfiguration;
+    this.sslContextProvider = sslContextProvider;
+    this.tracer = tracer;
+    this.objectMapper = new ObjectMapper()
+      .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+      .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+      .configure(SerializationFeature.WRITE_ENUMS_USING_TO_STRING, true)
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+  }
+
+  JiraHttpResponse get(String url, String authorization) throws IOException {
+    return send(request(url, authorization).GET().build());
+  }
+
+  JiraHttpResponse post(String url, String authorization, Object content) throws IOException {
+    byte[] body = objectMapper.writeValueAsBytes(content);
+    return send(request(url, authorization)
+      .header("Content-Type", CONTENT_TYPE_JSON)
+      .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+      .build());
+  }
+
+  JiraHttpResponse put(String url, String authorization, Object content) throws IOException {
+    byte[] body = objectMapper.writeValueAsBytes(content);
+    return send(request(url, authorization)
+      .header("Content-Type", CONTENT_TYPE_JSON)
+      .PUT(HttpRequest.BodyPublishers.ofByteArray(body))
+      .build());
+  }
+
+  private HttpRequest.Builder request(String url, String authorization) {
+    JiraGlobalConfiguration configuration = configurationStore.getGlobalConfiguration();
+    return HttpRequest.newBuilder(URI.create(url))
+      .timeout(Duration.ofSeconds(Math.max(1, configuration.getReadTimeout())))
+      .header("Accept", CONTENT_TYPE_JSON)
+      .header("Authorization", authorization);
+  }
+
+  private JiraHttpResponse send(HttpRequest request) throws IOException {
+    try (Span span = tracer.span(SPAN_KIND)) {
+      span.label("url", request.uri().toString());
+      span.label("method", request.method());
+      try {
+        HttpResponse<byte[]> response = client(request.uri()).send(request, HttpResponse.BodyHandlers.ofByteArray());
+        JiraHttpResponse jiraResponse = new JiraHttpResponse(
+          objectMapper, response.statusCode(), headers(response.headers()), response.body()
+        );
+        span.label("status", String.valueOf(jiraResponse.getStatus()));
+        if (!jiraResponse.isSuccessful()) {
+          span.failed();
+        }
+        return jiraResponse;
+      } catch (IOException ex) {
+        span.label("exception", ex.getClass().getName());
+        span.label("message", Strings.nullToEmpty(ex.getMessage()));
+        span.failed();
+        throw ex;
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        span.failed();
+        throw new InterruptedIOException("interrupted while waiting for the response of " + request.uri());
+      }
+    }
+  }
+
+  private HttpClient client(URI uri) {
+    JiraGlobalConfiguration configuration = configurationStore.getGlobalConfiguration();
+    boolean proxy = isProxyEnabled(uri);
+    ClientKey key = new ClientKey(
+      uri.getScheme() + "://" + uri.getAuthority(),
+      Math.max(1, configuration.getConnectTimeout()),
+      proxy ? scmConfiguration.getProxyServer() + ":" + scmConfiguration.getProxyPort() : null,
+      proxy ? scmConfiguration.getProxyUser() : null,
+      proxy ? scmConfiguration.getProxyPassword() : null
+    );
+    HttpClient client = clients.get(key);
+    if (client == null) {
+      synchronized (clients) {
+        client = clients.get(key);
+        if (client == null) {
+          // settings have changed, drop the pool with the old settings
+          clients.keySet().removeIf(existing -> existing.getOrigin().equals(key.getOrigin()));
+          log.debug("create http client for {}", key.getOrigin());
+          client = createClient(key, proxy);
+          clients.put(key, client);
+        }
+      }
+    }
+    return client;
+  }
+
+  private HttpClient createClient(ClientKey key, boolean proxy) {
+    HttpClient.Builder builder = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_1_1)
+      .connectTimeout(Duration.ofSeconds(key.getConnectTimeout()))
+      .followRedirects(HttpClient.Redirect.NORMAL)
+      .sslContext(sslContextProvider.get());
+    if (proxy) {
+      builder.proxy(ProxySelector.of(new InetSocketAddress(scmConfiguration.getProxyServer(), scmConfiguration.getProxyPort())));
+      if (!Strings.isNullOrEmpty(key.getProxyUser())) {
+        builder.authenticator(new ProxyAuthenticator(key.getProxyUser(), key.getProxyPassword()));
+        if (key.getOrigin().startsWith("https:") && isBasicTunnelingDisabled()) {
+          log.warn(
+            "proxy authentication for {} requires basic authentication for https tunnels, remove Basic from the system property {}",
+            key.getOrigin(), TUNNELING_DISABLED_SCHEMES
+          );
+        }
+      }
+    } else {
+      builder.proxy(HttpClient.Builder.NO_PROXY);
+    }
+    return builder.build();
+  }
+
+  private static boolean isBasicTunnelingDisabled() {
+    // the jdk disables basic for tunnels, if the property is not set
+    String disabledSchemes = System.getProperty(TUNNELING_DISABLED_SCHEMES, "Basic");
+    for (String scheme : disabledSchemes.split(",")) {
+      if ("basic".equalsIgnoreCase(scheme.trim())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isProxyEnabled(URI uri) {
+    if (!scmConfiguration.isEnableProxy()) {
+      return false;
+    }
+    for (String exclude : scmConfiguration.getProxyExcludes()) {
+      if (GlobUtil.matches(exclude, uri.getHost())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private ImmutableListMultimap<String, String> headers(HttpHeaders headers) {
+    ImmutableListMultimap.Builder<String, String> builder = ImmutableListMultimap.builder();
+    for (Map.Entry<String, List<String>> entry : headers.map().entrySet()) {
+      builder.putAll(entry.getKey(), entry.getValue());
+    }
+    return builder.build();
+  }
+
+  @Value
+  private static class ClientKey {
+    String origin;
+    int connectTimeout;
+    String proxy;
+    String proxyUser;
+    @ToString.Exclude
+    String proxyPassword;
+  }
+
+  private static class ProxyAuthenticator extends Authenticator {
+
+    private final String user;
+    private final String password;
+
+    private ProxyAuthenticator(String user, String password) {
+      this.user = user;
+      this.password = Strings.nullToEmpty(password);
+    }
+
+    @Override
+    protected PasswordAuthentication getPasswordAuthentication() {
+      if (getRequestorType() == RequestorType.PROXY) {
+        return new PasswordAuthentication(user, password.toCharArray());
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Multimap;
+
+import java.io.IOException;
+
+/**
+ * Response of a request, which was sent with the {@link JiraHttpClient}.
+ */
+final class JiraHttpResponse {
+
+  private final ObjectMapper objectMapper;
+  private final int status;
+  private final Multimap<String, String> headers;
+  private final byte[] content;
+
+  JiraHttpResponse(ObjectMapper objectMapper, int status, Multimap<String, String> headers, byte[] content) {
+    this.objectMapper = objectMapper;
+    this.status = status;
+    this.headers = headers;
+    this.content = content;
+  }
+
+  int getStatus() {
+    return status;
+  }
+
+  Multimap<String, String> getHeaders() {
+    return headers;
+  }
+
+  boolean isSuccessful() {
+    return status >= 200 && status < 300;
+  }
+
+  <T> T contentFromJson(Class<T> type) throws IOException {
+    return objectMapper.readValue(content, type);
+  }
+}
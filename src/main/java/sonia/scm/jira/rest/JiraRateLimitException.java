@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import sonia.scm.jira.JiraException;
+
+/**
+ * Thrown if jira throttles the requests and the request could not be sent in time. The request should be repeated
+ * after the returned delay.
+ */
+public class JiraRateLimitException extends JiraException {
+
+  private static final long serialVersionUID = -2907281393207530137L;
+
+  private final long retryAfter;
+
+  public JiraRateLimitException(String message, long retryAfter) {
+    super(message, 429);
+    this.retryAfter = retryAfter;
+  }
+
+  /**
+   * Returns the delay in milliseconds after which the request should be repeated.
+   *
+   * @return delay in milliseconds
+   */
+  public long getRetryAfter() {
+    return retryAfter;
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.config.JiraGlobalConfiguration;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the requests to a jira instance. Each jira url gets its own limit of concurrent requests and its own token
+ * bucket for the request rate; both limits are disabled by default. If jira throttles the requests, all requests to the
+ * instance are paused until the announced retry delay has passed.
+ */
+@Slf4j
+@Singleton
+public class JiraRateLimiter {
+
+  /** maximum time a request waits for a permit or for the end of a throttle period */
+  static final long MAXIMUM_WAIT = TimeUnit.SECONDS.toMillis(10);
+
+  private final JiraConfigurationStore configurationStore;
+  private final MeterRegistry meterRegistry;
+  private final Clock clock;
+
+  private final Map<String, HostLimit> limits = new ConcurrentHashMap<>();
+  private final Map<String, Counter> throttleCounters = new ConcurrentHashMap<>();
+
+  @Inject
+  public JiraRateLimiter(JiraConfigurationStore configurationStore, MeterRegistry meterRegistry) {
+    this(configurationStore, meterRegistry, Clock.systemUTC());
+  }
+
+  JiraRateLimiter(JiraConfigurationStore configurationStore, MeterRegistry meterRegistry, Clock clock) {
+    this.configurationStore = configurationStore;
+    this.meterRegistry = meterRegistry;
+    this.clock = clock;
+  }
+
+  <T> T execute(String url, Call<T> call) throws IOException {
+    HostLimit limit = limit(url);
+    limit.awaitThrottle(url);
+    if (limit.permits == null) {
+      return limit.execute(url, call);
+    }
+    try {
+      if (!limit.permits.tryAcquire(MAXIMUM_WAIT, TimeUnit.MILLISECONDS)) {
+        throw new JiraRateLimitException("too many concurrent requests to " + url, RateLimitHeaders.DEFAULT_RETRY_AFTER);
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for request permit");
+    }
+    try {
+      return limit.execute(url, call);
+    } finally {
+      limit.permits.release();
+    }
+  }
+
+  /**
+   * Pauses all requests to the given jira instance for the given delay.
+   */
+  void throttle(String url, long delay) {
+    log.info("jira at {} throttles requests, pause requests for {}ms", url, delay);
+    limit(url).throttle(clock.millis() + delay);
+    throttleCounters.computeIfAbsent(url, u -> Counter.builder("scm.jira.ratelimit.throttled")
+      .description("Number of throttled requests to jira")
+      .tag("host", host(u))
+      .register(meterRegistry)
+    ).increment();
+  }
+
+  private HostLimit limit(String url) {
+    JiraGlobalConfiguration configuration = configurationStore.getGlobalConfiguration();
+    int permits = Math.max(0, configuration.getMaxConcurrentRequests());
+    double rate = configuration.getMaxRequestsPerSecond() > 0 ? configuration.getMaxRequestsPerSecond() : Double.MAX_VALUE;
+
+    HostLimit limit = limits.get(url);
+    if (limit == null || !limit.hasSettings(permits, rate)) {
+      limit = limits.compute(url, (u, existing) -> {
+        if (existing != null && existing.hasSettings(permits, rate)) {
+          return existing;
+        }
+        if (existing == null) {
+          Gauge.builder("scm.jira.ratelimit.permits", () -> availablePermits(u))
+            .description("Available permits for concurrent requests to jira")
+            .tag("host", host(u))
+            .register(meterRegistry);
+        }
+        return new HostLimit(permits, rate, existing != null ? existing.blockedUntil : 0);
+      });
+    }
+    return limit;
+  }
+
+  private double availablePermits(String url) {
+    HostLimit limit = limits.get(url);
+    if (limit == null || limit.permits == null) {
+      return Double.NaN;
+    }
+    return limit.permits.availablePermits();
+  }
+
+  static String host(String url) {
+    try {
+      String host = URI.create(url).getHost();
+      return host != null ? host : url;
+    } catch (IllegalArgumentException ex) {
+      return url;
+    }
+  }
+
+  @FunctionalInterface
+  interface Call<T> {
+    T execute() throws IOException;
+  }
+
+  private class HostLimit {
+
+    private final int maxPermits;
+    private final double maxRate;
+    /** permits for concurrent requests or {@code null}, if the number of concurrent requests is not limited */
+    private final Semaphore permits;
+    private final RateLimiter rate;
+    private volatile long blockedUntil;
+
+    private HostLimit(int maxPermits, double maxRate, long blockedUntil) {
+      this.maxPermits = maxPermits;
+      this.maxRate = maxRate;
+      this.permits = maxPermits > 0 ? new Semaphore(maxPermits) : null;
+      this.rate = RateLimiter.create(maxRate);
+      this.blockedUntil = blockedUntil;
+    }
+
+    private boolean hasSettings(int maxPermits, double maxRate) {
+      return this.maxPermits == maxPermits && this.maxRate == maxRate;
+    }
+
+    private <T> T execute(String url, Call<T> call) throws IOException {
+      if (!rate.tryAcquire(MAXIMUM_WAIT, TimeUnit.MILLISECONDS)) {
+        throw new JiraRateLimitException("request rate to " + url + " exceeded", RateLimitHeaders.DEFAULT_RETRY_AFTER);
+      }
+      return call.execute();
+    }
+
+    private void throttle(long until) {
+      if (until > blockedUntil) {
+        blockedUntil = until;
+      }
+    }
+
+    private void awaitThrottle(String url) throws IOException {
+      long delay = blockedUntil - clock.millis();
+      if (delay <= 0) {
+        return;
+      }
+      if (delay > MAXIMUM_WAIT) {
+        throw new JiraRateLimitException("requests to " + url + " are throttled", delay);
+      }
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("interrupted while waiting for throttled jira");
+      }
+    }
+  }
+}
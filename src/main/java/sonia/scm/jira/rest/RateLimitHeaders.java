@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.google.common.collect.Multimap;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the rate limit headers of jira responses. Jira Data Center sends {@code Retry-After} and
+ * {@code X-RateLimit-*} headers, Jira Cloud sends {@code Retry-After} and {@code X-RateLimit-Reset}.
+ */
+final class RateLimitHeaders {
+
+  static final long DEFAULT_RETRY_AFTER = TimeUnit.SECONDS.toMillis(5);
+
+  private static final String RETRY_AFTER = "Retry-After";
+  private static final String REMAINING = "X-RateLimit-Remaining";
+  private static final String RESET = "X-RateLimit-Reset";
+  private static final String INTERVAL = "X-RateLimit-Interval-Seconds";
+
+  private RateLimitHeaders() {
+  }
+
+  /**
+   * Returns the delay in milliseconds after which a throttled request could be repeated.
+   */
+  static long retryAfter(Multimap<String, String> headers, Instant now) {
+    return retryAfterHeader(headers, now)
+      .orElseGet(() -> resetHeader(headers, now)
+        .orElseGet(() -> intervalHeader(headers)
+          .orElse(DEFAULT_RETRY_AFTER)));
+  }
+
+  /**
+   * Returns {@code true} if the response announces, that no further requests are allowed in the current interval.
+   */
+  static boolean isExhausted(Multimap<String, String> headers) {
+    return header(headers, REMAINING)
+      .map(value -> {
+        try {
+          return Double.parseDouble(value) < 1;
+        } catch (NumberFormatException ex) {
+          return false;
+        }
+      })
+      .orElse(false);
+  }
+
+  private static Optional<Long> retryAfterHeader(Multimap<String, String> headers, Instant now) {
+    return header(headers, RETRY_AFTER).map(value -> {
+      try {
+        return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+      } catch (NumberFormatException ex) {
+        return until(now, parseDate(value, DateTimeFormatter.RFC_1123_DATE_TIME));
+      }
+    }).filter(delay -> delay >= 0);
+  }
+
+  private static Optional<Long> resetHeader(Multimap<String, String> headers, Instant now) {
+    return header(headers, RESET)
+      .map(value -> until(now, parseDate(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME)))
+      .filter(delay -> delay >= 0);
+  }
+
+  private static Optional<Long> intervalHeader(Multimap<String, String> headers) {
+    return header(headers, INTERVAL).map(value -> {
+      try {
+        return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+      } catch (NumberFormatException ex) {
+        return -1L;
+      }
+    }).filter(delay -> delay >= 0);
+  }
+
+  private static Instant parseDate(String value, DateTimeFormatter formatter) {
+    try {
+      if (formatter == DateTimeFormatter.RFC_1123_DATE_TIME) {
+        return ZonedDateTime.parse(value, formatter).toInstant();
+      }
+      return OffsetDateTime.parse(value, formatter).toInstant();
+    } catch (DateTimeParseException ex) {
+      return null;
+    }
+  }
+
+  private static long until(Instant now, Instant instant) {
+    if (instant == null) {
+      return -1L;
+    }
+    return Math.max(0, Duration.between(now, instant).toMillis());
+  }
+
+  private static Optional<String> header(Multimap<String, String> headers, String name) {
+    for (Map.Entry<String, String> entry : headers.entries()) {
+      if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null) {
+        return Optional.of(entry.getValue().trim());
+      }
+    }
+    return Optional.empty();
+  }
+}
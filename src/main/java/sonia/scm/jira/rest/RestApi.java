@@ -16,17 +16,23 @@
 
 package sonia.scm.jira.rest;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang.StringUtils;
 import sonia.scm.jira.JiraException;
 import sonia.scm.jira.config.JiraConfiguration;
-import sonia.scm.net.ahc.AdvancedHttpClient;
-import sonia.scm.net.ahc.AdvancedHttpResponse;
-import sonia.scm.net.ahc.BaseHttpRequest;
 import sonia.scm.util.HttpUtil;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * This class represents an api of a Jira instance.
@@ -34,14 +40,30 @@ import java.util.Collection;
 @Slf4j
 public class RestApi {
 
-  private final AdvancedHttpClient client;
+  /** number of times a throttled request is repeated, before it fails with a {@link JiraRateLimitException} */
+  private static final int MAX_THROTTLE_RETRIES = 2;
+
+  private final JiraHttpClient client;
   private final JiraConfiguration configuration;
+  private final TransitionCache transitionCache;
+  private final JiraRateLimiter rateLimiter;
+  private final JiraCircuitBreaker circuitBreaker;
+  private final MeterRegistry meterRegistry;
   private final String baseUrl;
+  private final String credentials;
+  private final String host;
 
-  public RestApi(AdvancedHttpClient client, JiraConfiguration configuration) {
+  public RestApi(JiraHttpClient client, JiraConfiguration configuration, TransitionCache transitionCache,
+                 JiraRateLimiter rateLimiter, JiraCircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
     this.client = client;
     this.configuration = configuration;
+    this.transitionCache = transitionCache;
+    this.rateLimiter = rateLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.meterRegistry = meterRegistry;
     this.baseUrl = createBaseUrl(configuration);
+    this.credentials = JiraCredentials.identity(configuration);
+    this.host = JiraRateLimiter.host(configuration.getUrl());
   }
 
   /**
@@ -51,11 +73,33 @@ public class RestApi {
    */
   public void addComment(String issueId, RestComment comment) throws IOException {
     log.info("add comment to issue {}", issueId);
-    AdvancedHttpResponse response = authenticate(client.post(commentUrl(issueId))
-      .spanKind("Jira")
-    )
-      .jsonContent(comment)
-      .request();
+    JiraHttpResponse response = request("addComment", () -> client.post(commentUrl(issueId), authorization(), comment));
+
+    if (!response.isSuccessful()) {
+      fail("failed to add comment to %s", issueId, response);
+    } else {
+      log.debug("successfully added comment to issue {}", issueId);
+    }
+  }
+
+  /**
+   * Adds the comment with an edit of the issue, because only the edit allows to suppress the notification of the
+   * watchers. Jira requires the project administration permission to suppress notifications.
+   *
+   * @param issueId     Usually an abbreviation and a number; e.g. <tt>RTT-1</tt>
+   * @param comment     Prepared {@link RestComment} instance.
+   * @param notifyUsers {@code false} to suppress the notification of the watchers
+   * @throws IOException In case of unexpected request failures.
+   */
+  public void addComment(String issueId, RestComment comment, boolean notifyUsers) throws IOException {
+    if (notifyUsers) {
+      addComment(issueId, comment);
+      return;
+    }
+    log.info("add comment to issue {} without notification", issueId);
+    JiraHttpResponse response = request(
+      "addComment", () -> client.put(silentEditUrl(issueId), authorization(), new RestIssueEdit(comment))
+    );
 
     if (!response.isSuccessful()) {
       fail("failed to add comment to %s", issueId, response);
@@ -70,30 +114,45 @@ public class RestApi {
    * @throws IOException In case of unexpected request failures.
    */
   public void changeState(String issueId, String transitionId) throws IOException {
+    changeState(issueId, transitionId, null);
+  }
+
+  /**
+   * Executes the transition and adds the comment to the issue within a single request.
+   *
+   * @param issueId      Usually an abbreviation and a number; e.g. <tt>RTT-1</tt>
+   * @param transitionId <tt>Done</tt>, <tt>in progress</tt>, etc.
+   * @param comment      comment which is added together with the transition or {@code null}
+   * @throws IOException In case of unexpected request failures.
+   */
+  public void changeState(String issueId, String transitionId, @Nullable RestComment comment) throws IOException {
     log.info("attempting to change state of issue {}", issueId);
-    AdvancedHttpResponse response = authenticate(client.post(transitionsUrl(issueId))
-      .spanKind("Jira")
-    )
-      .jsonContent(new RestDoTransition(transitionId))
-      .request();
+    JiraHttpResponse response = request(
+      "changeState", () -> client.post(transitionsUrl(issueId), authorization(), new RestDoTransition(transitionId, comment))
+    );
 
     if (!response.isSuccessful()) {
       fail("failed to change state of issue %s", issueId, response);
     } else {
       log.debug("successfully changed state of issue {} to {}", issueId, transitionId);
+      transitionCache.invalidate(baseUrl, issueId);
     }
   }
 
   /**
+   * Returns the transitions of the issue. The transitions are cached for a short time and concurrent requests for
+   * the same issue are coalesced, see {@link TransitionCache}.
+   *
    * @param issueId Usually an abbreviation and a number; e.g. <tt>RTT-1</tt>
    * @throws IOException In case of unexpected request failures.
    */
   public Collection<RestTransition> getTransitions(String issueId) throws IOException {
+    return transitionCache.get(baseUrl, credentials, issueId, () -> fetchTransitions(issueId));
+  }
+
+  private Collection<RestTransition> fetchTransitions(String issueId) throws IOException {
     log.debug("get transitions for issue {}", issueId);
-    AdvancedHttpResponse response = authenticate(client.get(transitionsUrl(issueId))
-      .spanKind("Jira")
-    )
-      .request();
+    JiraHttpResponse response = request("getTransitions", () -> client.get(transitionsUrl(issueId), authorization()));
 
     if (!response.isSuccessful()) {
       fail("failed to retrieve transitions from %s", issueId, response);
@@ -103,13 +162,90 @@ public class RestApi {
       .getTransitions();
   }
 
-  private <R extends BaseHttpRequest<?>> R authenticate(R request) {
+  /**
+   * Returns the keys of all projects, which are visible for the configured user.
+   *
+   * @throws IOException In case of unexpected request failures.
+   */
+  public List<String> getProjectKeys() throws IOException {
+    log.debug("get projects of {}", configuration.getUrl());
+    JiraHttpResponse response = request("getProjects", () -> client.get(projectsUrl(), authorization()));
+
+    if (!response.isSuccessful()) {
+      throw new JiraException("failed to retrieve projects, return code " + response.getStatus(), response.getStatus());
+    }
+
+    return Arrays.stream(response.contentFromJson(RestProject[].class))
+      .map(RestProject::getKey)
+      .filter(Objects::nonNull)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Sends the request within the limits of the {@link JiraRateLimiter}. If jira throttles the request, all requests to
+   * the jira instance are paused for the announced delay and the request is repeated. If the delay is too long, the
+   * request fails with a {@link JiraRateLimitException}, so that the caller is able to reschedule it.
+   * If the {@link JiraCircuitBreaker} of the jira instance is open, the request fails immediately with a
+   * {@link JiraUnavailableException}.
+   */
+  private JiraHttpResponse request(String operation, Request request) throws IOException {
+    String url = configuration.getUrl();
+    for (int attempt = 0; ; attempt++) {
+      JiraHttpResponse response = circuitBreaker.execute(
+        url,
+        () -> rateLimiter.execute(url, () -> send(operation, request)),
+        r -> r.getStatus() >= 500,
+        r -> r.getStatus() == 429
+      );
+      boolean throttled = response.getStatus() == 429;
+      if (throttled || RateLimitHeaders.isExhausted(response.getHeaders())) {
+        long retryAfter = RateLimitHeaders.retryAfter(response.getHeaders(), Instant.now());
+        rateLimiter.throttle(url, retryAfter);
+        if (throttled && attempt >= MAX_THROTTLE_RETRIES) {
+          throw new JiraRateLimitException("jira at " + url + " throttled the request", retryAfter);
+        } else if (throttled) {
+          continue;
+        }
+      }
+      return response;
+    }
+  }
+
+  /**
+   * Sends the request and records its duration with the timer {@code scm.jira.requests}, which is tagged with the jira
+   * host, the operation and the status class of the response.
+   */
+  private JiraHttpResponse send(String operation, Request request) throws IOException {
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String status = "IO_ERROR";
+    try {
+      JiraHttpResponse response = request.send();
+      status = (response.getStatus() / 100) + "xx";
+      return response;
+    } finally {
+      sample.stop(Timer.builder("scm.jira.requests")
+        .description("Duration of requests to jira")
+        .tag("host", host)
+        .tag("operation", operation)
+        .tag("status", status)
+        .publishPercentileHistogram()
+        .register(meterRegistry));
+    }
+  }
+
+  @FunctionalInterface
+  private interface Request {
+    JiraHttpResponse send() throws IOException;
+  }
+
+  private String authorization() {
     if (configuration.isUseAccessToken()) {
       log.trace("Using access token for Jira connection");
-      return (R) request.header("Authorization", "Bearer " + configuration.getAccessToken());
+      return "Bearer " + configuration.getAccessToken();
     } else {
       log.trace("Using basic auth for Jira connection");
-      return (R) request.basicAuth(configuration.getUsername(), configuration.getPassword());
+      String credentials = configuration.getUsername() + ":" + configuration.getPassword();
+      return "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
     }
   }
 
@@ -117,15 +253,23 @@ public class RestApi {
     return HttpUtil.concatenate(configuration.getUrl(), "rest", "api", "2", "issue");
   }
 
+  private String projectsUrl() {
+    return HttpUtil.concatenate(configuration.getUrl(), "rest", "api", "2", "project");
+  }
+
   private String commentUrl(String issueId) {
     return HttpUtil.concatenate(baseUrl, issueId, "comment");
   }
 
+  private String silentEditUrl(String issueId) {
+    return HttpUtil.concatenate(baseUrl, issueId) + "?notifyUsers=false";
+  }
+
   private String transitionsUrl(String issueId) {
     return HttpUtil.concatenate(baseUrl, issueId, "transitions");
   }
 
-  private void fail(String message, String issueId, AdvancedHttpResponse response) throws JiraException {
-    throw new JiraException(String.format(message, issueId) + ", return code " + response.getStatus());
+  private void fail(String message, String issueId, JiraHttpResponse response) throws JiraException {
+    throw new JiraException(String.format(message, issueId) + ", return code " + response.getStatus(), response.getStatus());
   }
 }
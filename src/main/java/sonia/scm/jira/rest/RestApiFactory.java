@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.inject.Inject;
+import sonia.scm.jira.config.JiraConfiguration;
+
+/**
+ * Creates {@link RestApi} instances for a jira configuration.
+ */
+public class RestApiFactory {
+
+  private final JiraHttpClient httpClient;
+  private final TransitionCache transitionCache;
+  private final JiraRateLimiter rateLimiter;
+  private final JiraCircuitBreaker circuitBreaker;
+  private final MeterRegistry meterRegistry;
+
+  @Inject
+  public RestApiFactory(JiraHttpClient httpClient, TransitionCache transitionCache,
+                        JiraRateLimiter rateLimiter, JiraCircuitBreaker circuitBreaker, MeterRegistry meterRegistry) {
+    this.httpClient = httpClient;
+    this.transitionCache = transitionCache;
+    this.rateLimiter = rateLimiter;
+    this.circuitBreaker = circuitBreaker;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public RestApi create(JiraConfiguration configuration) {
+    return new RestApi(httpClient, configuration, transitionCache, rateLimiter, circuitBreaker, meterRegistry);
+  }
+}
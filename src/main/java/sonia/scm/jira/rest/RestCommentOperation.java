@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+
+/**
+ * Operation of a {@link RestIssueUpdate}, which adds a comment to the issue.
+ */
+@Getter
+@XmlRootElement(name = "operation")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RestCommentOperation {
+
+  private RestComment add;
+
+  RestCommentOperation() {
+  }
+
+  public RestCommentOperation(RestComment add) {
+    this.add = add;
+  }
+}
@@ -21,16 +21,30 @@ import jakarta.xml.bind.annotation.XmlAccessorType;
 import jakarta.xml.bind.annotation.XmlRootElement;
 import lombok.Getter;
 
+import javax.annotation.Nullable;
+
+/**
+ * Request body to execute a transition. The transition may carry a comment, which is added in the same request.
+ */
 @Getter
 @XmlRootElement
 @XmlAccessorType(XmlAccessType.FIELD)
 public class RestDoTransition {
   private RestTransition transition;
 
+  private RestIssueUpdate update;
+
   RestDoTransition() {
   }
 
   public RestDoTransition(String id) {
+    this(id, null);
+  }
+
+  public RestDoTransition(String id, @Nullable RestComment comment) {
     this.transition = new RestTransition(id);
+    if (comment != null) {
+      this.update = new RestIssueUpdate(comment);
+    }
   }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Update operations, which are applied together with a transition. Currently only adding a comment is supported.
+ */
+@Getter
+@XmlRootElement(name = "update")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RestIssueUpdate {
+
+  private List<RestCommentOperation> comment;
+
+  RestIssueUpdate() {
+  }
+
+  public RestIssueUpdate(RestComment comment) {
+    this.comment = Collections.singletonList(new RestCommentOperation(comment));
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import jakarta.inject.Singleton;
+import lombok.Value;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short living cache for the transitions of jira issues. The cache is shared between all {@link RestApi} instances
+ * and is keyed by the jira url, the jira user (see {@link JiraCredentials}) and the issue key, because the available
+ * transitions depend on the permissions of the user. Concurrent lookups of the same issue are coalesced, so that only
+ * one request is sent to jira.
+ * <p>
+ * Each issue with a running lookup has a generation, which is incremented by {@link #invalidate(String, String)}. If
+ * the generation changed while the transitions were loaded, the loaded transitions are removed from the cache again,
+ * so that a lookup which started before a state change does not cache the transitions of the old state.
+ */
+@Singleton
+public class TransitionCache {
+
+  private static final long EXPIRATION_SECONDS = 30;
+  private static final long MAXIMUM_SIZE = 1000;
+
+  private final Cache<Key, Collection<RestTransition>> cache = CacheBuilder.newBuilder()
+    .expireAfterWrite(EXPIRATION_SECONDS, TimeUnit.SECONDS)
+    .maximumSize(MAXIMUM_SIZE)
+    .build();
+
+  /** generations of the issues, which are referenced as long as a lookup of the issue is running */
+  private final Cache<Issue, AtomicLong> generations = CacheBuilder.newBuilder()
+    .weakValues()
+    .build();
+
+  Collection<RestTransition> get(String url, String credentials, String issueId, Loader loader) throws IOException {
+    AtomicLong generation = generations.asMap().computeIfAbsent(new Issue(url, issueId), issue -> new AtomicLong());
+    long expectedGeneration = generation.get();
+    Key key = new Key(url, credentials, issueId);
+    try {
+      Collection<RestTransition> transitions = cache.get(
+        key, () -> Collections.unmodifiableList(new ArrayList<>(loader.load()))
+      );
+      if (generation.get() != expectedGeneration) {
+        // the issue was invalidated during the lookup, the transitions may belong to the old state
+        cache.asMap().remove(key, transitions);
+      }
+      return transitions;
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw new IOException("failed to load transitions of issue " + issueId, ex.getCause());
+    }
+  }
+
+  /**
+   * Removes the transitions of the issue for all users, because the state of the issue has changed.
+   */
+  void invalidate(String url, String issueId) {
+    AtomicLong generation = generations.getIfPresent(new Issue(url, issueId));
+    if (generation != null) {
+      generation.incrementAndGet();
+    }
+    cache.asMap().keySet().removeIf(key -> key.getUrl().equals(url) && key.getIssueId().equals(issueId));
+  }
+
+  @FunctionalInterface
+  interface Loader {
+    Collection<RestTransition> load() throws IOException;
+  }
+
+  @Value
+  private static class Issue {
+    String url;
+    String issueId;
+  }
+
+  @Value
+  private static class Key {
+    String url;
+    String credentials;
+    String issueId;
+  }
+}
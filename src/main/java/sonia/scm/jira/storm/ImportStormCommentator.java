@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.fingerprint.CommentFingerprints;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * {@link Commentator} which skips the references of changesets, which were pushed with too many other changesets,
+ * see {@link ImportStormGuard}.
+ */
+public class ImportStormCommentator implements Commentator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ImportStormCommentator.class);
+
+  private final ImportStormGuard guard;
+  private final Repository repository;
+  private final Commentator commentator;
+
+  public ImportStormCommentator(ImportStormGuard guard, Repository repository, Commentator commentator) {
+    this.guard = guard;
+    this.repository = repository;
+    this.commentator = commentator;
+  }
+
+  @Override
+  public void comment(String issueKey, String content) throws IOException {
+    Optional<String> changesetId = CommentFingerprints.changesetId(content);
+    if (changesetId.isPresent() && guard.isSkipped(repository.getId(), changesetId.get())) {
+      LOG.trace("skip comment for issue {}, because changeset {} exceeds the import storm threshold", issueKey, changesetId.get());
+      return;
+    }
+    commentator.comment(issueKey, content);
+  }
+}
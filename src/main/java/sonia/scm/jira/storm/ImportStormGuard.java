@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import com.github.legman.Subscribe;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.jira.backfill.JiraBackfill;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.config.JiraGlobalConfiguration;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.PreReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryHookEvent;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protects jira and the hooks from pushes with a huge number of changesets, e.g. the first push of an existing
+ * repository or a repository import. If a push has more changesets than the configured threshold, the live updates of
+ * its changesets are skipped and either dropped or handed over to the {@link JiraBackfill}. Every skipped push is
+ * recorded in the {@link ImportStormLog}.
+ * <p>
+ * The guard depends on seeing the changesets before the issue tracker comments their references:
+ * <ul>
+ *   <li>The changesets of a push are recorded from the pre receive event, before the push is accepted. The issue
+ *   tracker comments the references from the post receive event, so it always runs later.</li>
+ *   <li>Imports and mirror updates only fire the post receive event. The guard handles it synchronously on the posting
+ *   thread, while the issue tracker handles it asynchronously. References which the issue tracker processes before the
+ *   guard has counted the changesets are still commented.</li>
+ * </ul>
+ * Both hook subscribers must therefore stay synchronous. The changesets of a push are kept in a bloom filter, so that
+ * the memory does not depend on the size of the import.
+ * <p>
+ * State changes can not be assigned to a changeset, so they are skipped for the whole repository, as long as the
+ * references of a skipped push are still processed.
+ */
+@Extension
+@EagerSingleton
+public class ImportStormGuard {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ImportStormGuard.class);
+
+  private static final int MAXIMUM_REPOSITORIES = 1000;
+  private static final long RETENTION = TimeUnit.HOURS.toMillis(1);
+  private static final double FALSE_POSITIVE_PROBABILITY = 1e-6;
+
+  /** state changes are skipped until no reference of a skipped push was seen for this time */
+  static final long IDLE_TIME = TimeUnit.MINUTES.toMillis(1);
+
+  private final JiraConfigurationResolver resolver;
+  private final JiraConfigurationStore configurationStore;
+  private final JiraBackfill backfill;
+  private final ImportStormLog stormLog;
+  private final Clock clock;
+
+  /** skipped pushes, the key is the id of the repository */
+  private final Cache<String, Storm> storms = CacheBuilder.newBuilder()
+    .maximumSize(MAXIMUM_REPOSITORIES)
+    .expireAfterWrite(RETENTION, TimeUnit.MILLISECONDS)
+    .build();
+
+  @Inject
+  public ImportStormGuard(JiraConfigurationResolver resolver, JiraConfigurationStore configurationStore,
+                          JiraBackfill backfill, ImportStormLog stormLog) {
+    this(resolver, configurationStore, backfill, stormLog, Clock.systemUTC());
+  }
+
+  ImportStormGuard(JiraConfigurationResolver resolver, JiraConfigurationStore configurationStore,
+                   JiraBackfill backfill, ImportStormLog stormLog, Clock clock) {
+    this.resolver = resolver;
+    this.configurationStore = configurationStore;
+    this.backfill = backfill;
+    this.stormLog = stormLog;
+    this.clock = clock;
+  }
+
+  @Subscribe(async = false)
+  public void onPreReceive(PreReceiveRepositoryHookEvent event) {
+    record(event);
+  }
+
+  @Subscribe(async = false)
+  public void onPostReceive(PostReceiveRepositoryHookEvent event) {
+    int changesets = record(event);
+    if (changesets > 0) {
+      handOver(event.getRepository(), changesets);
+    }
+  }
+
+  /**
+   * Returns {@code true} if the changeset was pushed with too many other changesets, so that its references must not
+   * be commented.
+   */
+  public boolean isSkipped(String repositoryId, String changesetId) {
+    Storm storm = storms.getIfPresent(repositoryId);
+    if (storm != null && storm.contains(changesetId)) {
+      storm.lastActivity = clock.millis();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Returns {@code true} if the references of a skipped push of the repository are still processed.
+   */
+  public boolean isActive(String repositoryId) {
+    Storm storm = storms.getIfPresent(repositoryId);
+    return storm != null && clock.millis() - storm.lastActivity < IDLE_TIME;
+  }
+
+  /**
+   * Records the changesets of the push, if it exceeds the threshold.
+   *
+   * @return number of changesets of a push above the threshold, otherwise 0
+   */
+  private int record(RepositoryHookEvent event) {
+    Repository repository = event.getRepository();
+    int threshold = configurationStore.getGlobalConfiguration().getImportStormThreshold();
+    HookContext context = event.getContext();
+    if (threshold <= 0 || !context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER) || !isUpdatingIssues(repository)) {
+      return 0;
+    }
+
+    Iterable<Changeset> changesets = context.getChangesetProvider().getChangesets();
+    int count = 0;
+    String first = null;
+    for (Changeset changeset : changesets) {
+      if (first == null) {
+        first = changeset.getId();
+      }
+      count++;
+    }
+    if (count <= threshold) {
+      return 0;
+    }
+
+    Storm storm = storms.getIfPresent(repository.getId());
+    if (storm != null && storm.contains(first)) {
+      // already recorded before the push was accepted
+      return count;
+    }
+    BloomFilter<CharSequence> filter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), count, FALSE_POSITIVE_PROBABILITY);
+    for (Changeset changeset : changesets) {
+      filter.put(changeset.getId());
+    }
+    long now = clock.millis();
+    storms.asMap().compute(repository.getId(), (id, existing) -> (existing != null ? existing : new Storm()).add(filter, now));
+    LOG.debug("recorded {} changesets of a push to {}, which exceeds the threshold of {}", count, repository, threshold);
+    return count;
+  }
+
+  private boolean isUpdatingIssues(Repository repository) {
+    return resolver.resolve(repository).map(JiraConfiguration::isUpdateIssues).orElse(false);
+  }
+
+  private void handOver(Repository repository, int changesets) {
+    JiraGlobalConfiguration configuration = configurationStore.getGlobalConfiguration();
+    ImportStormLogEntry.Action action = ImportStormLogEntry.Action.DROPPED;
+    if (configuration.isImportStormBackfill()) {
+      // restart, because a resumed backfill would start below the pushed changesets
+      action = backfill.start(repository, true).isPresent()
+        ? ImportStormLogEntry.Action.BACKFILL : ImportStormLogEntry.Action.BACKFILL_RUNNING;
+    }
+    LOG.warn(
+      "push of {} changesets to {} exceeds the threshold of {}, skip live jira updates ({})",
+      changesets, repository, configuration.getImportStormThreshold(), action
+    );
+    stormLog.add(new ImportStormLogEntry(
+      repository.getId(), repository.getNamespace(), repository.getName(), changesets,
+      configuration.getImportStormThreshold(), action, clock.millis()
+    ));
+  }
+
+  private static final class Storm {
+
+    private final List<BloomFilter<CharSequence>> changesets = new CopyOnWriteArrayList<>();
+    private volatile long lastActivity;
+
+    private Storm add(BloomFilter<CharSequence> filter, long now) {
+      changesets.add(filter);
+      lastActivity = now;
+      return this;
+    }
+
+    private boolean contains(String changesetId) {
+      return changesets.stream().anyMatch(filter -> filter.mightContain(changesetId));
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import sonia.scm.store.DataStore;
+import sonia.scm.store.DataStoreFactory;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Log of the pushes, for which the {@link ImportStormGuard} skipped the live jira updates. Only the latest entries are
+ * kept.
+ */
+@Singleton
+public class ImportStormLog {
+
+  private static final String STORE_NAME = "jira-import-storms";
+
+  static final int MAXIMUM_ENTRIES = 100;
+
+  private final DataStore<ImportStormLogEntry> store;
+
+  @Inject
+  public ImportStormLog(DataStoreFactory storeFactory) {
+    this.store = storeFactory.withType(ImportStormLogEntry.class).withName(STORE_NAME).build();
+  }
+
+  synchronized void add(ImportStormLogEntry entry) {
+    store.put(entry.getTime() + "-" + entry.getRepositoryId(), entry);
+    Map<String, ImportStormLogEntry> entries = store.getAll();
+    entries.entrySet()
+      .stream()
+      .sorted(Comparator.comparingLong(e -> -e.getValue().getTime()))
+      .skip(MAXIMUM_ENTRIES)
+      .forEach(e -> store.remove(e.getKey()));
+  }
+
+  /**
+   * Returns the entries of the log, the latest entry first.
+   */
+  public synchronized List<ImportStormLogEntry> getEntries() {
+    return store.getAll()
+      .values()
+      .stream()
+      .sorted(Comparator.comparingLong(ImportStormLogEntry::getTime).reversed())
+      .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entry of the {@link ImportStormLog}, which records a push whose live jira updates were skipped.
+ */
+@Getter
+@NoArgsConstructor
+@XmlRootElement(name = "jira-import-storm")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ImportStormLogEntry {
+
+  public enum Action {
+    /** the updates were dropped */
+    DROPPED,
+    /** the updates were handed over to the backfill */
+    BACKFILL,
+    /** the updates were dropped, because a backfill of the repository was already running */
+    BACKFILL_RUNNING
+  }
+
+  @XmlElement(name = "repository-id")
+  private String repositoryId;
+
+  private String namespace;
+
+  private String name;
+
+  private int changesets;
+
+  private int threshold;
+
+  private Action action;
+
+  private long time;
+
+  ImportStormLogEntry(String repositoryId, String namespace, String name, int changesets, int threshold, Action action, long time) {
+    this.repositoryId = repositoryId;
+    this.namespace = namespace;
+    this.name = name;
+    this.changesets = changesets;
+    this.threshold = threshold;
+    this.action = action;
+    this.time = time;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import sonia.scm.issuetracker.spi.StateChanger;
+import sonia.scm.repository.Repository;
+
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * {@link StateChanger} which skips state changes, while the references of a push with too many changesets are
+ * processed, see {@link ImportStormGuard}. No key words are returned meanwhile, so that the transitions of the
+ * referenced issues are not requested from jira.
+ */
+public class ImportStormStateChanger implements StateChanger {
+
+  private final ImportStormGuard guard;
+  private final Repository repository;
+  private final StateChanger stateChanger;
+
+  public ImportStormStateChanger(ImportStormGuard guard, Repository repository, StateChanger stateChanger) {
+    this.guard = guard;
+    this.repository = repository;
+    this.stateChanger = stateChanger;
+  }
+
+  @Override
+  public void changeState(String issueKey, String keyWord) throws IOException {
+    if (!guard.isActive(repository.getId())) {
+      stateChanger.changeState(issueKey, keyWord);
+    }
+  }
+
+  @Override
+  public Iterable<String> getKeyWords(String issueKey) throws IOException {
+    if (guard.isActive(repository.getId())) {
+      return Collections.emptyList();
+    }
+    return stateChanger.getKeyWords(issueKey);
+  }
+
+  @Override
+  public boolean isStateChangeActivatedForCommits() {
+    return stateChanger.isStateChangeActivatedForCommits();
+  }
+}
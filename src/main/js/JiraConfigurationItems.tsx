@@ -104,6 +104,16 @@ class JiraConfigurationItems extends React.Component<Props, State> {
             onChange={this.valueChangeHandler}
           />
         </div>
+        <div className="column is-full">
+          <Checkbox
+            name="syncProjectKeys"
+            label={t("scm-jira-plugin.form.syncProjectKeys")}
+            helpText={t("scm-jira-plugin.form.syncProjectKeysHelp")}
+            checked={this.state.syncProjectKeys}
+            disabled={readOnly}
+            onChange={this.valueChangeHandler}
+          />
+        </div>
         <div className="column is-full">
           <Checkbox
             name="updateIssues"
@@ -182,6 +192,16 @@ class JiraConfigurationItems extends React.Component<Props, State> {
                 onChange={this.valueChangeHandler}
               />
             </div>
+            <div className="column is-full">
+              <InputField
+                name="referenceBranches"
+                label={t("scm-jira-plugin.form.referenceBranches")}
+                helpText={t("scm-jira-plugin.form.referenceBranchesHelp")}
+                disabled={readOnly || !this.state.updateIssues}
+                value={this.state.referenceBranches}
+                onChange={this.valueChangeHandler}
+              />
+            </div>
             <div className="column is-full">
               <Checkbox
                 name="autoClose"
@@ -202,6 +222,18 @@ class JiraConfigurationItems extends React.Component<Props, State> {
                 onChange={this.valueChangeHandler}
               />
             </div>
+            {this.state.autoClose ? (
+              <div className="column is-full">
+                <Checkbox
+                  name="lazyTransitionLookup"
+                  label={t("scm-jira-plugin.form.lazyTransitionLookup")}
+                  helpText={t("scm-jira-plugin.form.lazyTransitionLookupHelp")}
+                  checked={this.state.lazyTransitionLookup}
+                  disabled={readOnly || !this.state.updateIssues}
+                  onChange={this.valueChangeHandler}
+                />
+              </div>
+            ) : null}
             {this.state.autoClose ? (
               <div className="column is-full is-flex is-flex-direction-column">
                 <AutoCloseWordMapping mappings={this.state.autoCloseWords} onChange={this.autoCloseWordChanged} />
@@ -219,16 +251,93 @@ class JiraConfigurationItems extends React.Component<Props, State> {
     const { t, includeGlobalConfigItem, readOnly } = this.props;
     if (includeGlobalConfigItem) {
       return (
-        <div className="column is-full">
-          <Checkbox
-            name="disableRepositoryConfiguration"
-            label={t("scm-jira-plugin.form.disableRepositoryConfiguration")}
-            helpText={t("scm-jira-plugin.form.disableRepositoryConfigurationHelp")}
-            checked={this.state.disableRepositoryConfiguration}
-            disabled={readOnly}
-            onChange={this.valueChangeHandler}
-          />
-        </div>
+        <>
+          <div className="column is-full">
+            <Checkbox
+              name="disableRepositoryConfiguration"
+              label={t("scm-jira-plugin.form.disableRepositoryConfiguration")}
+              helpText={t("scm-jira-plugin.form.disableRepositoryConfigurationHelp")}
+              checked={this.state.disableRepositoryConfiguration}
+              disabled={readOnly}
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-full">
+            <Checkbox
+              name="asyncDelivery"
+              label={t("scm-jira-plugin.form.asyncDelivery")}
+              helpText={t("scm-jira-plugin.form.asyncDeliveryHelp")}
+              checked={this.state.asyncDelivery}
+              disabled={readOnly}
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-half">
+            <InputField
+              name="maxConcurrentRequests"
+              label={t("scm-jira-plugin.form.maxConcurrentRequests")}
+              helpText={t("scm-jira-plugin.form.maxConcurrentRequestsHelp")}
+              disabled={readOnly}
+              value={this.state.maxConcurrentRequests}
+              type="number"
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-half">
+            <InputField
+              name="maxRequestsPerSecond"
+              label={t("scm-jira-plugin.form.maxRequestsPerSecond")}
+              helpText={t("scm-jira-plugin.form.maxRequestsPerSecondHelp")}
+              disabled={readOnly}
+              value={this.state.maxRequestsPerSecond}
+              type="number"
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-half">
+            <InputField
+              name="importStormThreshold"
+              label={t("scm-jira-plugin.form.importStormThreshold")}
+              helpText={t("scm-jira-plugin.form.importStormThresholdHelp")}
+              disabled={readOnly}
+              value={this.state.importStormThreshold}
+              type="number"
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-half">
+            <Checkbox
+              name="importStormBackfill"
+              label={t("scm-jira-plugin.form.importStormBackfill")}
+              helpText={t("scm-jira-plugin.form.importStormBackfillHelp")}
+              checked={this.state.importStormBackfill}
+              disabled={readOnly}
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-half">
+            <InputField
+              name="connectTimeout"
+              label={t("scm-jira-plugin.form.connectTimeout")}
+              helpText={t("scm-jira-plugin.form.connectTimeoutHelp")}
+              disabled={readOnly}
+              value={this.state.connectTimeout}
+              type="number"
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+          <div className="column is-half">
+            <InputField
+              name="readTimeout"
+              label={t("scm-jira-plugin.form.readTimeout")}
+              helpText={t("scm-jira-plugin.form.readTimeoutHelp")}
+              disabled={readOnly}
+              value={this.state.readTimeout}
+              type="number"
+              onChange={this.valueChangeHandler}
+            />
+          </div>
+        </>
       );
     } else {
       return null;
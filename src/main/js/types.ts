@@ -19,7 +19,9 @@ import { HalRepresentation } from "@scm-manager/ui-types";
 export type JiraConfiguration = HalRepresentation & {
   url: string;
   filter: string;
+  syncProjectKeys: boolean;
   updateIssues: boolean;
+  referenceBranches: string;
   username: string;
   password: string;
   accessToken: string;
@@ -27,8 +29,16 @@ export type JiraConfiguration = HalRepresentation & {
   roleLevel: string;
   autoClose: boolean;
   disableStateChangeByCommit: boolean;
+  lazyTransitionLookup: boolean;
   autoCloseWords: Record<string, string>;
 
   disableRepositoryConfiguration: boolean;
+  asyncDelivery: boolean;
+  maxConcurrentRequests: number;
+  maxRequestsPerSecond: number;
+  importStormThreshold: number;
+  importStormBackfill: boolean;
+  connectTimeout: number;
+  readTimeout: number;
 };
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.jira.config.JiraConfigurationChangedEvent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class IssueKeyMatcherRegistryTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private IssueKeyMatcherRegistry registry;
+
+  @BeforeEach
+  void setUp() {
+    registry = new IssueKeyMatcherRegistry(new MapCacheManager(), meterRegistry);
+  }
+
+  @Test
+  void shouldReturnCachedFilter() {
+    IssueKeyFilter filter = registry.get("SCM,TST");
+
+    assertThat(registry.get(" SCM,TST ")).isSameAs(filter);
+    assertThat(requests("hit")).isEqualTo(1);
+    assertThat(requests("miss")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldTreatNullAsEmptyFilter() {
+    assertThat(registry.get(null)).isSameAs(registry.get(""));
+    assertThat(registry.get(null).getFilter()).isEmpty();
+  }
+
+  @Test
+  void shouldProvideScannerAndPatternForTheSameFilter() {
+    IssueKeyFilter filter = registry.get("SCM");
+
+    assertThat(filter.getScanner().containsKey("fixes SCM-42")).isTrue();
+    assertThat(filter.getPattern().matcher("fixes SCM-42").find()).isTrue();
+    assertThat(filter.getPattern()).isSameAs(filter.getPattern());
+  }
+
+  @Test
+  void shouldClearCacheOnConfigurationChange() {
+    IssueKeyFilter filter = registry.get("SCM");
+
+    registry.onConfigurationChanged(mock(JiraConfigurationChangedEvent.class));
+
+    assertThat(registry.get("SCM")).isNotSameAs(filter);
+    assertThat(meterRegistry.get("scm.jira.matchers.size").gauge().value()).isEqualTo(1);
+  }
+
+  private double requests(String result) {
+    return meterRegistry.get("scm.jira.matchers.requests").tag("result", result).counter().count();
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IssueKeyScannerTest {
+
+  @Test
+  void shouldFindKeysOfAllProjects() {
+    assertThat(scan("", "Fixes SCM-42 and TST-1, see HOG-21.")).containsExactly("SCM-42", "TST-1", "HOG-21");
+  }
+
+  @Test
+  void shouldFindOnlyFilteredKeys() {
+    assertThat(scan("SCM, TST", "OLM-1 TST-21 SMT-3 SCM-42 and OTR-1")).containsExactly("TST-21", "SCM-42");
+  }
+
+  @Test
+  void shouldRequireWordBoundaryBeforeKey() {
+    assertThat(scan("", "aSCM-1 _SCM-2 1SCM-3 (SCM-4) SCM-5SCM-6 SCM-7")).containsExactly("SCM-4", "SCM-5", "SCM-7");
+    assertThat(scan("SCM", "XSCM-1 xSCM-2 -SCM-3")).containsExactly("SCM-3");
+  }
+
+  @Test
+  void shouldTreatUnicodeLettersAndDigitsAsWordCharacters() {
+    assertThat(scan("", "\u00e4ABC-1 \u00e9SCM-2 \u0663SCM-3 a\u0301SCM-4 \u20acSCM-5 \u00abSCM-6\u00bb _\u0301SCM-7")).containsExactly("SCM-5", "SCM-6", "SCM-7");
+    assertThat(scan("ABC", "\u00e4ABC-1 \u00c4ABC-2 \u00b7ABC-3")).containsExactly("ABC-3");
+  }
+
+  @Test
+  void shouldNotRequireWordBoundaryAfterKey() {
+    assertThat(scan("", "SCM-42abc SCM-21_")).containsExactly("SCM-42", "SCM-21");
+  }
+
+  @Test
+  void shouldRequireDigits() {
+    assertThat(scan("", "SCM- SCM-x SCM SCM-")).isEmpty();
+  }
+
+  @Test
+  void shouldMatchLongestPossibleProjectKey() {
+    assertThat(scan("SC,SCM", "SCM-1 SC-2")).containsExactly("SCM-1", "SC-2");
+  }
+
+  @Test
+  void shouldFindKeyAtTheEnd() {
+    assertThat(scan("", "closes SCM-4")).containsExactly("SCM-4");
+  }
+
+  @Test
+  void shouldReturnStartAndEnd() {
+    IssueKeyScanner.KeyMatcher matcher = IssueKeyScanner.create("").matcher("see SCM-42.");
+
+    assertThat(matcher.find()).isTrue();
+    assertThat(matcher.start()).isEqualTo(4);
+    assertThat(matcher.end()).isEqualTo(10);
+    assertThat(matcher.find()).isFalse();
+    assertThrows(IllegalStateException.class, matcher::key);
+  }
+
+  @Test
+  void shouldDetectKeys() {
+    IssueKeyScanner scanner = IssueKeyScanner.create("SCM");
+
+    assertThat(scanner.containsKey("fixes SCM-1")).isTrue();
+    assertThat(scanner.containsKey("fixes TST-1")).isFalse();
+  }
+
+  @Test
+  void shouldFindSameKeysAsPattern() {
+    Random random = new Random(42);
+    String alphabet = "ABCSTMabc019_- \n.";
+    for (String filter : new String[]{"", "SCM", "SCM,TST", "A,AB,ABC,B", "SC, SCM ,S"}) {
+      for (int i = 0; i < 2000; i++) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(40);
+        for (int j = 0; j < length; j++) {
+          text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        assertThat(scan(filter, text)).as("keys of '%s' with filter '%s'", text, filter).isEqualTo(match(filter, text));
+      }
+    }
+  }
+
+  @Test
+  void shouldFindKeysOfFilterWithManyProjects() {
+    StringBuilder filter = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      filter.append("P").append(i).append(',');
+    }
+    assertThat(scan(filter.toString(), "P1-1 P4999-2 P5000-3 P12-4 P-5")).containsExactly("P1-1", "P4999-2", "P12-4");
+  }
+
+  @Test
+  void shouldKeepRegularExpressionsOfFilter() {
+    assertThat(scan("PRJ[A-Z]*", "PRJA-1 OTR-2 PRJ-3")).containsExactly("PRJA-1", "PRJ-3");
+    assertThat(scan("SCM, TST|HOG", "SCM-1 TST-2 HOG-3 OTR-4")).containsExactly("SCM-1", "TST-2", "HOG-3");
+  }
+
+  private List<String> scan(String filter, CharSequence text) {
+    List<String> keys = new ArrayList<>();
+    IssueKeyScanner.KeyMatcher matcher = IssueKeyScanner.create(filter).matcher(text);
+    while (matcher.find()) {
+      keys.add(matcher.key());
+    }
+    return keys;
+  }
+
+  private List<String> match(String filter, CharSequence text) {
+    List<String> keys = new ArrayList<>();
+    Matcher matcher = IssueKeys.createPattern(filter).matcher(text);
+    while (matcher.find()) {
+      keys.add(matcher.group());
+    }
+    return keys;
+  }
+}
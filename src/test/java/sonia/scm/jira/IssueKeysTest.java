@@ -58,6 +58,27 @@ public class IssueKeysTest {
     assertEquals("ASD-42", extract(pattern, "test matcher for ASD-42"));
   }
 
+  /**
+   * Tests {@link IssueKeys#createPattern(java.lang.String)} with project keys which share a prefix.
+   */
+  @Test
+  public void testCreatePatternWithCommonPrefixes() {
+    Pattern pattern = IssueKeys.createPattern("SC,SCM,S");
+    assertEquals("SCM-42", extract(pattern, "test matcher for SCM-42"));
+    assertEquals("SC-42", extract(pattern, "test matcher for SC-42"));
+    assertEquals("S-42", extract(pattern, "test matcher for S-42"));
+  }
+
+  /**
+   * Tests {@link IssueKeys#createPattern(java.lang.String)} with project keys which are regular expressions.
+   */
+  @Test
+  public void testCreatePatternWithRegularExpressions() {
+    Pattern pattern = IssueKeys.createPattern("SCM,PRJ[A-Z]*");
+    assertEquals("PRJA-42", extract(pattern, "test matcher for PRJA-42"));
+    assertEquals("SCM-42", extract(pattern, "test matcher for SCM-42"));
+  }
+
   @Test
   public void testShouldNotFailOnNull() {
     Pattern pattern = IssueKeys.createPattern((String) null);
@@ -18,7 +18,6 @@ package sonia.scm.jira;
 
 import com.google.common.base.Joiner;
 import org.junit.jupiter.api.Test;
-import sonia.scm.jira.config.JiraConfiguration;
 
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,19 +45,18 @@ class JiraIssueMatcherTest {
   private void findMatch(JiraIssueMatcher matcher, String message, String... expected) {
     Pattern p = matcher.getKeyPattern();
     Matcher m = p.matcher(message);
+    IssueKeyScanner.KeyMatcher scanner = matcher.getKeyScanner().matcher(message);
     for (String expectedMatch : expected) {
       assertThat(m.find()).isTrue();
       String issueKey = matcher.getKey(m);
       assertThat(issueKey).isEqualTo(expectedMatch);
+      assertThat(scanner.find()).isTrue();
+      assertThat(scanner.key()).isEqualTo(expectedMatch);
     }
   }
 
   private JiraIssueMatcher matcher(String... filter) {
-    JiraConfiguration configuration = new JiraConfiguration();
-    if (filter.length > 0) {
-      configuration.setFilter(Joiner.on(',').join(filter));
-    }
-    return new JiraIssueMatcher(configuration);
+    return new JiraIssueMatcher(IssueKeyFilter.compile(Joiner.on(',').join(filter)));
   }
 
 }
@@ -16,24 +16,51 @@
 
 package sonia.scm.jira;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.github.sdorra.jse.ShiroExtension;
 import org.github.sdorra.jse.SubjectAware;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.issuetracker.IssueMatcher;
 import sonia.scm.issuetracker.api.IssueTracker;
+import sonia.scm.issuetracker.spi.Commentator;
 import sonia.scm.issuetracker.spi.IssueTrackerBuilder;
+import sonia.scm.jira.aggregation.CommentAggregator;
+import sonia.scm.jira.branch.BranchFilteringCommentator;
+import sonia.scm.jira.branch.ChangesetBranches;
+import sonia.scm.jira.config.JiraConfigurationChangedEvent;
 import sonia.scm.jira.config.JiraConfigurationResolver;
 import sonia.scm.jira.config.JiraConfigurationStore;
 import sonia.scm.jira.config.JiraGlobalConfiguration;
-import sonia.scm.net.ahc.AdvancedHttpClient;
+import sonia.scm.jira.fingerprint.CommentFingerprintIndex;
+import sonia.scm.jira.fingerprint.DeduplicatingCommentator;
+import sonia.scm.jira.fingerprint.PatchIds;
+import sonia.scm.jira.outbox.FailoverStateChanger;
+import sonia.scm.jira.outbox.JiraOutbox;
+import sonia.scm.jira.project.ProjectKeySync;
+import sonia.scm.jira.rest.JiraCircuitBreaker;
+import sonia.scm.jira.rest.JiraHttpClient;
+import sonia.scm.jira.rest.JiraRateLimiter;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.jira.rest.TransitionCache;
+import sonia.scm.jira.storm.ImportStormCommentator;
+import sonia.scm.jira.storm.ImportStormGuard;
+import sonia.scm.jira.storm.ImportStormStateChanger;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
 import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.store.InMemoryConfigurationStoreFactory;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
 
-import jakarta.inject.Provider;
+import java.io.IOException;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -49,22 +76,62 @@ class JiraIssueTrackerProviderTest {
 
   private JiraConfigurationStore configStore;
 
+  private JiraConfigurationResolver resolver;
+
+  @Mock
+  private ScmEventBus eventBus;
+
   @Mock
-  private Provider<AdvancedHttpClient> httpClientProvider;
+  private JiraHttpClient httpClient;
 
   @Mock
   private IssueTracker issueTracker;
 
+  @Mock
+  private JiraOutbox outbox;
+
+  @Mock
+  private JiraCircuitBreaker circuitBreaker;
+
+  @Mock
+  private CommentFingerprintIndex fingerprintIndex;
+
+  @Mock
+  private ChangesetBranches changesetBranches;
+
+  @Mock
+  private PatchIds patchIds;
+
+  @Mock
+  private ImportStormGuard importStormGuard;
+
   private JiraIssueTrackerProvider issueTrackerProvider;
 
   private final Repository repository = RepositoryTestData.createHeartOfGold();
 
   @BeforeEach
   void setUpConfiguration() {
-    configStore = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory());
+    repository.setId("42");
+    configStore = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory(), eventBus);
+    resolver = new JiraConfigurationResolver(configStore);
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    RestApiFactory restApiFactory = new RestApiFactory(
+      httpClient, new TransitionCache(), new JiraRateLimiter(configStore, meterRegistry), circuitBreaker, meterRegistry
+    );
     issueTrackerProvider = new JiraIssueTrackerProvider(
-      new JiraConfigurationResolver(configStore),
-      httpClientProvider
+      resolver,
+      configStore,
+      restApiFactory,
+      outbox,
+      new CommentAggregator(outbox),
+      circuitBreaker,
+      new ProjectKeySync(new InMemoryDataStoreFactory(new InMemoryDataStore<>()), restApiFactory),
+      new IssueKeyMatcherRegistry(new MapCacheManager(), meterRegistry),
+      fingerprintIndex,
+      patchIds,
+      changesetBranches,
+      importStormGuard,
+      meterRegistry
     );
   }
 
@@ -117,6 +184,7 @@ class JiraIssueTrackerProviderTest {
     configuration.setUrl("https://issues.hitchhiker.com");
     configuration.setUpdateIssues(true);
     configuration.setAutoClose(true);
+    configuration.setImportStormThreshold(1000);
     configStore.setGlobalConfiguration(configuration);
 
     IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
@@ -137,5 +205,272 @@ class JiraIssueTrackerProviderTest {
     verify(finalStage).build();
   }
 
+  @Test
+  void shouldQueueStateChangesIfJiraBecomesUnavailableDuringPush() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configuration.setAutoClose(true);
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+    IssueTrackerBuilder.ChangeStateRenderStage changeStateRenderStage = mock(IssueTrackerBuilder.ChangeStateRenderStage.class);
+    when(changeStateStage.stateChanging(any())).thenReturn(changeStateRenderStage);
+    IssueTrackerBuilder.FinalStage finalStage = mock(IssueTrackerBuilder.FinalStage.class);
+    when(changeStateRenderStage.template(any())).thenReturn(finalStage);
+
+    issueTrackerProvider.create(builder, repository);
+
+    verify(changeStateStage).stateChanging(isA(FailoverStateChanger.class));
+  }
+
+  @Test
+  void shouldFilterReferencesByBranch() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configuration.setReferenceBranches("main, release/*");
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+    when(changeStateStage.build()).thenReturn(issueTracker);
+
+    issueTrackerProvider.create(builder, repository);
+
+    ArgumentCaptor<Commentator> captor = ArgumentCaptor.forClass(Commentator.class);
+    verify(readStage).commenting(any(), captor.capture());
+    assertThat(captor.getValue()).isInstanceOf(BranchFilteringCommentator.class);
+  }
+
+  @Test
+  void shouldGuardAgainstImportStorms() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configuration.setAutoClose(true);
+    configuration.setImportStormThreshold(1000);
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+    IssueTrackerBuilder.ChangeStateRenderStage changeStateRenderStage = mock(IssueTrackerBuilder.ChangeStateRenderStage.class);
+    when(changeStateStage.stateChanging(any())).thenReturn(changeStateRenderStage);
+    IssueTrackerBuilder.FinalStage finalStage = mock(IssueTrackerBuilder.FinalStage.class);
+    when(changeStateRenderStage.template(any())).thenReturn(finalStage);
+
+    issueTrackerProvider.create(builder, repository);
+
+    verify(readStage).commenting(any(), isA(ImportStormCommentator.class));
+    verify(changeStateStage).stateChanging(isA(ImportStormStateChanger.class));
+  }
+
+  @Test
+  void shouldNotGuardAgainstImportStormsByDefault() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+
+    issueTrackerProvider.create(builder, repository);
+
+    verify(readStage).commenting(any(), isA(DeduplicatingCommentator.class));
+  }
+
+  @Test
+  void shouldUseOutboxForAsyncDelivery() throws IOException {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configuration.setAsyncDelivery(true);
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+    when(changeStateStage.build()).thenReturn(issueTracker);
+
+    issueTrackerProvider.create(builder, repository);
+
+    assertCommentIsQueued(readStage);
+  }
+
+  @Test
+  void shouldUseOutboxIfJiraIsUnavailable() throws IOException {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configStore.setGlobalConfiguration(configuration);
+    when(circuitBreaker.isOpen("https://issues.hitchhiker.com")).thenReturn(true);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+    when(changeStateStage.build()).thenReturn(issueTracker);
+
+    issueTrackerProvider.create(builder, repository);
+
+    assertCommentIsQueued(readStage);
+  }
+
+  @Test
+  void shouldReuseJiraComponents() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+
+    issueTrackerProvider.create(builder, repository);
+    issueTrackerProvider.create(builder, repository);
+
+    ArgumentCaptor<Commentator> captor = ArgumentCaptor.forClass(Commentator.class);
+    verify(readStage, times(2)).commenting(any(), captor.capture());
+    assertThat(captor.getAllValues().get(1)).isSameAs(captor.getAllValues().get(0));
+  }
+
+  @Test
+  void shouldBuildIssueTrackerWithTheBuilderOfEachCall() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    when(readStage.build()).thenReturn(issueTracker);
+    IssueTrackerBuilder otherBuilder = mock(IssueTrackerBuilder.class);
+    IssueTrackerBuilder.ReadStage otherReadStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(otherBuilder.start(any(), any(), any())).thenReturn(otherReadStage);
+    IssueTracker otherIssueTracker = mock(IssueTracker.class);
+    when(otherReadStage.build()).thenReturn(otherIssueTracker);
+
+    Optional<IssueTracker> first = issueTrackerProvider.create(builder, repository);
+    Optional<IssueTracker> second = issueTrackerProvider.create(otherBuilder, repository);
+
+    assertThat(first).containsSame(issueTracker);
+    assertThat(second).containsSame(otherIssueTracker);
+  }
+
+  @Test
+  void shouldRebuildIssueTrackerAfterConfigurationChanged() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    when(readStage.build()).thenReturn(issueTracker);
+
+    issueTrackerProvider.create(builder, repository);
+
+    JiraGlobalConfiguration changed = new JiraGlobalConfiguration();
+    changed.setUrl("https://jira.hitchhiker.com");
+    configStore.setGlobalConfiguration(changed);
+    fireConfigurationChanged();
+
+    issueTrackerProvider.create(builder, repository);
+
+    assertIssueMatcherIsRebuilt();
+  }
+
+  @Test
+  void shouldRebuildIssueTrackerAfterRepositoryModified() {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    when(readStage.build()).thenReturn(issueTracker);
+
+    issueTrackerProvider.create(builder, repository);
+
+    Repository renamed = repository.clone();
+    renamed.setName("hog");
+    issueTrackerProvider.onRepositoryEvent(new RepositoryEvent(HandlerEventType.MODIFY, renamed, repository));
+    issueTrackerProvider.create(builder, renamed);
+
+    assertIssueMatcherIsRebuilt();
+  }
 
+  @Test
+  void shouldRebuildIssueTrackerIfJiraBecomesUnavailable() throws IOException {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    configStore.setGlobalConfiguration(configuration);
+
+    IssueTrackerBuilder.ReadStage readStage = mock(IssueTrackerBuilder.ReadStage.class);
+    when(builder.start(any(), any(), any())).thenReturn(readStage);
+    IssueTrackerBuilder.CommentingStage commentingStage = mock(IssueTrackerBuilder.CommentingStage.class);
+    when(readStage.commenting(any(), any())).thenReturn(commentingStage);
+    IssueTrackerBuilder.ChangeStateStage changeStateStage = mock(IssueTrackerBuilder.ChangeStateStage.class);
+    when(commentingStage.template(any())).thenReturn(changeStateStage);
+    when(changeStateStage.build()).thenReturn(issueTracker);
+
+    issueTrackerProvider.create(builder, repository);
+    issueTrackerProvider.create(builder, repository);
+    verify(readStage, times(2)).commenting(any(), isA(DeduplicatingCommentator.class));
+
+    when(circuitBreaker.isOpen("https://issues.hitchhiker.com")).thenReturn(true);
+    issueTrackerProvider.create(builder, repository);
+
+    assertCommentIsQueued(readStage);
+  }
+
+  private void assertIssueMatcherIsRebuilt() {
+    ArgumentCaptor<IssueMatcher> captor = ArgumentCaptor.forClass(IssueMatcher.class);
+    verify(builder, times(2)).start(any(), captor.capture(), any());
+    assertThat(captor.getAllValues().get(1)).isNotSameAs(captor.getAllValues().get(0));
+  }
+
+  private void assertCommentIsQueued(IssueTrackerBuilder.ReadStage readStage) throws IOException {
+    ArgumentCaptor<Commentator> captor = ArgumentCaptor.forClass(Commentator.class);
+    verify(readStage, atLeastOnce()).commenting(any(), captor.capture());
+    assertThat(captor.getValue()).isInstanceOf(DeduplicatingCommentator.class);
+
+    captor.getValue().comment("HOG-42", "Awesome");
+
+    verify(outbox).comment(repository, "HOG-42", "Awesome");
+  }
+
+  private void fireConfigurationChanged() {
+    ArgumentCaptor<JiraConfigurationChangedEvent> captor = ArgumentCaptor.forClass(JiraConfigurationChangedEvent.class);
+    verify(eventBus, atLeastOnce()).post(captor.capture());
+    JiraConfigurationChangedEvent event = captor.getValue();
+    resolver.onConfigurationChanged(event);
+    issueTrackerProvider.onConfigurationChanged(event);
+  }
 }
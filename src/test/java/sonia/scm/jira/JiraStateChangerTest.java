@@ -17,13 +17,17 @@
 package sonia.scm.jira;
 
 import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import sonia.scm.jira.config.JiraConfiguration;
+import org.mockito.ArgumentCaptor;
 import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestComment;
 import sonia.scm.jira.rest.RestTransition;
 
 import java.io.IOException;
@@ -33,6 +37,11 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,13 +53,16 @@ class JiraStateChangerTest {
 
   private JiraConfiguration configuration;
 
+  private Counter avoidedLookups;
+
   private JiraStateChanger stateChanger;
 
   @BeforeEach
   void setUp() {
     configuration = new JiraConfiguration();
     configuration.setAutoCloseWords(Collections.emptyMap());
-    stateChanger = new JiraStateChanger(restApi, configuration);
+    avoidedLookups = new SimpleMeterRegistry().counter("avoided");
+    stateChanger = new JiraStateChanger(restApi, configuration, avoidedLookups);
   }
 
   @Test
@@ -88,6 +100,29 @@ class JiraStateChangerTest {
     assertThat(keyWords).containsOnly("fix", "fixes", "closes");
   }
 
+  @Test
+  void shouldReturnOnlyMappingNamesWithLazyTransitionLookup() throws IOException {
+    configuration.setLazyTransitionLookup(true);
+    configuration.setAutoCloseWords(ImmutableMap.of("fix,fixes", "done"));
+
+    Iterable<String> keyWords = stateChanger.getKeyWords("SCM-21");
+    assertThat(keyWords).containsOnly("fix", "fixes");
+
+    verify(restApi, never()).getTransitions(anyString());
+    assertThat(avoidedLookups.count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void shouldResolveTransitionOnStateChangeWithLazyTransitionLookup() throws IOException {
+    transitions("SCM-42", "start", "done");
+    configuration.setLazyTransitionLookup(true);
+    configuration.setAutoCloseWords(ImmutableMap.of("fix,fixes", "done"));
+
+    stateChanger.changeState("SCM-42", "fixes");
+
+    verify(restApi).changeState("SCM-42", "t-1");
+  }
+
   @Test
   void shouldTriggerStateChange() throws IOException {
     transitions("SCM-42", "start", "done");
@@ -107,6 +142,41 @@ class JiraStateChangerTest {
     verify(restApi).changeState("SCM-42", "t-1");
   }
 
+  @Test
+  void shouldTriggerStateChangeWithComment() throws IOException {
+    transitions("SCM-42", "start", "done");
+    configuration.setRoleLevel("developers");
+
+    stateChanger.changeState("SCM-42", "done", "Closed by commit");
+
+    ArgumentCaptor<RestComment> captor = ArgumentCaptor.forClass(RestComment.class);
+    verify(restApi).changeState(eq("SCM-42"), eq("t-1"), captor.capture());
+    assertThat(captor.getValue().getBody()).isEqualTo("Closed by commit");
+    assertThat(captor.getValue().getVisibility().getValue()).isEqualTo("developers");
+    verify(restApi, never()).addComment(anyString(), any());
+  }
+
+  @Test
+  void shouldSendCommentSeparatelyIfCombinedRequestIsRejected() throws IOException {
+    transitions("SCM-42", "start", "done");
+    doThrow(new JiraException("bad request", 400)).when(restApi).changeState(eq("SCM-42"), eq("t-1"), any());
+
+    stateChanger.changeState("SCM-42", "done", "Closed by commit");
+
+    verify(restApi).changeState("SCM-42", "t-1");
+    verify(restApi).addComment(eq("SCM-42"), any(RestComment.class));
+  }
+
+  @Test
+  void shouldNotSendCommentSeparatelyOnServerErrors() throws IOException {
+    transitions("SCM-42", "start", "done");
+    doThrow(new JiraException("bad gateway", 502)).when(restApi).changeState(eq("SCM-42"), eq("t-1"), any());
+
+    assertThrows(JiraException.class, () -> stateChanger.changeState("SCM-42", "done", "Closed by commit"));
+
+    verify(restApi, never()).addComment(anyString(), any());
+  }
+
   @Test
   void shouldThrowExceptionIfKeyWordCouldNotBeFound() throws IOException {
     transitions("SCM-1");
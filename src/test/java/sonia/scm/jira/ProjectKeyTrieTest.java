@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProjectKeyTrieTest {
+
+  @Test
+  void shouldCreateExpressionForSingleKey() {
+    assertThat(ProjectKeyTrie.of(List.of("SCM")).toRegex()).isEqualTo("SCM");
+  }
+
+  @Test
+  void shouldFactorOutCommonPrefixes() {
+    assertThat(ProjectKeyTrie.of(List.of("SCM", "SCT", "TST")).toRegex()).isEqualTo("(?:SC(?:M|T)|TST)");
+  }
+
+  @Test
+  void shouldCreateOptionalSuffixForKeyWhichIsPrefixOfAnother() {
+    assertThat(ProjectKeyTrie.of(List.of("SC", "SCM", "S")).toRegex()).isEqualTo("S(?:C(?:M)?)?");
+    assertThat(ProjectKeyTrie.of(List.of("S", "SA", "SB")).toRegex()).isEqualTo("S(?:A|B)?");
+  }
+
+  @Test
+  void shouldEscapeSpecialCharacters() {
+    assertThat(ProjectKeyTrie.of(List.of("A.B", "A+")).toRegex()).isEqualTo("A(?:\\+|\\.B)");
+  }
+
+  @Test
+  void shouldIgnoreDuplicateKeys() {
+    assertThat(ProjectKeyTrie.of(List.of("SCM", "SCM")).toRegex()).isEqualTo("SCM");
+  }
+
+  @Test
+  void shouldMatchIssueKey() {
+    ProjectKeyTrie trie = ProjectKeyTrie.of(List.of("SC", "SCM"));
+    assertThat(match(trie, "SCM-42 ")).isEqualTo(6);
+    assertThat(match(trie, "SC-1")).isEqualTo(4);
+    assertThat(match(trie, "SCX-1")).isEqualTo(-1);
+    assertThat(match(trie, "SC-")).isEqualTo(-1);
+    assertThat(match(trie, "S-1")).isEqualTo(-1);
+  }
+
+  private int match(ProjectKeyTrie trie, String text) {
+    return trie.match(text, 0, text.length());
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.aggregation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.outbox.JiraOutbox;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CommentAggregatorTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @Mock
+  private Commentator commentator;
+
+  @Mock
+  private ScheduledExecutorService executor;
+
+  @Mock
+  private JiraOutbox outbox;
+
+  @Mock
+  private Clock clock;
+
+  private CommentAggregator aggregator;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    lenient().when(clock.millis()).thenReturn(1000L);
+    aggregator = new CommentAggregator(outbox, clock);
+    aggregator.start(executor);
+  }
+
+  @Test
+  void shouldPostSingleReferenceUnchanged() throws IOException {
+    String reference = reference("abcdef1234", "Fix the drive");
+    aggregator.comment(repository, "HOG-42", reference, commentator);
+
+    verify(commentator, never()).comment(anyString(), anyString());
+    verify(executor).schedule(any(Runnable.class), eq(CommentAggregator.AGGREGATION_WINDOW), eq(TimeUnit.MILLISECONDS));
+
+    when(clock.millis()).thenReturn(1000L + CommentAggregator.AGGREGATION_WINDOW);
+    aggregator.flush("42/HOG-42");
+
+    verify(commentator).comment("HOG-42", reference);
+  }
+
+  @Test
+  void shouldListReferencesOfTheSameIssueInOneComment() throws IOException {
+    aggregator.comment(repository, "HOG-42", reference("abcdef1234", "Fix the drive"), commentator);
+    aggregator.comment(repository, "HOG-42", reference("1234abcdef", "Test the drive"), commentator);
+
+    when(clock.millis()).thenReturn(1000L + CommentAggregator.AGGREGATION_WINDOW);
+    aggregator.flush("42/HOG-42");
+
+    ArgumentCaptor<String> content = ArgumentCaptor.forClass(String.class);
+    verify(commentator, times(1)).comment(eq("HOG-42"), content.capture());
+    assertThat(content.getValue()).isEqualTo(
+      "[SCM] Issue referenced by 2 commits of repository hitchhiker/HeartOfGold\n\n"
+        + "* [abcdef1|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/code/changeset/abcdef1234] Fix the drive (Trillian)\n"
+        + "* [1234abc|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/code/changeset/1234abcdef] Test the drive (Trillian)\n"
+    );
+  }
+
+  @Test
+  void shouldWaitWhileReferencesAreAdded() throws IOException {
+    aggregator.comment(repository, "HOG-42", reference("abcdef1234", "Fix the drive"), commentator);
+    when(clock.millis()).thenReturn(6000L);
+    aggregator.comment(repository, "HOG-42", reference("1234abcdef", "Test the drive"), commentator);
+
+    when(clock.millis()).thenReturn(1000L + CommentAggregator.AGGREGATION_WINDOW);
+    aggregator.flush("42/HOG-42");
+
+    verify(commentator, never()).comment(anyString(), anyString());
+    verify(executor).schedule(any(Runnable.class), eq(5000L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldNotAggregateReferencesOfDifferentIssues() throws IOException {
+    aggregator.comment(repository, "HOG-42", reference("abcdef1234", "Fix the drive"), commentator);
+    aggregator.comment(repository, "HOG-21", reference("1234abcdef", "Fix the engine"), commentator);
+
+    verify(executor, times(2)).schedule(any(Runnable.class), eq(CommentAggregator.AGGREGATION_WINDOW), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldPassOtherCommentsImmediately() throws IOException {
+    aggregator.comment(repository, "HOG-42", "[SCM] State change triggered by commit", commentator);
+
+    verify(commentator).comment("HOG-42", "[SCM] State change triggered by commit");
+  }
+
+  @Test
+  void shouldQueueCollectedCommentsOnStop() throws IOException {
+    String reference = reference("abcdef1234", "Fix the drive");
+    aggregator.comment(repository, "HOG-42", reference, commentator);
+
+    aggregator.stop();
+
+    verify(outbox).comment(repository, "HOG-42", reference);
+    verify(commentator, never()).comment(anyString(), anyString());
+  }
+
+  @Test
+  void shouldQueueCommentIfPostFailed() throws IOException {
+    String reference = reference("abcdef1234", "Fix the drive");
+    doThrow(new IOException("jira is down")).when(commentator).comment("HOG-42", reference);
+    aggregator.comment(repository, "HOG-42", reference, commentator);
+
+    when(clock.millis()).thenReturn(1000L + CommentAggregator.AGGREGATION_WINDOW);
+    aggregator.flush("42/HOG-42");
+
+    verify(outbox).comment(repository, "HOG-42", reference);
+  }
+
+  @Test
+  void shouldReportDeliveryAfterCommentWasQueued() throws IOException {
+    DeliveryCallback callback = mock(DeliveryCallback.class);
+    String reference = reference("abcdef1234", "Fix the drive");
+    doThrow(new IOException("jira is down")).when(commentator).comment("HOG-42", reference);
+    aggregator.comment(repository, "HOG-42", reference, commentator, callback);
+
+    when(clock.millis()).thenReturn(1000L + CommentAggregator.AGGREGATION_WINDOW);
+    aggregator.flush("42/HOG-42");
+
+    verify(callback).delivered();
+    verify(callback, never()).failed();
+  }
+
+  @Test
+  void shouldReportFailureIfCommentCouldNotBeQueued() throws IOException {
+    DeliveryCallback callback = mock(DeliveryCallback.class);
+    String reference = reference("abcdef1234", "Fix the drive");
+    doThrow(new IOException("jira is down")).when(commentator).comment("HOG-42", reference);
+    doThrow(new IllegalStateException("store is broken")).when(outbox).comment(repository, "HOG-42", reference);
+    aggregator.comment(repository, "HOG-42", reference, commentator, callback);
+
+    when(clock.millis()).thenReturn(1000L + CommentAggregator.AGGREGATION_WINDOW);
+    aggregator.flush("42/HOG-42");
+
+    verify(callback).failed();
+    verify(callback, never()).delivered();
+  }
+
+  @Test
+  void shouldStartNewCommentIfMaximumLengthIsReached() throws IOException {
+    String longDescription = new String(new char[CommentAggregator.MAXIMUM_COMMENT_LENGTH]).replace('\0', 'x');
+    aggregator.comment(repository, "HOG-42", reference("abcdef1234", longDescription), commentator);
+    aggregator.comment(repository, "HOG-42", reference("1234abcdef", "Test the drive"), commentator);
+
+    verify(commentator).comment(eq("HOG-42"), anyString());
+  }
+
+  private String reference(String changesetId, String description) {
+    return ChangesetReference.HEADER + "hitchhiker/HeartOfGold\n\n"
+      + description + "\n\n"
+      + "*Author:* Trillian\n\n"
+      + "[Changes|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/code/changeset/" + changesetId + "]";
+  }
+}
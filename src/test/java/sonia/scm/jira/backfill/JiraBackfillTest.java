@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.backfill;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.config.ScmConfiguration;
+import sonia.scm.jira.IssueKeyFilter;
+import sonia.scm.jira.IssueKeyMatcherRegistry;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.config.JiraGlobalConfiguration;
+import sonia.scm.jira.fingerprint.CommentFingerprintIndex;
+import sonia.scm.jira.project.ProjectKeySync;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.jira.rest.RestComment;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.store.InMemoryBlobStore;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JiraBackfillTest {
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private RepositoryServiceFactory serviceFactory;
+
+  @Mock
+  private RepositoryService service;
+
+  @Mock(answer = Answers.RETURNS_SELF)
+  private LogCommandBuilder logCommand;
+
+  @Mock
+  private JiraConfigurationResolver resolver;
+
+  @Mock
+  private JiraConfigurationStore configurationStore;
+
+  @Mock
+  private ProjectKeySync projectKeySync;
+
+  @Mock
+  private IssueKeyMatcherRegistry matcherRegistry;
+
+  @Mock
+  private RestApiFactory restApiFactory;
+
+  @Mock
+  private RestApi restApi;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+  private final JiraConfiguration configuration = new JiraConfiguration();
+  private final InMemoryDataStore<BackfillStatus> store = new InMemoryDataStore<>();
+
+  private JiraBackfill backfill;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    configuration.setUrl("https://jira.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+
+    JiraGlobalConfiguration globalConfiguration = new JiraGlobalConfiguration();
+    globalConfiguration.setMaxRequestsPerSecond(1000);
+    lenient().when(configurationStore.getGlobalConfiguration()).thenReturn(globalConfiguration);
+
+    ScmConfiguration scmConfiguration = new ScmConfiguration();
+    scmConfiguration.setBaseUrl("https://scm.hitchhiker.com/scm");
+
+    lenient().when(repositoryManager.get("42")).thenReturn(repository);
+    lenient().when(resolver.resolve(repository)).thenReturn(Optional.of(configuration));
+    lenient().when(serviceFactory.create(repository)).thenReturn(service);
+    lenient().when(service.getLogCommand()).thenReturn(logCommand);
+    lenient().when(matcherRegistry.get(any())).thenReturn(IssueKeyFilter.compile(null));
+    lenient().when(restApiFactory.create(configuration)).thenReturn(restApi);
+
+    backfill = new JiraBackfill(
+      new InMemoryDataStoreFactory(store),
+      repositoryManager,
+      serviceFactory,
+      resolver,
+      configurationStore,
+      projectKeySync,
+      matcherRegistry,
+      restApiFactory,
+      new CommentFingerprintIndex(new InMemoryBlobStoreFactory(new InMemoryBlobStore())),
+      scmConfiguration
+    );
+  }
+
+  @Test
+  void shouldPostReferencesWithoutNotification() throws IOException {
+    when(logCommand.getChangesets()).thenReturn(
+      page(changeset("c2", "SCM-1 and SCM-2 fixed"), changeset("c1", "no reference")),
+      page()
+    );
+
+    backfill.start(repository, false);
+    backfill.run("42");
+
+    ArgumentCaptor<RestComment> comment = ArgumentCaptor.forClass(RestComment.class);
+    verify(restApi).addComment(eq("SCM-1"), comment.capture(), eq(false));
+    verify(restApi).addComment(eq("SCM-2"), any(), eq(false));
+    assertThat(comment.getValue().getBody())
+      .startsWith("[SCM] Issue referenced by commit of repository hitchhiker/HeartOfGold")
+      .endsWith("[Changes|https://scm.hitchhiker.com/scm/repo/hitchhiker/HeartOfGold/code/changeset/c2]");
+
+    BackfillStatus status = store.get("42");
+    assertThat(status.getState()).isEqualTo(BackfillStatus.State.COMPLETED);
+    assertThat(status.getHead()).isEqualTo("c2");
+    assertThat(status.getProcessedChangesets()).isEqualTo(2);
+    assertThat(status.getLastChangeset()).isEqualTo("c1");
+    assertThat(status.getPostedComments()).isEqualTo(2);
+    verify(logCommand).setPagingStart(0);
+    verify(logCommand).setStartChangeset("c1");
+    verify(logCommand).setPagingStart(1);
+  }
+
+  @Test
+  void shouldSkipAlreadyCommentedReferences() throws IOException {
+    when(logCommand.getChangesets()).thenReturn(
+      page(changeset("c1", "SCM-1 fixed")), page(), page(changeset("c1", "SCM-1 fixed")), page()
+    );
+
+    backfill.start(repository, false);
+    backfill.run("42");
+    backfill.start(repository, true);
+    backfill.run("42");
+
+    verify(restApi, times(1)).addComment(anyString(), any(), anyBoolean());
+    assertThat(store.get("42").getSkippedComments()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCountUnknownIssues() throws IOException {
+    when(logCommand.getChangesets()).thenReturn(page(changeset("c1", "SCM-1 fixed")), page());
+    doThrow(new JiraException("not found", 404)).when(restApi).addComment(eq("SCM-1"), any(), eq(false));
+
+    backfill.start(repository, false);
+    backfill.run("42");
+
+    BackfillStatus status = store.get("42");
+    assertThat(status.getState()).isEqualTo(BackfillStatus.State.COMPLETED);
+    assertThat(status.getUnknownIssues()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldContinueAfterThrottling() throws IOException {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    backfill.start(executor);
+    when(logCommand.getChangesets()).thenReturn(page(changeset("c1", "SCM-1 fixed")));
+    doThrow(new JiraRateLimitException("throttled", 30000)).when(restApi).addComment(eq("SCM-1"), any(), eq(false));
+
+    backfill.start(repository, false);
+    backfill.run("42");
+
+    verify(executor).schedule(any(Runnable.class), eq(30000L), eq(TimeUnit.MILLISECONDS));
+    BackfillStatus status = store.get("42");
+    assertThat(status.isRunning()).isTrue();
+    assertThat(status.getProcessedChangesets()).isZero();
+    assertThat(status.getLastChangeset()).isNull();
+  }
+
+  @Test
+  void shouldResumeFailedBackfillFromCheckpoint() throws IOException {
+    when(logCommand.getChangesets())
+      .thenReturn(page(changeset("c2", "SCM-2 fixed")))
+      .thenThrow(new IOException("broken"));
+
+    backfill.start(repository, false);
+    backfill.run("42");
+
+    BackfillStatus failed = store.get("42");
+    assertThat(failed.getState()).isEqualTo(BackfillStatus.State.FAILED);
+    assertThat(failed.getError()).isEqualTo("broken");
+
+    BackfillStatus resumed = backfill.start(repository, false).get();
+    assertThat(resumed.isRunning()).isTrue();
+    assertThat(resumed.getProcessedChangesets()).isEqualTo(1);
+    assertThat(resumed.getLastChangeset()).isEqualTo("c2");
+    assertThat(resumed.getHead()).isEqualTo("c2");
+    assertThat(resumed.getError()).isNull();
+  }
+
+  @Test
+  void shouldNotStartRunningBackfillTwice() {
+    backfill.start(repository, false);
+
+    assertThat(backfill.start(repository, true)).isEmpty();
+  }
+
+  @Test
+  void shouldCancelWaitingBackfill() {
+    backfill.start(repository, false);
+
+    assertThat(backfill.cancel(repository)).isTrue();
+    backfill.run("42");
+
+    assertThat(store.get("42").getState()).isEqualTo(BackfillStatus.State.CANCELED);
+    verify(serviceFactory, never()).create(any(Repository.class));
+  }
+
+  @Test
+  void shouldFailWithoutIssueUpdates() {
+    configuration.setUpdateIssues(false);
+
+    backfill.start(repository, false);
+    backfill.run("42");
+
+    assertThat(store.get("42").getState()).isEqualTo(BackfillStatus.State.FAILED);
+  }
+
+  @Test
+  void shouldResumeRunningBackfillOnStart() {
+    backfill.start(repository, false);
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+
+    backfill.start(executor);
+
+    verify(executor).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  private Changeset changeset(String id, String description) {
+    return new Changeset(id, 0L, new Person("Trillian"), description);
+  }
+
+  private ChangesetPagingResult page(Changeset... changesets) {
+    return new ChangesetPagingResult(changesets.length, changesets.length > 0 ? Arrays.asList(changesets) : Collections.emptyList());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.branch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BranchFilteringCommentatorTest {
+
+  private static final String COMMENT = "[SCM] Issue referenced by commit of repository hitchhiker/HeartOfGold\n\n"
+    + "[Changes|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/code/changeset/abc]";
+
+  @Mock
+  private ChangesetBranches changesetBranches;
+
+  @Mock
+  private Commentator delegate;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private BranchFilteringCommentator commentator;
+
+  @BeforeEach
+  void setUpCommentator() {
+    repository.setId("42");
+    commentator = new BranchFilteringCommentator(
+      changesetBranches, BranchMatcher.compile("main,release/*"), repository, delegate
+    );
+  }
+
+  @Test
+  void shouldCommentChangesetsOfMatchingBranches() throws IOException {
+    when(changesetBranches.get("42", "abc")).thenReturn(Optional.of(Arrays.asList("feature/x", "release/1.0")));
+
+    commentator.comment("HOG-1", COMMENT);
+
+    verify(delegate).comment("HOG-1", COMMENT);
+  }
+
+  @Test
+  void shouldSkipChangesetsOfOtherBranches() throws IOException {
+    when(changesetBranches.get("42", "abc")).thenReturn(Optional.of(Collections.singletonList("feature/x")));
+
+    commentator.comment("HOG-1", COMMENT);
+
+    verify(delegate, never()).comment(anyString(), anyString());
+  }
+
+  @Test
+  void shouldCommentChangesetsWithUnknownBranches() throws IOException {
+    when(changesetBranches.get("42", "abc")).thenReturn(Optional.empty());
+
+    commentator.comment("HOG-1", COMMENT);
+
+    verify(delegate).comment("HOG-1", COMMENT);
+  }
+
+  @Test
+  void shouldCommentReferencesWithoutChangeset() throws IOException {
+    String pullRequest = "[SCM] Issue referenced by comment of pull request\n\n[Comment|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/pull-request/1/comments]";
+
+    commentator.comment("HOG-1", pullRequest);
+
+    verify(delegate).comment("HOG-1", pullRequest);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.branch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BranchMatcherTest {
+
+  @Test
+  void shouldMatchAllBranchesWithoutPatterns() {
+    assertThat(BranchMatcher.compile(null).isMatchingAll()).isTrue();
+    assertThat(BranchMatcher.compile(" , ").isMatchingAll()).isTrue();
+    assertThat(BranchMatcher.compile("").matches("feature/awesome")).isTrue();
+  }
+
+  @Test
+  void shouldMatchBranchNames() {
+    BranchMatcher matcher = BranchMatcher.compile("main, develop");
+
+    assertThat(matcher.isMatchingAll()).isFalse();
+    assertThat(matcher.matches("main")).isTrue();
+    assertThat(matcher.matches("develop")).isTrue();
+    assertThat(matcher.matches("feature/main")).isFalse();
+  }
+
+  @Test
+  void shouldMatchSingleSegmentWildcard() {
+    BranchMatcher matcher = BranchMatcher.compile("release/*");
+
+    assertThat(matcher.matches("release/1.0")).isTrue();
+    assertThat(matcher.matches("release/1.0/hotfix")).isFalse();
+    assertThat(matcher.matches("release")).isFalse();
+  }
+
+  @Test
+  void shouldMatchMultiSegmentWildcard() {
+    BranchMatcher matcher = BranchMatcher.compile("release/**");
+
+    assertThat(matcher.matches("release/1.0")).isTrue();
+    assertThat(matcher.matches("release/1.0/hotfix")).isTrue();
+  }
+
+  @Test
+  void shouldMatchSingleCharacterWildcard() {
+    BranchMatcher matcher = BranchMatcher.compile("v?");
+
+    assertThat(matcher.matches("v1")).isTrue();
+    assertThat(matcher.matches("v10")).isFalse();
+  }
+
+  @Test
+  void shouldQuoteRegexCharacters() {
+    BranchMatcher matcher = BranchMatcher.compile("release/1.*");
+
+    assertThat(matcher.matches("release/1.0")).isTrue();
+    assertThat(matcher.matches("release/100")).isFalse();
+  }
+
+  @Test
+  void shouldMatchAnyBranch() {
+    BranchMatcher matcher = BranchMatcher.compile("main,release/*");
+
+    assertThat(matcher.matchesAny(Arrays.asList("feature/a", "release/2.0"))).isTrue();
+    assertThat(matcher.matchesAny(Arrays.asList("feature/a", "develop"))).isFalse();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.branch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PreReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChangesetBranchesTest {
+
+  @Mock
+  private JiraConfigurationResolver resolver;
+
+  @Mock
+  private PreReceiveRepositoryHookEvent event;
+
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private HookContext context;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private final JiraConfiguration configuration = new JiraConfiguration();
+
+  private ChangesetBranches changesetBranches;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    configuration.setUrl("https://issues.hitchhiker.com");
+    lenient().when(event.getRepository()).thenReturn(repository);
+    lenient().when(event.getContext()).thenReturn(context);
+    lenient().when(resolver.resolve(repository)).thenReturn(Optional.of(configuration));
+    changesetBranches = new ChangesetBranches(resolver);
+  }
+
+  @Test
+  void shouldNotCollectChangesetsWithoutBranchRestriction() {
+    changesetBranches.onPreReceive(event);
+
+    verifyNoInteractions(context);
+  }
+
+  @Test
+  void shouldCollectBranchesOfChangesets() {
+    configuration.setReferenceBranches("main");
+    Changeset merged = new Changeset("abc", 1L, null);
+    merged.setBranches(Arrays.asList("main", "develop"));
+    Changeset other = new Changeset("def", 1L, null);
+    when(context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)).thenReturn(true);
+    when(context.isFeatureSupported(HookFeature.BRANCH_PROVIDER)).thenReturn(true);
+    when(context.getBranchProvider().getCreatedOrModified()).thenReturn(Collections.singletonList("feature/x"));
+    when(context.getChangesetProvider().getChangesets()).thenReturn(Arrays.asList(merged, other));
+
+    changesetBranches.onPreReceive(event);
+
+    assertThat(changesetBranches.get("42", "abc")).contains(Arrays.asList("main", "develop"));
+    assertThat(changesetBranches.get("42", "def")).contains(Collections.singletonList("feature/x"));
+    assertThat(changesetBranches.get("21", "abc")).isEmpty();
+  }
+
+  @Test
+  void shouldSkipRepositoriesWithoutChangesetProvider() {
+    configuration.setReferenceBranches("main");
+    when(context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)).thenReturn(false);
+
+    changesetBranches.onPreReceive(event);
+
+    verify(context).isFeatureSupported(HookFeature.CHANGESET_PROVIDER);
+    assertThat(changesetBranches.get("42", "abc")).isEmpty();
+  }
+}
@@ -18,19 +18,27 @@ package sonia.scm.jira.commitmessagechecker;
 
 import com.cloudogu.scm.commitmessagechecker.Context;
 import com.cloudogu.scm.commitmessagechecker.InvalidCommitMessageException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.jira.IssueKeyMatcherRegistry;
+import sonia.scm.jira.IssueKeys;
 import sonia.scm.jira.config.JiraConfiguration;
 import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.project.ProjectKeySync;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryTestData;
 
+import java.time.Duration;
 import java.util.Optional;
+import java.util.Random;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static sonia.scm.jira.commitmessagechecker.JiraCommitMessageIssueKeyValidator.JiraCommitMessageIssueKeyValidatorConfig;
@@ -43,9 +51,18 @@ class JiraCommitMessageIssueKeyValidatorTest {
   @Mock
   private JiraConfigurationResolver configResolver;
 
-  @InjectMocks
+  @Mock
+  private ProjectKeySync projectKeySync;
+
   private JiraCommitMessageIssueKeyValidator validator;
 
+  @BeforeEach
+  void setUpValidator() {
+    validator = new JiraCommitMessageIssueKeyValidator(
+      configResolver, projectKeySync, new IssueKeyMatcherRegistry(new MapCacheManager(), new SimpleMeterRegistry())
+    );
+  }
+
   @Test
   void shouldValidateSuccessfully() {
     mockJiraConfig("");
@@ -78,9 +95,87 @@ class JiraCommitMessageIssueKeyValidatorTest {
       () -> validator.validate(context, "Trillian added some feature HOG-42 DONE"));
   }
 
+  @Test
+  void shouldUseSynchronizedProjectKeys() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setSyncProjectKeys(true);
+    when(configResolver.resolve(any())).thenReturn(Optional.of(configuration));
+    when(projectKeySync.getFilter(configuration)).thenReturn("SCM,HOG");
+    JiraCommitMessageIssueKeyValidatorConfig config = new JiraCommitMessageIssueKeyValidatorConfig();
+    Context context = new Context(REPOSITORY, "master", config);
+
+    validator.validate(context, "Trillian added some feature HOG-42 DONE");
+    Assertions.assertThrows(InvalidCommitMessageException.class,
+      () -> validator.validate(context, "Trillian fixed UTF-8 encoding"));
+  }
+
+  @Test
+  void shouldFindIssueKeyInMultiLineMessage() {
+    mockJiraConfig("HOG");
+    JiraCommitMessageIssueKeyValidatorConfig config = new JiraCommitMessageIssueKeyValidatorConfig();
+    validator.validate(new Context(REPOSITORY, "master", config), "Add some feature\n\nSee HOG-42 for details\n");
+  }
+
+  @Test
+  void shouldAcceptSameMessagesAsIssueKeyPattern() {
+    Random random = new Random(42);
+    String alphabet = "HOGSCMhog019_- \n.";
+    for (String filter : new String[]{"", "HOG", "HOG,SCM", "H,HO,HOG"}) {
+      mockJiraConfig(filter);
+      Context context = new Context(REPOSITORY, "master", new JiraCommitMessageIssueKeyValidatorConfig());
+      for (int i = 0; i < 2000; i++) {
+        StringBuilder message = new StringBuilder();
+        int length = random.nextInt(40);
+        for (int j = 0; j < length; j++) {
+          message.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        boolean expected = IssueKeys.createPattern(filter).matcher(message).find();
+        assertThat(isValid(context, message.toString())).as("'%s' with filter '%s'", message, filter).isEqualTo(expected);
+      }
+    }
+  }
+
+  @Test
+  void shouldRejectLargeAdversarialMessagesInTime() {
+    StringBuilder filter = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      filter.append("HOG").append(i).append(',');
+    }
+    String message = adversarialMessage(8 * 1024 * 1024);
+    for (String f : new String[]{"", "HOG", filter.toString()}) {
+      mockJiraConfig(f);
+      Context context = new Context(REPOSITORY, "master", new JiraCommitMessageIssueKeyValidatorConfig());
+      boolean valid = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> isValid(context, message));
+      assertThat(valid).isFalse();
+    }
+  }
+
+  /**
+   * Creates a single line message without issue key, which consists of fragments that look like issue keys.
+   */
+  private String adversarialMessage(int size) {
+    String[] fragments = {"HOG-", "HOG-x", "xHOG-1", "_HOG1-2", "HOG42", "H-", "HOG1-", "-1", "HOG12-HOG-"};
+    Random random = new Random(42);
+    StringBuilder message = new StringBuilder(size + 16);
+    while (message.length() < size) {
+      message.append(fragments[random.nextInt(fragments.length)]).append(' ');
+    }
+    return message.toString();
+  }
+
+  private boolean isValid(Context context, String message) {
+    try {
+      validator.validate(context, message);
+      return true;
+    } catch (InvalidCommitMessageException ex) {
+      return false;
+    }
+  }
+
   private void mockJiraConfig(String filter) {
     JiraConfiguration configuration = new JiraConfiguration();
     configuration.setFilter(filter);
     when(configResolver.resolve(any())).thenReturn(Optional.of(configuration));
+    when(projectKeySync.getFilter(any())).thenReturn(filter);
   }
 }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.jira.storm.ImportStormLogEntry;
+
+import java.net.URI;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImportStormLogEntryMapperTest {
+
+  private ImportStormLogEntryMapper mapper;
+
+  @BeforeEach
+  void setUpMapper() {
+    ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+    scmPathInfoStore.set(() -> URI.create("/"));
+    mapper = Mappers.getMapper(ImportStormLogEntryMapper.class);
+    mapper.setScmPathInfoStore(scmPathInfoStore);
+  }
+
+  @Test
+  void shouldMapEntry() {
+    ImportStormLogEntryDto dto = mapper.map(entry());
+
+    assertThat(dto.getNamespace()).isEqualTo("hitchhiker");
+    assertThat(dto.getName()).isEqualTo("HeartOfGold");
+    assertThat(dto.getChangesets()).isEqualTo(5000);
+    assertThat(dto.getAction()).isEqualTo("BACKFILL");
+    assertThat(dto.getTime()).isEqualTo(Instant.ofEpochMilli(42000L));
+  }
+
+  @Test
+  void shouldAppendRepositoryLinks() {
+    ImportStormLogEntryDto dto = mapper.map(entry());
+
+    assertThat(dto.getLinks().getLinkBy("configuration")).get()
+      .hasFieldOrPropertyWithValue("href", "/v2/config/jira/hitchhiker/HeartOfGold");
+    assertThat(dto.getLinks().getLinkBy("backfill")).get()
+      .hasFieldOrPropertyWithValue("href", "/v2/config/jira/hitchhiker/HeartOfGold/backfill");
+  }
+
+  private ImportStormLogEntry entry() {
+    ImportStormLogEntry entry = mock(ImportStormLogEntry.class);
+    when(entry.getNamespace()).thenReturn("hitchhiker");
+    when(entry.getName()).thenReturn("HeartOfGold");
+    when(entry.getChangesets()).thenReturn(5000);
+    when(entry.getAction()).thenReturn(ImportStormLogEntry.Action.BACKFILL);
+    when(entry.getTime()).thenReturn(42000L);
+    return entry;
+  }
+}
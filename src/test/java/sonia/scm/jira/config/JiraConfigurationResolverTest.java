@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JiraConfigurationResolverTest {
+
+  @Mock
+  private JiraConfigurationStore store;
+
+  private JiraConfigurationResolver resolver;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @BeforeEach
+  void setUpResolver() {
+    repository.setId("42");
+    resolver = new JiraConfigurationResolver(store);
+    lenient().when(store.getGlobalConfiguration()).thenReturn(globalConfiguration("https://jira.hitchhiker.com"));
+  }
+
+  @Test
+  void shouldResolveRepositoryConfiguration() {
+    when(store.getConfiguration(repository)).thenReturn(configuration("https://issues.hitchhiker.com"));
+
+    assertThat(resolver.resolve(repository)).map(JiraConfiguration::getUrl).contains("https://issues.hitchhiker.com");
+  }
+
+  @Test
+  void shouldFallbackToGlobalConfiguration() {
+    when(store.getConfiguration(repository)).thenReturn(new JiraConfiguration());
+
+    assertThat(resolver.resolve(repository)).map(JiraConfiguration::getUrl).contains("https://jira.hitchhiker.com");
+  }
+
+  @Test
+  void shouldReturnEmptyWithoutValidConfiguration() {
+    when(store.getGlobalConfiguration()).thenReturn(new JiraGlobalConfiguration());
+    when(store.getConfiguration(repository)).thenReturn(new JiraConfiguration());
+
+    assertThat(resolver.resolve(repository)).isEmpty();
+  }
+
+  @Test
+  void shouldReadStoresOnlyOnce() {
+    when(store.getConfiguration(repository)).thenReturn(configuration("https://issues.hitchhiker.com"));
+
+    Optional<JiraConfiguration> first = resolver.resolve(repository);
+    Optional<JiraConfiguration> second = resolver.resolve(repository);
+
+    assertThat(second).isSameAs(first);
+    verify(store, times(1)).getGlobalConfiguration();
+    verify(store, times(1)).getConfiguration(repository);
+  }
+
+  @Test
+  void shouldReloadChangedRepositoryConfiguration() {
+    when(store.getConfiguration(repository)).thenReturn(
+      configuration("https://issues.hitchhiker.com"), configuration("https://tickets.hitchhiker.com")
+    );
+    resolver.resolve(repository);
+
+    resolver.onConfigurationChanged(new JiraConfigurationChangedEvent(repository));
+
+    assertThat(resolver.resolve(repository)).map(JiraConfiguration::getUrl).contains("https://tickets.hitchhiker.com");
+  }
+
+  @Test
+  void shouldNotCacheConfigurationWhichChangedWhileLoading() {
+    when(store.getConfiguration(repository)).thenAnswer(invocation -> {
+      resolver.onConfigurationChanged(new JiraConfigurationChangedEvent(repository));
+      return configuration("https://issues.hitchhiker.com");
+    });
+
+    resolver.resolve(repository);
+    resolver.resolve(repository);
+
+    verify(store, times(2)).getConfiguration(repository);
+  }
+
+  @Test
+  void shouldKeepConfigurationOfOtherRepositories() {
+    when(store.getConfiguration(repository)).thenReturn(configuration("https://issues.hitchhiker.com"));
+    resolver.resolve(repository);
+
+    Repository other = RepositoryTestData.createRestaurantAtTheEndOfTheUniverse();
+    other.setId("21");
+    resolver.onConfigurationChanged(new JiraConfigurationChangedEvent(other));
+    resolver.resolve(repository);
+
+    verify(store, times(1)).getConfiguration(repository);
+  }
+
+  @Test
+  void shouldReloadAfterGlobalConfigurationChanged() {
+    when(store.getConfiguration(repository)).thenReturn(new JiraConfiguration());
+    resolver.resolve(repository);
+
+    when(store.getGlobalConfiguration()).thenReturn(globalConfiguration("https://tickets.hitchhiker.com"));
+    resolver.onConfigurationChanged(new JiraConfigurationChangedEvent(null));
+
+    assertThat(resolver.resolve(repository)).map(JiraConfiguration::getUrl).contains("https://tickets.hitchhiker.com");
+  }
+
+  @Test
+  void shouldForgetDeletedRepository() {
+    when(store.getConfiguration(repository)).thenReturn(configuration("https://issues.hitchhiker.com"));
+    resolver.resolve(repository);
+
+    resolver.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, repository));
+    resolver.resolve(repository);
+
+    verify(store, times(2)).getConfiguration(repository);
+  }
+
+  @Test
+  void shouldIgnoreOtherRepositoryEvents() {
+    when(store.getConfiguration(repository)).thenReturn(configuration("https://issues.hitchhiker.com"));
+    resolver.resolve(repository);
+
+    resolver.onRepositoryEvent(new RepositoryEvent(HandlerEventType.MODIFY, repository, repository));
+    resolver.resolve(repository);
+
+    verify(store, times(1)).getConfiguration(repository);
+  }
+
+  private JiraConfiguration configuration(String url) {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setUrl(url);
+    return configuration;
+  }
+
+  private JiraGlobalConfiguration globalConfiguration(String url) {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setUrl(url);
+    return configuration;
+  }
+}
@@ -28,6 +28,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.jira.backfill.BackfillStatus;
+import sonia.scm.jira.backfill.JiraBackfill;
+import sonia.scm.jira.rest.JiraCircuitBreaker;
+import sonia.scm.jira.storm.ImportStormLog;
 import sonia.scm.repository.Repository;
 import sonia.scm.repository.RepositoryManager;
 import sonia.scm.store.InMemoryConfigurationStoreFactory;
@@ -40,10 +45,17 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SubjectAware(configuration = "classpath:sonia/scm/jira/shiro-001.ini")
@@ -54,19 +66,29 @@ public class JiraConfigurationResourceTest {
   public ShiroRule shiroRule = new ShiroRule();
 
   private RestDispatcher dispatcher;
+  private JiraBackfill backfill;
+  private ImportStormLog importStormLog;
 
   @Before
   public void init() {
     InMemoryConfigurationStoreFactory storeFactory = new InMemoryConfigurationStoreFactory();
-    JiraConfigurationStore context = new JiraConfigurationStore(storeFactory);
+    JiraConfigurationStore context = new JiraConfigurationStore(storeFactory, mock(ScmEventBus.class));
     RepositoryManager repositoryManager = mock(RepositoryManager.class);
+    backfill = mock(JiraBackfill.class);
+    importStormLog = mock(ImportStormLog.class);
     ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
     scmPathInfoStore.set(() -> URI.create("/"));
     JiraGlobalConfigurationMapperImpl jiraGlobalConfigurationMapper = new JiraGlobalConfigurationMapperImpl();
     jiraGlobalConfigurationMapper.setScmPathInfoStore(scmPathInfoStore);
     JiraConfigurationMapperImpl jenkinsConfigurationMapper = new JiraConfigurationMapperImpl();
     jenkinsConfigurationMapper.setScmPathInfoStore(scmPathInfoStore);
-    JiraConfigurationResource resource = new JiraConfigurationResource(context, jiraGlobalConfigurationMapper, jenkinsConfigurationMapper, repositoryManager);
+    CircuitBreakerMapperImpl circuitBreakerMapper = new CircuitBreakerMapperImpl();
+    circuitBreakerMapper.setScmPathInfoStore(scmPathInfoStore);
+    BackfillStatusMapperImpl backfillStatusMapper = new BackfillStatusMapperImpl();
+    backfillStatusMapper.setScmPathInfoStore(scmPathInfoStore);
+    ImportStormLogEntryMapperImpl importStormLogEntryMapper = new ImportStormLogEntryMapperImpl();
+    importStormLogEntryMapper.setScmPathInfoStore(scmPathInfoStore);
+    JiraConfigurationResource resource = new JiraConfigurationResource(context, jiraGlobalConfigurationMapper, jenkinsConfigurationMapper, repositoryManager, new JiraCircuitBreaker(), circuitBreakerMapper, backfill, backfillStatusMapper, importStormLog, importStormLogEntryMapper);
     dispatcher = new RestDispatcher();
     dispatcher.addSingletonResource(resource);
     when(repositoryManager.get(REPOSITORY.getNamespaceAndName())).thenReturn(REPOSITORY);
@@ -107,6 +129,55 @@ public class JiraConfigurationResourceTest {
     assertTrue(readResponse.getContentAsString().contains("\"start\":\"start issue\""));
   }
 
+  @Test
+  @SubjectAware(username = "dent", password = "secret")
+  public void adminShouldGetCircuitBreakers() throws URISyntaxException, UnsupportedEncodingException {
+    MockHttpRequest request = MockHttpRequest.get("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/circuit-breakers");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertTrue(response.getContentAsString().contains("\"self\""));
+    assertTrue(response.getContentAsString().contains("/v2/config/jira/circuit-breakers"));
+  }
+
+  @Test
+  @SubjectAware(username = "trillian", password = "secret")
+  public void normalUserShouldNotGetCircuitBreakers() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/circuit-breakers");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(403, response.getStatus());
+  }
+
+  @Test
+  @SubjectAware(username = "dent", password = "secret")
+  public void adminShouldGetImportStorms() throws URISyntaxException, UnsupportedEncodingException {
+    when(importStormLog.getEntries()).thenReturn(Collections.emptyList());
+    MockHttpRequest request = MockHttpRequest.get("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/import-storms");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertTrue(response.getContentAsString().contains("\"self\""));
+    assertTrue(response.getContentAsString().contains("/v2/config/jira/import-storms"));
+  }
+
+  @Test
+  @SubjectAware(username = "trillian", password = "secret")
+  public void normalUserShouldNotGetImportStorms() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.get("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/import-storms");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(403, response.getStatus());
+  }
+
   @Test
   @SubjectAware(username = "trillian", password = "secret")
   public void normalUserShouldNotGetConfig() throws URISyntaxException {
@@ -142,6 +213,88 @@ public class JiraConfigurationResourceTest {
     assertEquals(404, response.getStatus());
   }
 
+  @Test
+  @SubjectAware(username = "dent", password = "secret")
+  public void adminShouldStartBackfill() throws URISyntaxException, UnsupportedEncodingException {
+    BackfillStatus status = mock(BackfillStatus.class);
+    when(status.isRunning()).thenReturn(true);
+    when(backfill.start(REPOSITORY, true)).thenReturn(Optional.of(status));
+    MockHttpRequest request = MockHttpRequest.post("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/space/X/backfill?restart=true");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_ACCEPTED, response.getStatus());
+    assertTrue(response.getContentAsString().contains("\"self\""));
+    assertTrue(response.getContentAsString().contains("\"cancel\""));
+  }
+
+  @Test
+  @SubjectAware(username = "marvin", password = "secret")
+  public void repositoryOwnerShouldGetBackfillStatusWithoutCancelLink() throws URISyntaxException, UnsupportedEncodingException {
+    BackfillStatus status = mock(BackfillStatus.class);
+    when(status.getProcessedChangesets()).thenReturn(42L);
+    when(status.isRunning()).thenReturn(true);
+    when(backfill.getStatus(REPOSITORY)).thenReturn(Optional.of(status));
+    MockHttpRequest request = MockHttpRequest.get("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/space/X/backfill");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+    assertTrue(response.getContentAsString().contains("\"processedChangesets\":42"));
+    assertTrue(response.getContentAsString().contains("/v2/config/jira/space/X/backfill"));
+    assertFalse(response.getContentAsString().contains("\"cancel\""));
+  }
+
+  @Test
+  @SubjectAware(username = "dent", password = "secret")
+  public void shouldNotStartBackfillTwice() throws URISyntaxException {
+    when(backfill.start(REPOSITORY, false)).thenReturn(Optional.empty());
+    MockHttpRequest request = MockHttpRequest.post("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/space/X/backfill");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_CONFLICT, response.getStatus());
+  }
+
+  @Test
+  @SubjectAware(username = "marvin", password = "secret")
+  public void repositoryOwnerShouldNotStartBackfill() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.post("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/space/X/backfill");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(403, response.getStatus());
+    verify(backfill, never()).start(any(), anyBoolean());
+  }
+
+  @Test
+  @SubjectAware(username = "marvin", password = "secret")
+  public void repositoryOwnerShouldGetEmptyBackfillStatus() throws URISyntaxException {
+    when(backfill.getStatus(REPOSITORY)).thenReturn(Optional.empty());
+    MockHttpRequest request = MockHttpRequest.get("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/space/X/backfill");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_NO_CONTENT, response.getStatus());
+  }
+
+  @Test
+  @SubjectAware(username = "dent", password = "secret")
+  public void adminShouldCancelBackfill() throws URISyntaxException {
+    MockHttpRequest request = MockHttpRequest.delete("/" + JiraConfigurationResource.JIRA_CONFIG_PATH_V2 + "/space/X/backfill");
+    MockHttpResponse response = new MockHttpResponse();
+
+    dispatcher.invoke(request, response);
+
+    assertEquals(HttpServletResponse.SC_NO_CONTENT, response.getStatus());
+    verify(backfill).cancel(REPOSITORY);
+  }
+
   @Test
   @SubjectAware(username = "marvin", password = "secret")
   public void repositoryOwnerShouldGetConfigWithUpdateLink() throws URISyntaxException, UnsupportedEncodingException {
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.HandlerEventType;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryEvent;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SubjectAware(value = "trillian", permissions = {"configuration:write:jira", "repository:jira:*"})
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class JiraConfigurationStoreTest {
+
+  @Mock
+  private ScmEventBus eventBus;
+
+  private InMemoryConfigurationStoreFactory storeFactory;
+
+  private JiraConfigurationStore store;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @BeforeEach
+  void setUpStore() {
+    repository.setId("42");
+    storeFactory = spy(new InMemoryConfigurationStoreFactory());
+    store = new JiraConfigurationStore(storeFactory, eventBus);
+  }
+
+  @Test
+  void shouldFireEventForGlobalConfiguration() {
+    store.setGlobalConfiguration(new JiraGlobalConfiguration());
+
+    JiraConfigurationChangedEvent event = capture();
+    assertThat(event.isGlobal()).isTrue();
+  }
+
+  @Test
+  void shouldFireEventForRepositoryConfiguration() {
+    store.setConfiguration(new JiraConfiguration(), repository);
+
+    JiraConfigurationChangedEvent event = capture();
+    assertThat(event.isGlobal()).isFalse();
+    assertThat(event.getRepository()).isSameAs(repository);
+  }
+
+  @Test
+  void shouldReturnStoredGlobalConfiguration() {
+    JiraGlobalConfiguration first = new JiraGlobalConfiguration();
+    first.setDisableRepositoryConfiguration(true);
+    store.setGlobalConfiguration(first);
+    assertThat(store.getGlobalConfiguration().isDisableRepositoryConfiguration()).isTrue();
+
+    store.setGlobalConfiguration(new JiraGlobalConfiguration());
+
+    assertThat(store.getGlobalConfiguration().isDisableRepositoryConfiguration()).isFalse();
+  }
+
+  @Test
+  void shouldReuseRepositoryStore() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setUrl("https://jira.hitchhiker.com");
+    store.setConfiguration(configuration, repository);
+
+    assertThat(store.getConfiguration(repository).getUrl()).isEqualTo("https://jira.hitchhiker.com");
+    assertThat(store.getConfiguration(repository).getUrl()).isEqualTo("https://jira.hitchhiker.com");
+
+    // one for the global and one for the repository store
+    verify(storeFactory, times(2)).getStore(any());
+  }
+
+  @Test
+  void shouldRemoveStoreOfDeletedRepository() {
+    store.getConfiguration(repository);
+
+    store.onRepositoryEvent(new RepositoryEvent(HandlerEventType.DELETE, repository));
+    store.getConfiguration(repository);
+
+    verify(storeFactory, times(3)).getStore(any());
+  }
+
+  @Test
+  void shouldRemoveStoreOfRenamedRepository() {
+    store.getConfiguration(repository);
+
+    Repository renamed = repository.clone();
+    renamed.setName("hog");
+    store.onRepositoryEvent(new RepositoryEvent(HandlerEventType.MODIFY, renamed, repository));
+    store.getConfiguration(renamed);
+
+    verify(storeFactory, times(3)).getStore(any());
+  }
+
+  @Test
+  void shouldKeepStoreOfModifiedRepository() {
+    store.getConfiguration(repository);
+
+    Repository modified = repository.clone();
+    modified.setDescription("modified");
+    store.onRepositoryEvent(new RepositoryEvent(HandlerEventType.MODIFY, modified, repository));
+    store.getConfiguration(modified);
+
+    verify(storeFactory, times(2)).getStore(any());
+  }
+
+  private JiraConfigurationChangedEvent capture() {
+    ArgumentCaptor<JiraConfigurationChangedEvent> captor = ArgumentCaptor.forClass(JiraConfigurationChangedEvent.class);
+    verify(eventBus).post(captor.capture());
+    return captor.getValue();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.config;
+
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.Repository;
+
+import jakarta.inject.Provider;
+import java.net.URI;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class RepositoryHalEnricherTest {
+
+  @Mock
+  private JiraConfigurationStore configurationStore;
+
+  @Mock
+  private HalAppender appender;
+
+  private final ScmPathInfoStore scmPathInfoStore = new ScmPathInfoStore();
+
+  private final JiraGlobalConfiguration globalConfiguration = new JiraGlobalConfiguration();
+
+  private RepositoryHalEnricher enricher;
+
+  @BeforeEach
+  void setUpEnricher() {
+    scmPathInfoStore.set(() -> URI.create("https://scm.hitchhiker.com/scm/api/"));
+    lenient().when(configurationStore.getGlobalConfiguration()).thenReturn(globalConfiguration);
+    Provider<ScmPathInfoStore> provider = () -> scmPathInfoStore;
+    enricher = new RepositoryHalEnricher(provider, configurationStore);
+  }
+
+  @Test
+  @SubjectAware(value = "trillian", permissions = "repository:jira:*")
+  void shouldAppendLinkForEachRepository() {
+    enricher.enrich(HalEnricherContext.of(repository("1", "hitchhiker", "heart-of-gold")), appender);
+    enricher.enrich(HalEnricherContext.of(repository("2", "hitchhiker", "restaurant")), appender);
+
+    verify(appender).appendLink("jiraConfig", "https://scm.hitchhiker.com/scm/api/v2/config/jira/hitchhiker/heart-of-gold");
+    verify(appender).appendLink("jiraConfig", "https://scm.hitchhiker.com/scm/api/v2/config/jira/hitchhiker/restaurant");
+  }
+
+  @Test
+  @SubjectAware(value = "trillian", permissions = "repository:jira:*")
+  void shouldEscapePathSegments() {
+    enricher.enrich(HalEnricherContext.of(repository("1", "hitchhiker", "heart of/gold")), appender);
+
+    verify(appender).appendLink("jiraConfig", "https://scm.hitchhiker.com/scm/api/v2/config/jira/hitchhiker/heart%20of%2Fgold");
+  }
+
+  @Test
+  @SubjectAware(value = "trillian", permissions = "repository:jira:*")
+  void shouldRebuildTemplateForChangedBaseUri() {
+    enricher.enrich(HalEnricherContext.of(repository("1", "hitchhiker", "heart-of-gold")), appender);
+
+    scmPathInfoStore.set(() -> URI.create("/scm/api/"));
+    enricher.enrich(HalEnricherContext.of(repository("1", "hitchhiker", "heart-of-gold")), appender);
+
+    verify(appender).appendLink("jiraConfig", "/scm/api/v2/config/jira/hitchhiker/heart-of-gold");
+  }
+
+  @Test
+  @SubjectAware(value = "trillian", permissions = "repository:jira:*")
+  void shouldNotAppendLinkIfRepositoryConfigurationIsDisabled() {
+    globalConfiguration.setDisableRepositoryConfiguration(true);
+
+    enricher.enrich(HalEnricherContext.of(repository("1", "hitchhiker", "heart-of-gold")), appender);
+
+    verify(appender, never()).appendLink(anyString(), anyString());
+  }
+
+  @Test
+  @SubjectAware(value = "trillian", permissions = "repository:read:*")
+  void shouldNotAppendLinkWithoutPermission() {
+    enricher.enrich(HalEnricherContext.of(repository("1", "hitchhiker", "heart-of-gold")), appender);
+
+    verify(appender, never()).appendLink(anyString(), anyString());
+  }
+
+  private Repository repository(String id, String namespace, String name) {
+    return new Repository(id, "git", namespace, name);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import org.junit.jupiter.api.Test;
+import sonia.scm.store.Blob;
+import sonia.scm.store.InMemoryBlobStore;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentFingerprintIndexTest {
+
+  private final InMemoryBlobStore blobStore = new InMemoryBlobStore();
+
+  @Test
+  void shouldContainAddedFingerprints() {
+    CommentFingerprintIndex index = index();
+
+    index.add(42L);
+
+    assertThat(index.contains(42L)).isTrue();
+    assertThat(index.contains(21L)).isFalse();
+  }
+
+  @Test
+  void shouldRestoreFingerprintsAfterFlush() {
+    CommentFingerprintIndex index = index();
+    index.add(42L);
+    index.flush();
+
+    CommentFingerprintIndex restored = index();
+
+    assertThat(restored.contains(42L)).isTrue();
+    assertThat(restored.contains(21L)).isFalse();
+  }
+
+  @Test
+  void shouldWriteChangesAfterPreviousFlush() {
+    CommentFingerprintIndex index = index();
+    index.add(42L);
+    index.flush();
+    index.add(21L);
+    index.flush();
+
+    CommentFingerprintIndex restored = index();
+
+    assertThat(restored.contains(42L)).isTrue();
+    assertThat(restored.contains(21L)).isTrue();
+  }
+
+  @Test
+  void shouldNotClaimFingerprintTwice() {
+    CommentFingerprintIndex index = index();
+
+    assertThat(index.claim(42L)).isTrue();
+    assertThat(index.claim(42L)).isFalse();
+    assertThat(index.contains(42L)).isFalse();
+  }
+
+  @Test
+  void shouldAddCompletedFingerprint() {
+    CommentFingerprintIndex index = index();
+    index.claim(42L);
+
+    index.complete(42L);
+
+    assertThat(index.contains(42L)).isTrue();
+    assertThat(index.claim(42L)).isFalse();
+  }
+
+  @Test
+  void shouldClaimReleasedFingerprintAgain() {
+    CommentFingerprintIndex index = index();
+    index.claim(42L);
+
+    index.release(42L);
+
+    assertThat(index.contains(42L)).isFalse();
+    assertThat(index.claim(42L)).isTrue();
+  }
+
+  @Test
+  void shouldKeepFingerprintsOfThePreviousGeneration() {
+    CommentFingerprintIndex index = index();
+    for (long i = 0; i < 150; i++) {
+      index.add(i);
+    }
+
+    // the window holds 10 fingerprints, the first generation was full after 100
+    assertThat(index.contains(0L)).isTrue();
+    assertThat(index.contains(149L)).isTrue();
+  }
+
+  @Test
+  void shouldForgetFingerprintsOlderThanTwoGenerations() {
+    CommentFingerprintIndex index = index();
+    for (long i = 0; i < 300; i++) {
+      index.add(i);
+    }
+
+    long forgotten = 0;
+    for (long i = 0; i < 100; i++) {
+      if (!index.contains(i)) {
+        forgotten++;
+      }
+    }
+    assertThat(forgotten).isGreaterThan(90);
+    assertThat(index.contains(299L)).isTrue();
+  }
+
+  @Test
+  void shouldStartEmptyIfBlobIsCorrupt() throws IOException {
+    Blob blob = blobStore.create("index");
+    try (OutputStream output = blob.getOutputStream()) {
+      output.write(new byte[]{0, 0, 0, 1, 42});
+    }
+    blob.commit();
+
+    CommentFingerprintIndex index = index();
+    index.add(42L);
+
+    assertThat(index.contains(42L)).isTrue();
+  }
+
+  private CommentFingerprintIndex index() {
+    return new CommentFingerprintIndex(new InMemoryBlobStoreFactory(blobStore), 10, 100);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommentFingerprintsTest {
+
+  private static final String COMMENT = "[SCM] Issue referenced by commit of repository hitchhiker/hog\n\n"
+    + "Fix the drive\n\n"
+    + "*Author:* Trillian\n"
+    + "  *Pushed by:* trillian\n\n"
+    + "[Changes|https://scm.hitchhiker.com/repo/hitchhiker/hog/code/changeset/abc]";
+
+  @Test
+  void shouldIgnorePrincipalAndDescription() {
+    String pushedByOther = COMMENT.replace("*Pushed by:* trillian", "*Pushed by:* dent");
+
+    assertThat(CommentFingerprints.of("42", "HOG-1", pushedByOther))
+      .isEqualTo(CommentFingerprints.of("42", "HOG-1", COMMENT));
+  }
+
+  @Test
+  void shouldDistinguishChangesets() {
+    String otherChangeset = COMMENT.replace("changeset/abc", "changeset/def");
+
+    assertThat(CommentFingerprints.of("42", "HOG-1", otherChangeset))
+      .isNotEqualTo(CommentFingerprints.of("42", "HOG-1", COMMENT));
+  }
+
+  @Test
+  void shouldDistinguishRepositoriesAndIssues() {
+    long fingerprint = CommentFingerprints.of("42", "HOG-1", COMMENT);
+
+    assertThat(CommentFingerprints.of("21", "HOG-1", COMMENT)).isNotEqualTo(fingerprint);
+    assertThat(CommentFingerprints.of("42", "HOG-2", COMMENT)).isNotEqualTo(fingerprint);
+  }
+
+  @Test
+  void shouldDistinguishKindOfReference() {
+    String pullRequest = COMMENT.replace("Issue referenced by commit", "Issue referenced by comment");
+
+    assertThat(CommentFingerprints.of("42", "HOG-1", pullRequest))
+      .isNotEqualTo(CommentFingerprints.of("42", "HOG-1", COMMENT));
+  }
+
+  @Test
+  void shouldUseContentWithoutLinks() {
+    assertThat(CommentFingerprints.of("42", "HOG-1", "Awesome"))
+      .isNotEqualTo(CommentFingerprints.of("42", "HOG-1", "Incredible"));
+  }
+
+  @Test
+  void shouldFindLinkedChangeset() {
+    assertThat(CommentFingerprints.changesetId(COMMENT)).contains("abc");
+    assertThat(CommentFingerprints.changesetId("Awesome")).isEmpty();
+  }
+
+  @Test
+  void shouldIncludeIssueInPatchFingerprint() {
+    assertThat(CommentFingerprints.ofPatch("42", "HOG-1", 42L)).isEqualTo(CommentFingerprints.ofPatch("42", "HOG-1", 42L));
+    assertThat(CommentFingerprints.ofPatch("42", "HOG-1", 42L)).isNotEqualTo(CommentFingerprints.ofPatch("21", "HOG-1", 42L));
+    assertThat(CommentFingerprints.ofPatch("42", "HOG-1", 42L)).isNotEqualTo(CommentFingerprints.ofPatch("42", "HOG-2", 42L));
+    assertThat(CommentFingerprints.ofPatch("42", "HOG-1", 42L)).isNotEqualTo(CommentFingerprints.ofPatch("42", "HOG-1", 21L));
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.jira.aggregation.AggregatingCommentator;
+import sonia.scm.jira.aggregation.CommentAggregator;
+import sonia.scm.jira.outbox.JiraOutbox;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.store.InMemoryBlobStore;
+import sonia.scm.store.InMemoryBlobStoreFactory;
+
+import java.io.IOException;
+import java.util.OptionalLong;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeduplicatingCommentatorTest {
+
+  @Mock
+  private Commentator delegate;
+
+  @Mock
+  private PatchIds patchIds;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private CommentFingerprintIndex index;
+
+  private DeduplicatingCommentator commentator;
+
+  @BeforeEach
+  void setUpCommentator() {
+    repository.setId("42");
+    index = new CommentFingerprintIndex(new InMemoryBlobStoreFactory(new InMemoryBlobStore()), 10, 100);
+    commentator = new DeduplicatingCommentator(index, patchIds, repository, (issueKey, content, callback) -> {
+      try {
+        delegate.comment(issueKey, content);
+      } catch (IOException ex) {
+        callback.failed();
+        throw ex;
+      }
+      callback.delivered();
+    });
+  }
+
+  @Test
+  void shouldSkipKnownReferences() throws IOException {
+    commentator.comment("HOG-1", "Awesome");
+    commentator.comment("HOG-1", "Awesome");
+    commentator.comment("HOG-2", "Awesome");
+
+    verify(delegate).comment("HOG-1", "Awesome");
+    verify(delegate).comment("HOG-2", "Awesome");
+  }
+
+  @Test
+  void shouldNotRecordFailedComments() throws IOException {
+    doThrow(new IOException("jira is down")).doNothing().when(delegate).comment("HOG-1", "Awesome");
+
+    assertThatThrownBy(() -> commentator.comment("HOG-1", "Awesome")).isInstanceOf(IOException.class);
+    commentator.comment("HOG-1", "Awesome");
+
+    verify(delegate, times(2)).comment("HOG-1", "Awesome");
+  }
+
+  @Test
+  void shouldSkipReferenceWhichIsCommentedConcurrently() throws IOException {
+    doAnswer(invocation -> {
+      commentator.comment("HOG-1", "Awesome");
+      return null;
+    }).when(delegate).comment("HOG-1", "Awesome");
+
+    commentator.comment("HOG-1", "Awesome");
+
+    verify(delegate).comment("HOG-1", "Awesome");
+  }
+
+  @Test
+  void shouldCommentAgainIfAggregatedCommentFailed() throws IOException {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    JiraOutbox outbox = mock(JiraOutbox.class);
+    CommentAggregator aggregator = new CommentAggregator(outbox);
+    aggregator.start(executor);
+    DeduplicatingCommentator aggregating = new DeduplicatingCommentator(
+      index, patchIds, repository, new AggregatingCommentator(aggregator, repository, delegate)
+    );
+    when(patchIds.get(repository, "abc")).thenReturn(OptionalLong.empty());
+    doThrow(new IllegalStateException("store is broken")).doNothing()
+      .when(outbox).comment(repository, "HOG-1", changesetComment("abc"));
+
+    aggregating.comment("HOG-1", changesetComment("abc"));
+    aggregator.stop();
+    aggregator.start(executor);
+    aggregating.comment("HOG-1", changesetComment("abc"));
+    aggregator.stop();
+
+    verify(outbox, times(2)).comment(repository, "HOG-1", changesetComment("abc"));
+  }
+
+  @Test
+  void shouldNotRecordReferenceBeforeAggregatedCommentIsPosted() throws IOException {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    CommentAggregator aggregator = new CommentAggregator(mock(JiraOutbox.class));
+    aggregator.start(executor);
+    DeduplicatingCommentator aggregating = new DeduplicatingCommentator(
+      index, patchIds, repository, new AggregatingCommentator(aggregator, repository, delegate)
+    );
+    when(patchIds.get(repository, "abc")).thenReturn(OptionalLong.empty());
+
+    aggregating.comment("HOG-1", changesetComment("abc"));
+
+    assertThat(index.contains(CommentFingerprints.of("42", "HOG-1", changesetComment("abc")))).isFalse();
+    aggregator.stop();
+    assertThat(index.contains(CommentFingerprints.of("42", "HOG-1", changesetComment("abc")))).isTrue();
+  }
+
+  @Test
+  void shouldSkipChangesetsWithSamePatchForTheSameIssue() throws IOException {
+    when(patchIds.get(repository, "abc")).thenReturn(OptionalLong.of(42L));
+    when(patchIds.get(repository, "cherry")).thenReturn(OptionalLong.of(42L));
+
+    commentator.comment("HOG-1", changesetComment("abc"));
+    commentator.comment("HOG-1", changesetComment("cherry"));
+
+    verify(delegate).comment(eq("HOG-1"), anyString());
+  }
+
+  @Test
+  void shouldCommentSamePatchForOtherIssues() throws IOException {
+    when(patchIds.get(repository, "abc")).thenReturn(OptionalLong.of(42L));
+    when(patchIds.get(repository, "cherry")).thenReturn(OptionalLong.of(42L));
+
+    commentator.comment("HOG-1", changesetComment("abc"));
+    commentator.comment("HOG-2", changesetComment("cherry"));
+
+    verify(delegate).comment("HOG-1", changesetComment("abc"));
+    verify(delegate).comment("HOG-2", changesetComment("cherry"));
+  }
+
+  @Test
+  void shouldCommentChangesetsWithDifferentPatches() throws IOException {
+    when(patchIds.get(repository, "abc")).thenReturn(OptionalLong.of(42L));
+    when(patchIds.get(repository, "def")).thenReturn(OptionalLong.empty());
+
+    commentator.comment("HOG-1", changesetComment("abc"));
+    commentator.comment("HOG-1", changesetComment("def"));
+
+    verify(delegate, times(2)).comment(eq("HOG-1"), anyString());
+  }
+
+  private String changesetComment(String changesetId) {
+    return "[SCM] Issue referenced by commit of repository hitchhiker/HeartOfGold\n\n"
+      + "[Changes|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/code/changeset/" + changesetId + "]";
+  }
+}
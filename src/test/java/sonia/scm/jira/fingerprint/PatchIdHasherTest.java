@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PatchIdHasherTest {
+
+  private static final String DIFF = "diff --git a/README.md b/README.md\n"
+    + "index 1a2b3c4..5d6e7f8 100644\n"
+    + "--- a/README.md\n"
+    + "+++ b/README.md\n"
+    + "@@ -1,3 +1,3 @@\n"
+    + " # Heart of Gold\n"
+    + "-Infinite improbability drive\n"
+    + "+Infinite  improbability drive, version 2\n"
+    + " Don't panic\n"
+    + "diff --git a/src/Drive.java b/src/Drive.java\n"
+    + "index 9a8b7c6..5d4e3f2 100644\n"
+    + "--- a/src/Drive.java\n"
+    + "+++ b/src/Drive.java\n"
+    + "@@ -10,1 +10,1 @@\n"
+    + "-  return 42;\n"
+    + "+  return 21;\n";
+
+  @Test
+  void shouldIgnoreLineNumbersObjectIdsAndContext() {
+    String rebased = DIFF
+      .replace("index 1a2b3c4..5d6e7f8", "index ffffff1..eeeeee2")
+      .replace("@@ -10,1 +10,1 @@", "@@ -20,1 +20,1 @@")
+      .replace(" Don't panic", " Mostly harmless");
+
+    assertThat(patchId(rebased)).isEqualTo(patchId(DIFF));
+  }
+
+  @Test
+  void shouldIgnoreWhitespace() {
+    String reformatted = DIFF.replace("+Infinite  improbability drive", "+Infinite improbability  drive");
+
+    assertThat(patchId(reformatted)).isEqualTo(patchId(DIFF));
+  }
+
+  @Test
+  void shouldIgnoreOrderOfFiles() {
+    int secondFile = DIFF.indexOf("diff --git a/src");
+    String reordered = DIFF.substring(secondFile) + DIFF.substring(0, secondFile);
+
+    assertThat(patchId(reordered)).isEqualTo(patchId(DIFF));
+  }
+
+  @Test
+  void shouldDistinguishChanges() {
+    String other = DIFF.replace("+  return 21;", "+  return 7;");
+
+    assertThat(patchId(other)).isNotEqualTo(patchId(DIFF));
+  }
+
+  @Test
+  void shouldDistinguishFiles() {
+    String other = DIFF.replace("src/Drive.java", "src/Engine.java");
+
+    assertThat(patchId(other)).isNotEqualTo(patchId(DIFF));
+  }
+
+  @Test
+  void shouldReturnEmptyPatchIdWithoutChanges() {
+    assertThat(patchId("")).isEmpty();
+    assertThat(patchId("diff --git a/bin b/bin\nBinary files differ\n")).isEmpty();
+  }
+
+  @Test
+  void shouldHandleMissingNewlineAtTheEnd() {
+    assertThat(patchId(DIFF.substring(0, DIFF.length() - 1))).isEqualTo(patchId(DIFF));
+  }
+
+  @Test
+  void shouldAbortDiffExceedingMaximumSize() {
+    PatchIdHasher hasher = new PatchIdHasher(16);
+    byte[] bytes = DIFF.getBytes(StandardCharsets.UTF_8);
+
+    assertThrows(PatchIdHasher.DiffTooLargeException.class, () -> hasher.write(bytes, 0, bytes.length));
+  }
+
+  private OptionalLong patchId(String diff) {
+    PatchIdHasher hasher = new PatchIdHasher(Long.MAX_VALUE);
+    byte[] bytes = diff.getBytes(StandardCharsets.UTF_8);
+    // write in small chunks to cover lines spanning multiple writes
+    try {
+      for (int offset = 0; offset < bytes.length; offset += 7) {
+        hasher.write(bytes, offset, Math.min(7, bytes.length - offset));
+      }
+    } catch (IOException ex) {
+      throw new IllegalStateException(ex);
+    }
+    return hasher.patchId();
+  }
+}
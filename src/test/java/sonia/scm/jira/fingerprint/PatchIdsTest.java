@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.fingerprint;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.DiffCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PatchIdsTest {
+
+  @Mock
+  private RepositoryServiceFactory serviceFactory;
+
+  @Mock
+  private RepositoryService service;
+
+  @Mock(answer = Answers.RETURNS_SELF)
+  private DiffCommandBuilder diffCommand;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private PatchIds patchIds;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    when(serviceFactory.create(repository)).thenReturn(service);
+    patchIds = new PatchIds(serviceFactory);
+  }
+
+  @Test
+  void shouldComputePatchIdOnlyOnce() throws IOException {
+    when(service.isSupported(Command.DIFF)).thenReturn(true);
+    when(service.getDiffCommand()).thenReturn(diffCommand);
+    doAnswer(invocation -> {
+      OutputStream output = invocation.getArgument(0);
+      output.write("diff --git a/a b/a\n--- a/a\n+++ b/a\n-old\n+new\n".getBytes(StandardCharsets.UTF_8));
+      return diffCommand;
+    }).when(diffCommand).retrieveContent(any());
+
+    assertThat(patchIds.get(repository, "abc")).isPresent();
+    assertThat(patchIds.get(repository, "abc")).isPresent();
+
+    verify(diffCommand).setRevision("abc");
+    verify(serviceFactory, times(1)).create(repository);
+  }
+
+  @Test
+  void shouldReturnEmptyPatchIdWithoutDiffSupport() {
+    when(service.isSupported(Command.DIFF)).thenReturn(false);
+
+    assertThat(patchIds.get(repository, "abc")).isEmpty();
+  }
+
+  @Test
+  void shouldSkipPatchIdOfLargeDiff() throws IOException {
+    when(service.isSupported(Command.DIFF)).thenReturn(true);
+    when(service.getDiffCommand()).thenReturn(diffCommand);
+    doAnswer(invocation -> {
+      OutputStream output = invocation.getArgument(0);
+      output.write("diff --git a/a b/a\n--- a/a\n+++ b/a\n".getBytes(StandardCharsets.UTF_8));
+      output.write(new byte[(int) PatchIds.MAXIMUM_DIFF_SIZE]);
+      return diffCommand;
+    }).when(diffCommand).retrieveContent(any());
+
+    assertThat(patchIds.get(repository, "abc")).isEmpty();
+  }
+
+  @Test
+  void shouldReturnEmptyPatchIdOnFailure() throws IOException {
+    when(service.isSupported(Command.DIFF)).thenReturn(true);
+    when(service.getDiffCommand()).thenReturn(diffCommand);
+    doThrow(new IOException("broken")).when(diffCommand).retrieveContent(any());
+
+    assertThat(patchIds.get(repository, "abc")).isEmpty();
+  }
+}
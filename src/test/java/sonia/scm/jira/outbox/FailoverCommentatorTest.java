@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.JiraCommentator;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FailoverCommentatorTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @Mock
+  private RestApi restApi;
+
+  @Mock
+  private JiraOutbox outbox;
+
+  private FailoverCommentator commentator;
+
+  @BeforeEach
+  void setUp() {
+    commentator = new FailoverCommentator(outbox, repository, new JiraCommentator(restApi, new JiraConfiguration()));
+  }
+
+  @Test
+  void shouldCommentInJira() throws IOException {
+    commentator.comment("SCM-42", "Awesome");
+
+    verify(restApi).addComment(any(), any());
+    verify(outbox, never()).comment(any(), anyString(), anyString());
+  }
+
+  @Test
+  void shouldQueueCommentIfJiraIsUnavailable() throws IOException {
+    doThrow(new JiraUnavailableException("circuit breaker is open", 1000L)).when(restApi).addComment(any(), any());
+
+    commentator.comment("SCM-42", "Awesome");
+
+    verify(outbox).comment(repository, "SCM-42", "Awesome");
+  }
+
+  @Test
+  void shouldQueueCommentIfJiraThrottlesTheRequests() throws IOException {
+    doThrow(new JiraRateLimitException("too many requests", 1000L)).when(restApi).addComment(any(), any());
+
+    commentator.comment("SCM-42", "Awesome");
+
+    verify(outbox).comment(repository, "SCM-42", "Awesome");
+  }
+
+  @Test
+  void shouldPassOtherFailures() throws IOException {
+    doThrow(new JiraException("issue does not exist", 404)).when(restApi).addComment(any(), any());
+
+    assertThatThrownBy(() -> commentator.comment("SCM-42", "Awesome")).isInstanceOf(JiraException.class);
+
+    verify(outbox, never()).comment(any(), anyString(), anyString());
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.JiraStateChanger;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestTransition;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FailoverStateChangerTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @Mock
+  private RestApi restApi;
+
+  @Mock
+  private JiraOutbox outbox;
+
+  private FailoverStateChanger stateChanger;
+
+  @BeforeEach
+  void setUp() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setAutoCloseWords(ImmutableMap.of("fix,fixes", "done"));
+    JiraStateChanger jiraStateChanger = new JiraStateChanger(
+      restApi, configuration, new SimpleMeterRegistry().counter("avoided")
+    );
+    stateChanger = new FailoverStateChanger(outbox, repository, jiraStateChanger);
+  }
+
+  @Test
+  void shouldReturnKeyWordsOfJira() throws IOException {
+    when(restApi.getTransitions("SCM-42")).thenReturn(ImmutableList.of(new RestTransition("t-1", "Close")));
+
+    Iterable<String> keyWords = stateChanger.getKeyWords("SCM-42");
+
+    assertThat(keyWords).containsOnly("fix", "fixes", "close");
+  }
+
+  @Test
+  void shouldReturnMappedKeyWordsIfJiraIsUnavailable() throws IOException {
+    when(restApi.getTransitions("SCM-42")).thenThrow(new JiraUnavailableException("circuit breaker is open", 1000L));
+
+    Iterable<String> keyWords = stateChanger.getKeyWords("SCM-42");
+
+    assertThat(keyWords).containsOnly("fix", "fixes");
+  }
+
+  @Test
+  void shouldChangeStateInJira() throws IOException {
+    when(restApi.getTransitions("SCM-42")).thenReturn(ImmutableList.of(new RestTransition("t-1", "Done")));
+
+    stateChanger.changeState("SCM-42", "fixes");
+
+    verify(restApi).changeState("SCM-42", "t-1");
+    verify(outbox, never()).changeState(any(), anyString(), anyString());
+  }
+
+  @Test
+  void shouldQueueStateChangeIfJiraIsUnavailable() throws IOException {
+    when(restApi.getTransitions("SCM-42")).thenThrow(new JiraUnavailableException("circuit breaker is open", 1000L));
+
+    stateChanger.changeState("SCM-42", "fixes");
+
+    verify(outbox).changeState(repository, "SCM-42", "fixes");
+  }
+
+  @Test
+  void shouldQueueStateChangeIfJiraThrottlesTheRequests() throws IOException {
+    when(restApi.getTransitions("SCM-42")).thenThrow(new JiraRateLimitException("too many requests", 1000L));
+
+    stateChanger.changeState("SCM-42", "fixes");
+
+    verify(outbox).changeState(repository, "SCM-42", "fixes");
+  }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.rest.JiraRateLimitException;
+import sonia.scm.jira.rest.JiraUnavailableException;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JiraOutboxTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private final InMemoryDataStore<OutboxEntry> store = new InMemoryDataStore<>();
+
+  @Mock
+  private OutboxDelivery delivery;
+
+  @Mock
+  private ScheduledExecutorService executor;
+
+  @Mock
+  private OutboxLanes lanes;
+
+  @Mock
+  private Clock clock;
+
+  private JiraOutbox outbox;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(clock.millis()).thenReturn(1000L);
+    outbox = new JiraOutbox(new InMemoryDataStoreFactory(store), delivery, lanes, clock);
+    repository.setId("42");
+  }
+
+  @AfterEach
+  void tearDown() {
+    outbox.stop();
+  }
+
+  @Test
+  void shouldStoreEntries() {
+    outbox.comment(repository, "SCM-42", "Awesome");
+    outbox.changeState(repository, "SCM-42", "done");
+
+    assertThat(store.getAll().values())
+      .extracting("type", "repositoryId", "issueKey", "content")
+      .containsExactlyInAnyOrder(
+        tuple(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome"),
+        tuple(OutboxEntry.Type.STATE_CHANGE, "42", "SCM-42", "done")
+      );
+  }
+
+  @Test
+  void shouldScheduleRecoveredEntriesOnStart() {
+    outbox.comment(repository, "SCM-42", "Awesome");
+    outbox.comment(repository, "SCM-21", "Incredible");
+
+    outbox.start(executor);
+
+    verify(executor, times(2)).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldAttachCommentToStateChange() {
+    outbox.changeState(repository, "SCM-42", "done");
+    outbox.comment(repository, "SCM-42", "State changed");
+    outbox.comment(repository, "SCM-42", "Awesome");
+
+    assertThat(store.getAll().values())
+      .extracting("type", "content", "comment")
+      .containsExactlyInAnyOrder(
+        tuple(OutboxEntry.Type.STATE_CHANGE, "done", "State changed"),
+        tuple(OutboxEntry.Type.COMMENT, "Awesome", null)
+      );
+  }
+
+  @Test
+  void shouldNotAttachCommentOfAnotherThreadToStateChange() throws InterruptedException {
+    outbox.changeState(repository, "SCM-42", "done");
+    Thread concurrentPush = new Thread(() -> outbox.comment(repository, "SCM-42", "Other push"));
+    concurrentPush.start();
+    concurrentPush.join();
+    outbox.comment(repository, "SCM-42", "State changed");
+
+    assertThat(store.getAll().values())
+      .extracting("type", "content", "comment")
+      .containsExactlyInAnyOrder(
+        tuple(OutboxEntry.Type.STATE_CHANGE, "done", "State changed"),
+        tuple(OutboxEntry.Type.COMMENT, "Other push", null)
+      );
+  }
+
+  @Test
+  void shouldQueueCommentOfFailedStateChangeSeparately() throws IOException {
+    outbox.changeState(repository, "SCM-42", "done");
+    outbox.comment(repository, "SCM-42", "State changed");
+    String id = store.getAll().keySet().iterator().next();
+    doThrow(new JiraException("could not find transition with name done at issue SCM-42"))
+      .when(delivery).deliver(any());
+
+    when(clock.millis()).thenReturn(1000L + JiraOutbox.AGGREGATION_WINDOW);
+    outbox.process(id);
+
+    assertThat(store.getAll().values())
+      .extracting("type", "content", "comment")
+      .containsExactly(tuple(OutboxEntry.Type.COMMENT, "State changed", null));
+  }
+
+  @Test
+  void shouldNotAttachCommentToDeliveredStateChange() throws IOException {
+    outbox.changeState(repository, "SCM-42", "done");
+    String id = store.getAll().keySet().iterator().next();
+
+    when(clock.millis()).thenReturn(1000L + JiraOutbox.AGGREGATION_WINDOW);
+    outbox.process(id);
+    outbox.comment(repository, "SCM-42", "State changed");
+
+    assertThat(store.getAll().values())
+      .extracting("type", "content")
+      .containsExactly(tuple(OutboxEntry.Type.COMMENT, "State changed"));
+  }
+
+  @Test
+  void shouldDelayDeliveryUntilAggregationWindowIsClosed() throws IOException {
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L, 2000L));
+
+    outbox.process(id);
+
+    verify(delivery, never()).deliver(any());
+    assertThat(store.get(id)).isNotNull();
+  }
+
+  @Test
+  void shouldRemoveDeliveredEntries() throws IOException {
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+
+    outbox.process(id);
+
+    verify(delivery).deliver(any());
+    assertThat(store.getAll()).isEmpty();
+  }
+
+  @Test
+  void shouldRetryWithBackoff() throws IOException {
+    outbox.start(executor);
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+    doThrow(new IOException("jira is down")).when(delivery).deliver(any());
+
+    outbox.process(id);
+    outbox.process(id);
+
+    OutboxEntry entry = store.get(id);
+    assertThat(entry.getAttempts()).isEqualTo(2);
+    assertThat(entry.getNextAttempt()).isEqualTo(1000L + 60_000L);
+    verify(executor).schedule(any(Runnable.class), eq(30_000L), eq(TimeUnit.MILLISECONDS));
+    verify(executor).schedule(any(Runnable.class), eq(60_000L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldRescheduleThrottledEntriesWithoutCountingAttempts() throws IOException {
+    outbox.start(executor);
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+    doThrow(new JiraRateLimitException("slow down", 120_000L)).when(delivery).deliver(any());
+
+    outbox.process(id);
+
+    OutboxEntry entry = store.get(id);
+    assertThat(entry.getAttempts()).isZero();
+    assertThat(entry.getNextAttempt()).isEqualTo(121_000L);
+    verify(executor).schedule(any(Runnable.class), eq(120_000L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldPostponeEntriesWhileJiraIsUnavailable() throws IOException {
+    outbox.start(executor);
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.STATE_CHANGE, "42", "SCM-42", "done", 1000L));
+    doThrow(new JiraUnavailableException("circuit open", 30_000L)).when(delivery).deliver(any());
+
+    outbox.process(id);
+
+    OutboxEntry entry = store.get(id);
+    assertThat(entry.getAttempts()).isZero();
+    assertThat(entry.getNextAttempt()).isEqualTo(31_000L);
+    verify(executor).schedule(any(Runnable.class), eq(30_000L), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldRetryOnServerErrors() throws IOException {
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+    doThrow(new JiraException("bad gateway", 502)).when(delivery).deliver(any());
+
+    outbox.process(id);
+
+    assertThat(store.get(id)).isNotNull();
+  }
+
+  @Test
+  void shouldDropRejectedEntries() throws IOException {
+    outbox.start(executor);
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+    doThrow(new JiraException("not found", 404)).when(delivery).deliver(any());
+
+    outbox.process(id);
+
+    assertThat(store.getAll()).isEmpty();
+    verify(executor, times(0)).schedule(any(Runnable.class), anyLong(), any());
+  }
+
+  @Test
+  void shouldDispatchDueEntriesToTheLaneOfTheIssue() {
+    outbox.start(executor);
+    outbox.comment(repository, "SCM-42", "Awesome");
+    when(lanes.submit(eq("SCM-42"), any())).thenReturn(true);
+
+    runScheduled(0L);
+
+    verify(lanes).submit(eq("SCM-42"), any(Runnable.class));
+  }
+
+  @Test
+  void shouldDispatchAgainIfLaneIsFull() {
+    outbox.start(executor);
+    outbox.comment(repository, "SCM-42", "Awesome");
+    when(lanes.submit(eq("SCM-42"), any())).thenReturn(false);
+
+    runScheduled(0L);
+
+    verify(executor).schedule(any(Runnable.class), eq(JiraOutbox.BACKPRESSURE_DELAY), eq(TimeUnit.MILLISECONDS));
+    assertThat(store.getAll()).hasSize(1);
+  }
+
+  @Test
+  void shouldNotDeliverBeforeOlderUpdatesOfTheSameIssue() throws IOException {
+    // the comment is still open for aggregation, when the state change is due
+    String commentId = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L, 15_000L));
+    String stateChangeId = store.put(new OutboxEntry(OutboxEntry.Type.STATE_CHANGE, "42", "SCM-42", "done", 2000L, 11_000L));
+    outbox.start(executor);
+
+    when(clock.millis()).thenReturn(11_000L);
+    outbox.process(stateChangeId);
+
+    OutboxEntry stateChange = store.get(stateChangeId);
+    assertThat(stateChange.getAttempts()).isZero();
+    assertThat(stateChange.getNextAttempt()).isEqualTo(15_000L + JiraOutbox.ORDERING_DELAY);
+    verify(delivery, never()).deliver(any());
+
+    when(clock.millis()).thenReturn(stateChange.getNextAttempt());
+    outbox.process(commentId);
+    outbox.process(stateChangeId);
+
+    ArgumentCaptor<OutboxEntry> captor = ArgumentCaptor.forClass(OutboxEntry.class);
+    verify(delivery, times(2)).deliver(captor.capture());
+    assertThat(captor.getAllValues())
+      .extracting("type")
+      .containsExactly(OutboxEntry.Type.COMMENT, OutboxEntry.Type.STATE_CHANGE);
+    assertThat(store.getAll()).isEmpty();
+  }
+
+  @Test
+  void shouldNotWaitForOlderUpdatesWhichFailed() throws IOException {
+    String commentId = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+    String stateChangeId = store.put(new OutboxEntry(OutboxEntry.Type.STATE_CHANGE, "42", "SCM-42", "done", 2000L));
+    outbox.start(executor);
+    when(clock.millis()).thenReturn(2000L);
+
+    doThrow(new JiraException("bad gateway", 502)).when(delivery).deliver(any());
+    outbox.process(commentId);
+    doNothing().when(delivery).deliver(any());
+    outbox.process(stateChangeId);
+
+    verify(delivery, times(2)).deliver(any());
+    assertThat(store.getAll()).containsOnlyKeys(commentId);
+  }
+
+  @Test
+  void shouldRetryFailedEntriesUntilTheyAreDelivered() throws IOException {
+    String id = store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-42", "Awesome", 1000L));
+    doThrow(new JiraException("bad gateway", 502)).when(delivery).deliver(any());
+
+    for (int i = 0; i < 50; i++) {
+      when(clock.millis()).thenReturn(1000L + TimeUnit.DAYS.toMillis(i));
+      outbox.process(id);
+    }
+
+    verify(delivery, times(50)).deliver(any());
+    assertThat(store.getAll()).containsOnlyKeys(id);
+    assertThat(store.get(id).getAttempts()).isEqualTo(50);
+  }
+
+  @Test
+  void shouldKeepUpdatesInStoreIfOutboxIsFull() {
+    outbox.start(executor);
+    for (int i = 0; i < JiraOutbox.MAXIMUM_ENTRIES; i++) {
+      outbox.comment(repository, "SCM-" + i, "Awesome");
+    }
+
+    outbox.comment(repository, "HOG-1", "Kept");
+    outbox.changeState(repository, "HOG-1", "done");
+
+    assertThat(store.getAll()).hasSize(JiraOutbox.MAXIMUM_ENTRIES + 2);
+    verify(executor, times(JiraOutbox.MAXIMUM_ENTRIES)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldScheduleKeptUpdatesIfOutboxHasRoomAgain() throws IOException {
+    outbox.start(executor);
+    for (int i = 0; i < JiraOutbox.MAXIMUM_ENTRIES; i++) {
+      outbox.comment(repository, "SCM-" + i, "Awesome");
+    }
+    when(clock.millis()).thenReturn(2000L);
+    outbox.comment(repository, "HOG-1", "Kept");
+
+    List<String> delivered = store.getAll().entrySet()
+      .stream()
+      .filter(e -> e.getValue().getIssueKey().startsWith("SCM-"))
+      .map(Map.Entry::getKey)
+      .limit(JiraOutbox.MAXIMUM_ENTRIES / 2)
+      .collect(Collectors.toList());
+    delivered.forEach(outbox::process);
+
+    verify(executor, times(JiraOutbox.MAXIMUM_ENTRIES + 1)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldScheduleOnlyTheOldestEntriesOnStart() {
+    for (int i = 0; i < JiraOutbox.MAXIMUM_ENTRIES + 5; i++) {
+      store.put(new OutboxEntry(OutboxEntry.Type.COMMENT, "42", "SCM-" + i, "Awesome", 1000L + i));
+    }
+
+    outbox.start(executor);
+
+    verify(executor, times(JiraOutbox.MAXIMUM_ENTRIES)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldIncreaseDelayIfLaneStaysFull() {
+    outbox.start(executor);
+    outbox.comment(repository, "SCM-42", "Awesome");
+    when(lanes.submit(eq("SCM-42"), any())).thenReturn(false);
+
+    runScheduled(0L);
+    runScheduled(JiraOutbox.BACKPRESSURE_DELAY);
+
+    verify(executor).schedule(any(Runnable.class), eq(2 * JiraOutbox.BACKPRESSURE_DELAY), eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void shouldDeliverUpdatesOfOtherIssuesIndependently() throws IOException {
+    outbox.comment(repository, "SCM-42", "Awesome");
+    String blockedId = store.getAll().keySet().iterator().next();
+    outbox.comment(repository, "SCM-21", "Incredible");
+    String otherId = store.getAll().keySet().stream().filter(id -> !id.equals(blockedId)).findFirst().get();
+    when(clock.millis()).thenReturn(1000L + JiraOutbox.AGGREGATION_WINDOW);
+
+    outbox.process(otherId);
+
+    verify(delivery).deliver(any());
+    assertThat(store.getAll()).containsOnlyKeys(blockedId);
+  }
+
+  private void runScheduled(long delay) {
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).schedule(captor.capture(), eq(delay), eq(TimeUnit.MILLISECONDS));
+    captor.getValue().run();
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxLanesTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private OutboxLanes lanes;
+
+  @BeforeEach
+  void setUpLanes() {
+    lanes = new OutboxLanes(4, 2, meterRegistry);
+    lanes.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    lanes.stop();
+  }
+
+  @Test
+  void shouldExecuteTasksOfTheSameKeyInOrder() throws InterruptedException {
+    OutboxLanes largeLanes = new OutboxLanes(4, 1000, new SimpleMeterRegistry());
+    largeLanes.start();
+    try {
+      List<Integer> executed = new CopyOnWriteArrayList<>();
+      List<String> threads = new CopyOnWriteArrayList<>();
+      CountDownLatch done = new CountDownLatch(100);
+      for (int i = 0; i < 100; i++) {
+        int task = i;
+        assertThat(largeLanes.submit("SCM-42", () -> {
+          executed.add(task);
+          threads.add(Thread.currentThread().getName());
+          done.countDown();
+        })).isTrue();
+      }
+
+      assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+      assertThat(executed).isSorted().hasSize(100);
+      assertThat(threads).containsOnly(threads.get(0));
+    } finally {
+      largeLanes.stop();
+    }
+  }
+
+  @Test
+  void shouldRejectTasksIfLaneIsFull() throws InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    lanes.submit("SCM-42", () -> {
+      started.countDown();
+      awaitQuietly(release);
+    });
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(lanes.submit("SCM-42", () -> {})).isTrue();
+    assertThat(lanes.submit("SCM-42", () -> {})).isTrue();
+    assertThat(lanes.submit("SCM-42", () -> {})).isFalse();
+
+    assertThat(meterRegistry.get("scm.jira.outbox.lane.rejected").counter().count()).isEqualTo(1.0);
+    assertThat(meterRegistry.get("scm.jira.outbox.lane.depth")
+      .tag("lane", String.valueOf(lanes.lane("SCM-42")))
+      .gauge()
+      .value()).isEqualTo(2.0);
+
+    release.countDown();
+  }
+
+  @Test
+  void shouldRecordWaitTime() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(1);
+    lanes.submit("SCM-42", done::countDown);
+
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(meterRegistry.get("scm.jira.outbox.lane.wait").timer().count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRejectTasksIfLanesAreStopped() {
+    lanes.stop();
+
+    assertThat(lanes.submit("SCM-42", () -> {})).isFalse();
+  }
+
+  private void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(10, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.outbox;
+
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.JiraStateChanger;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxStateChangerTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  @Mock
+  private RestApi restApi;
+
+  @Mock
+  private JiraOutbox outbox;
+
+  private OutboxStateChanger stateChanger;
+
+  @BeforeEach
+  void setUp() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setAutoCloseWords(ImmutableMap.of("fix,fixes", "done"));
+    JiraStateChanger jiraStateChanger = new JiraStateChanger(
+      restApi, configuration, new SimpleMeterRegistry().counter("avoided")
+    );
+    stateChanger = new OutboxStateChanger(outbox, repository, jiraStateChanger);
+  }
+
+  @Test
+  void shouldReturnMappedKeyWordsWithoutAskingJira() throws IOException {
+    Iterable<String> keyWords = stateChanger.getKeyWords("SCM-42");
+
+    assertThat(keyWords).containsOnly("fix", "fixes");
+    verify(restApi, never()).getTransitions(anyString());
+  }
+
+  @Test
+  void shouldQueueStateChange() {
+    stateChanger.changeState("SCM-42", "fixes");
+
+    verify(outbox).changeState(repository, "SCM-42", "fixes");
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.project;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.rest.RestApi;
+import sonia.scm.jira.rest.RestApiFactory;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProjectKeySyncTest {
+
+  private final InMemoryDataStore<ProjectKeyList> store = new InMemoryDataStore<>();
+
+  @Mock
+  private RestApiFactory restApiFactory;
+
+  @Mock
+  private RestApi restApi;
+
+  @Mock
+  private Clock clock;
+
+  private final ExecutorService executor = MoreExecutors.newDirectExecutorService();
+
+  private JiraConfiguration configuration;
+
+  private ProjectKeySync sync;
+
+  @BeforeEach
+  void setUp() {
+    configuration = new JiraConfiguration();
+    configuration.setUrl("https://jira.hitchhiker.com");
+    configuration.setFilter("SCM");
+    configuration.setSyncProjectKeys(true);
+    configuration.setUsername("trillian");
+
+    lenient().when(clock.millis()).thenReturn(1000L);
+    lenient().when(restApiFactory.create(configuration)).thenReturn(restApi);
+    sync = createSync();
+  }
+
+  private ProjectKeySync createSync() {
+    return new ProjectKeySync(new InMemoryDataStoreFactory(store), restApiFactory, executor, clock);
+  }
+
+  @Test
+  void shouldReturnConfiguredFilterIfSynchronizationIsDisabled() {
+    configuration.setSyncProjectKeys(false);
+
+    assertThat(sync.getFilter(configuration)).isEqualTo("SCM");
+    verifyNoInteractions(restApiFactory);
+  }
+
+  @Test
+  void shouldReturnSortedProjectKeys() throws IOException {
+    when(restApi.getProjectKeys()).thenReturn(List.of("TST", "HOG", "SCM"));
+
+    // the first call schedules the synchronization, which is executed directly in the test
+    sync.getFilter(configuration);
+
+    assertThat(sync.getFilter(configuration)).isEqualTo("HOG,SCM,TST");
+  }
+
+  @Test
+  void shouldSynchronizeOnlyAfterInterval() throws IOException {
+    when(restApi.getProjectKeys()).thenReturn(List.of("HOG"), List.of("HOG", "TST"));
+
+    sync.getFilter(configuration);
+    assertThat(sync.getFilter(configuration)).isEqualTo("HOG");
+
+    when(clock.millis()).thenReturn(1000L + ProjectKeySync.SYNC_INTERVAL);
+    sync.getFilter(configuration);
+
+    assertThat(sync.getFilter(configuration)).isEqualTo("HOG,TST");
+    verify(restApi, times(2)).getProjectKeys();
+  }
+
+  @Test
+  void shouldKeepPreviousKeysIfSynchronizationFails() throws IOException {
+    when(restApi.getProjectKeys())
+      .thenReturn(List.of("HOG"))
+      .thenThrow(new JiraException("unauthorized", 401));
+
+    sync.getFilter(configuration);
+    when(clock.millis()).thenReturn(1000L + ProjectKeySync.SYNC_INTERVAL);
+    sync.getFilter(configuration);
+
+    assertThat(sync.getFilter(configuration)).isEqualTo("HOG");
+  }
+
+  @Test
+  void shouldUseConfiguredFilterIfJiraReturnsNoProjects() throws IOException {
+    when(restApi.getProjectKeys()).thenReturn(Collections.emptyList());
+
+    sync.getFilter(configuration);
+
+    assertThat(sync.getFilter(configuration)).isEqualTo("SCM");
+  }
+
+  @Test
+  void shouldLoadStoredKeysAfterRestart() throws IOException {
+    when(restApi.getProjectKeys()).thenReturn(List.of("HOG"));
+    sync.getFilter(configuration);
+
+    ProjectKeySync restarted = createSync();
+
+    assertThat(restarted.getFilter(configuration)).isEqualTo("HOG");
+    verify(restApi, times(1)).getProjectKeys();
+  }
+
+  @Test
+  void shouldSynchronizeKeysPerCredentials() throws IOException {
+    when(restApi.getProjectKeys()).thenReturn(List.of("HOG"));
+    JiraConfiguration other = new JiraConfiguration();
+    other.setUrl("https://jira.hitchhiker.com");
+    other.setFilter("SCM");
+    other.setSyncProjectKeys(true);
+    other.setUsername("dent");
+    RestApi otherRestApi = mock(RestApi.class);
+    when(restApiFactory.create(other)).thenReturn(otherRestApi);
+    when(otherRestApi.getProjectKeys()).thenReturn(List.of("HOG", "TST"));
+
+    sync.getFilter(configuration);
+    sync.getFilter(other);
+
+    assertThat(sync.getFilter(configuration)).isEqualTo("HOG");
+    assertThat(sync.getFilter(other)).isEqualTo("HOG,TST");
+  }
+
+  @Test
+  void shouldStopExecutor() {
+    sync.stop();
+
+    assertThat(executor.isShutdown()).isTrue();
+  }
+}
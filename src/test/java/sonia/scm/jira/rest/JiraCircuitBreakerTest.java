@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JiraCircuitBreakerTest {
+
+  private static final String URL = "https://jira.hitchhiker.com";
+
+  @Mock
+  private Clock clock;
+
+  private JiraCircuitBreaker circuitBreaker;
+
+  @BeforeEach
+  void setUp() {
+    lenient().when(clock.millis()).thenReturn(1000L);
+    circuitBreaker = new JiraCircuitBreaker(clock);
+  }
+
+  @Test
+  void shouldStayClosedBelowThreshold() throws IOException {
+    for (int i = 1; i < JiraCircuitBreaker.FAILURE_THRESHOLD; i++) {
+      fail();
+    }
+
+    assertThat(circuitBreaker.isOpen(URL)).isFalse();
+    assertThat(circuitBreaker.getStatus()).singleElement().satisfies(status -> {
+      assertThat(status.getState()).isEqualTo(JiraCircuitBreaker.State.CLOSED);
+      assertThat(status.getFailures()).isEqualTo(JiraCircuitBreaker.FAILURE_THRESHOLD - 1);
+    });
+  }
+
+  @Test
+  void shouldResetFailuresOnSuccess() throws IOException {
+    for (int i = 1; i < JiraCircuitBreaker.FAILURE_THRESHOLD; i++) {
+      fail();
+    }
+    succeed();
+    fail();
+
+    assertThat(circuitBreaker.isOpen(URL)).isFalse();
+  }
+
+  @Test
+  void shouldFailFastIfOpen() throws IOException {
+    open();
+    AtomicInteger calls = new AtomicInteger();
+
+    JiraUnavailableException exception = assertThrows(
+      JiraUnavailableException.class,
+      () -> circuitBreaker.execute(URL, calls::incrementAndGet, r -> false)
+    );
+
+    assertThat(calls).hasValue(0);
+    assertThat(exception.getRetryAfter()).isEqualTo(JiraCircuitBreaker.OPEN_DURATION);
+    assertThat(circuitBreaker.isOpen(URL)).isTrue();
+  }
+
+  @Test
+  void shouldCountFailedResponses() throws IOException {
+    for (int i = 0; i < JiraCircuitBreaker.FAILURE_THRESHOLD; i++) {
+      circuitBreaker.execute(URL, () -> 503, status -> status >= 500);
+    }
+
+    assertThat(circuitBreaker.isOpen(URL)).isTrue();
+  }
+
+  @Test
+  void shouldNotCountThrottledRequests() throws IOException {
+    for (int i = 0; i < JiraCircuitBreaker.FAILURE_THRESHOLD; i++) {
+      assertThrows(JiraRateLimitException.class, () -> circuitBreaker.execute(URL, () -> {
+        throw new JiraRateLimitException("slow down", 1000L);
+      }, r -> false));
+    }
+
+    assertThat(circuitBreaker.isOpen(URL)).isFalse();
+  }
+
+  @Test
+  void shouldNotCountThrottledResponsesAsSuccess() throws IOException {
+    for (int i = 1; i < JiraCircuitBreaker.FAILURE_THRESHOLD; i++) {
+      fail();
+    }
+
+    circuitBreaker.execute(URL, () -> 429, status -> status >= 500, status -> status == 429);
+    fail();
+
+    assertThat(circuitBreaker.isOpen(URL)).isTrue();
+  }
+
+  @Test
+  void shouldKeepBreakerOpenAfterThrottledProbe() throws IOException {
+    open();
+    when(clock.millis()).thenReturn(1000L + JiraCircuitBreaker.OPEN_DURATION);
+
+    circuitBreaker.execute(URL, () -> 429, status -> status >= 500, status -> status == 429);
+
+    assertThat(circuitBreaker.getStatus()).singleElement()
+      .extracting(JiraCircuitBreaker.Status::getState)
+      .isEqualTo(JiraCircuitBreaker.State.HALF_OPEN);
+  }
+
+  @Test
+  void shouldCloseAfterSuccessfulProbe() throws IOException {
+    open();
+    when(clock.millis()).thenReturn(1000L + JiraCircuitBreaker.OPEN_DURATION);
+
+    succeed();
+
+    assertThat(circuitBreaker.getStatus()).singleElement()
+      .extracting(JiraCircuitBreaker.Status::getState)
+      .isEqualTo(JiraCircuitBreaker.State.CLOSED);
+  }
+
+  @Test
+  void shouldReopenAfterFailedProbe() throws IOException {
+    open();
+    when(clock.millis()).thenReturn(1000L + JiraCircuitBreaker.OPEN_DURATION);
+
+    fail();
+
+    assertThat(circuitBreaker.isOpen(URL)).isTrue();
+  }
+
+  @Test
+  void shouldAllowOnlyOneProbe() throws IOException {
+    open();
+    when(clock.millis()).thenReturn(1000L + JiraCircuitBreaker.OPEN_DURATION);
+
+    circuitBreaker.execute(URL, () -> {
+      assertThat(circuitBreaker.getStatus()).singleElement()
+        .extracting(JiraCircuitBreaker.Status::getState)
+        .isEqualTo(JiraCircuitBreaker.State.HALF_OPEN);
+      assertThrows(JiraUnavailableException.class, this::succeed);
+      return 200;
+    }, status -> false);
+
+    assertThat(circuitBreaker.isOpen(URL)).isFalse();
+  }
+
+  @Test
+  void shouldKeepBreakersPerUrl() throws IOException {
+    open();
+
+    Integer status = circuitBreaker.execute("https://other.hitchhiker.com", () -> 200, s -> false);
+
+    assertThat(status).isEqualTo(200);
+  }
+
+  private void open() throws IOException {
+    for (int i = 0; i < JiraCircuitBreaker.FAILURE_THRESHOLD; i++) {
+      fail();
+    }
+    assertThat(circuitBreaker.isOpen(URL)).isTrue();
+  }
+
+  private void fail() {
+    assertThrows(ConnectException.class, () -> circuitBreaker.execute(URL, () -> {
+      throw new ConnectException("connection refused");
+    }, r -> false));
+  }
+
+  private void succeed() throws IOException {
+    circuitBreaker.execute(URL, () -> 200, status -> false);
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import org.junit.jupiter.api.Test;
+import sonia.scm.jira.config.JiraConfiguration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JiraCredentialsTest {
+
+  @Test
+  void shouldIdentifyUser() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setUsername("trillian");
+    configuration.setPassword("secret");
+
+    assertThat(JiraCredentials.identity(configuration)).isEqualTo("user:trillian");
+  }
+
+  @Test
+  void shouldIdentifyAccessTokenWithoutRevealingIt() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setUsername("trillian");
+    configuration.setUseAccessToken(true);
+    configuration.setAccessToken("heart-of-gold");
+
+    String identity = JiraCredentials.identity(configuration);
+
+    assertThat(identity).startsWith("token:").doesNotContain("heart-of-gold");
+    configuration.setAccessToken("marvin");
+    assertThat(JiraCredentials.identity(configuration)).isNotEqualTo(identity);
+  }
+}
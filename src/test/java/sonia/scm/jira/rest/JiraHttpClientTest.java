@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.config.ScmConfiguration;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+import sonia.scm.trace.Span;
+import sonia.scm.trace.Tracer;
+
+import javax.net.ssl.SSLContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class JiraHttpClientTest {
+
+  @Mock
+  private Tracer tracer;
+
+  @Mock
+  private Span span;
+
+  private HttpServer server;
+  private String baseUrl;
+
+  private final List<Integer> clientPorts = new CopyOnWriteArrayList<>();
+  private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+  private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+  private JiraHttpClient client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    lenient().when(tracer.span("Jira")).thenReturn(span);
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/transitions", exchange -> respond(
+      exchange, 200, "{\"expand\":\"transitions\",\"transitions\":[{\"id\":\"21\",\"name\":\"Done\",\"to\":{}}]}"
+    ));
+    server.createContext("/comment", exchange -> respond(exchange, 201, "{}"));
+    server.createContext("/throttled", exchange -> {
+      exchange.getResponseHeaders().add("Retry-After", "42");
+      respond(exchange, 429, "");
+    });
+    server.start();
+    baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+    JiraConfigurationStore configurationStore = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory(), mock(ScmEventBus.class));
+    client = new JiraHttpClient(configurationStore, new ScmConfiguration(), () -> sslContext(), tracer);
+  }
+
+  private static SSLContext sslContext() {
+    try {
+      return SSLContext.getDefault();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.stop(0);
+  }
+
+  @Test
+  void shouldParseJsonResponse() throws IOException {
+    JiraHttpResponse response = client.get(baseUrl + "/transitions", "Bearer secret");
+
+    assertThat(response.isSuccessful()).isTrue();
+    assertThat(response.contentFromJson(RestTransitions.class).getTransitions())
+      .extracting(RestTransition::getId, RestTransition::getName)
+      .containsExactly(tuple("21", "Done"));
+    assertThat(authorizations).containsExactly("Bearer secret");
+  }
+
+  @Test
+  void shouldSendJsonContent() throws IOException {
+    JiraHttpResponse response = client.post(baseUrl + "/comment", "Bearer secret", new RestComment("Awesome", "developers"));
+
+    assertThat(response.getStatus()).isEqualTo(201);
+    assertThat(requestBodies).singleElement().satisfies(body -> {
+      assertThat(body).contains("\"body\":\"Awesome\"");
+      assertThat(body).contains("\"visibility\":{\"type\":\"role\",\"value\":\"developers\"}");
+      assertThat(body).contains("\"key\":\"sd.public.comment\"");
+      assertThat(body).doesNotContain("\"id\"");
+    });
+  }
+
+  @Test
+  void shouldSendTransitionWithComment() throws IOException {
+    client.post(baseUrl + "/comment", "Bearer secret", new RestDoTransition("21", new RestComment("Done")));
+    client.post(baseUrl + "/comment", "Bearer secret", new RestDoTransition("21"));
+
+    assertThat(requestBodies).hasSize(2);
+    assertThat(requestBodies.get(0))
+      .contains("\"transition\":{\"id\":\"21\"}")
+      .contains("\"update\":{\"comment\":[{\"add\":{\"body\":\"Done\"");
+    assertThat(requestBodies.get(1))
+      .isEqualTo("{\"transition\":{\"id\":\"21\"}}");
+  }
+
+  @Test
+  void shouldReturnHeaders() throws IOException {
+    JiraHttpResponse response = client.get(baseUrl + "/throttled", "Bearer secret");
+
+    assertThat(response.getStatus()).isEqualTo(429);
+    assertThat(response.isSuccessful()).isFalse();
+    assertThat(RateLimitHeaders.isExhausted(response.getHeaders())).isFalse();
+    assertThat(response.getHeaders().get("Retry-After")).containsExactly("42");
+    verify(span).failed();
+  }
+
+  @Test
+  void shouldReuseConnection() throws IOException {
+    client.get(baseUrl + "/transitions", "Bearer secret");
+    client.post(baseUrl + "/comment", "Bearer secret", new RestComment("Awesome"));
+    client.get(baseUrl + "/transitions", "Bearer secret");
+
+    assertThat(clientPorts).hasSize(3).containsOnly(clientPorts.get(0));
+  }
+
+  private void respond(HttpExchange exchange, int status, String body) throws IOException {
+    clientPorts.add(exchange.getRemoteAddress().getPort());
+    authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+    try (InputStream input = exchange.getRequestBody()) {
+      requestBodies.add(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+    }
+    byte[] content = body.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, content.length > 0 ? content.length : -1);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(content);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.config.JiraGlobalConfiguration;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+@SubjectAware(value = "trillian", permissions = "configuration:write:jira")
+@ExtendWith(ShiroExtension.class)
+class JiraRateLimiterTest {
+
+  private static final String URL = "https://jira.hitchhiker.com";
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private JiraConfigurationStore configurationStore;
+
+  private JiraRateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    configurationStore = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory(), mock(ScmEventBus.class));
+    rateLimiter = new JiraRateLimiter(configurationStore, meterRegistry);
+  }
+
+  @Test
+  void shouldExecuteCall() throws IOException {
+    String result = rateLimiter.execute(URL, () -> "42");
+    assertThat(result).isEqualTo("42");
+  }
+
+  @Test
+  void shouldNotLimitConcurrentRequestsByDefault() throws IOException {
+    rateLimiter.execute(URL, () -> null);
+
+    assertThat(meterRegistry.get("scm.jira.ratelimit.permits").gauge().value()).isNaN();
+  }
+
+  @Test
+  void shouldExposeAvailablePermits() throws IOException {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setMaxConcurrentRequests(4);
+    configurationStore.setGlobalConfiguration(configuration);
+
+    rateLimiter.execute(URL, () -> {
+      assertThat(meterRegistry.get("scm.jira.ratelimit.permits").tag("host", "jira.hitchhiker.com").gauge().value())
+        .isEqualTo(3.0);
+      return null;
+    });
+
+    assertThat(meterRegistry.get("scm.jira.ratelimit.permits").gauge().value()).isEqualTo(4.0);
+  }
+
+  @Test
+  void shouldUseConfiguredPermits() throws IOException {
+    JiraGlobalConfiguration configuration = new JiraGlobalConfiguration();
+    configuration.setMaxConcurrentRequests(2);
+    configurationStore.setGlobalConfiguration(configuration);
+
+    rateLimiter.execute(URL, () -> null);
+
+    assertThat(meterRegistry.get("scm.jira.ratelimit.permits").gauge().value()).isEqualTo(2.0);
+  }
+
+  @Test
+  void shouldFailFastForLongThrottlePeriods() {
+    rateLimiter.throttle(URL, 60_000L);
+
+    JiraRateLimitException exception = assertThrows(JiraRateLimitException.class, () -> rateLimiter.execute(URL, () -> null));
+    assertThat(exception.getRetryAfter()).isGreaterThan(JiraRateLimiter.MAXIMUM_WAIT);
+    assertThat(meterRegistry.get("scm.jira.ratelimit.throttled").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void shouldNotThrottleOtherInstances() throws IOException {
+    rateLimiter.throttle(URL, 60_000L);
+
+    String result = rateLimiter.execute("https://other.hitchhiker.com", () -> "42");
+    assertThat(result).isEqualTo("42");
+  }
+}
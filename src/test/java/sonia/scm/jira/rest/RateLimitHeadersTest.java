@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.google.common.collect.ImmutableMultimap;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimitHeadersTest {
+
+  private static final Instant NOW = Instant.parse("2025-08-08T10:00:00Z");
+
+  @Test
+  void shouldParseRetryAfterSeconds() {
+    long retryAfter = RateLimitHeaders.retryAfter(ImmutableMultimap.of("Retry-After", "42"), NOW);
+    assertThat(retryAfter).isEqualTo(42_000L);
+  }
+
+  @Test
+  void shouldParseRetryAfterDate() {
+    long retryAfter = RateLimitHeaders.retryAfter(ImmutableMultimap.of("retry-after", "Fri, 08 Aug 2025 10:00:21 GMT"), NOW);
+    assertThat(retryAfter).isEqualTo(21_000L);
+  }
+
+  @Test
+  void shouldParseRateLimitReset() {
+    long retryAfter = RateLimitHeaders.retryAfter(ImmutableMultimap.of("X-RateLimit-Reset", "2025-08-08T10:01:00Z"), NOW);
+    assertThat(retryAfter).isEqualTo(60_000L);
+  }
+
+  @Test
+  void shouldUseIntervalAsFallback() {
+    long retryAfter = RateLimitHeaders.retryAfter(ImmutableMultimap.of("X-RateLimit-Interval-Seconds", "2"), NOW);
+    assertThat(retryAfter).isEqualTo(2_000L);
+  }
+
+  @Test
+  void shouldUseDefaultWithoutHeaders() {
+    long retryAfter = RateLimitHeaders.retryAfter(ImmutableMultimap.of("Retry-After", "tomorrow"), NOW);
+    assertThat(retryAfter).isEqualTo(RateLimitHeaders.DEFAULT_RETRY_AFTER);
+  }
+
+  @Test
+  void shouldDetectExhaustedLimit() {
+    assertThat(RateLimitHeaders.isExhausted(ImmutableMultimap.of("X-RateLimit-Remaining", "0"))).isTrue();
+    assertThat(RateLimitHeaders.isExhausted(ImmutableMultimap.of("X-RateLimit-Remaining", "12"))).isFalse();
+    assertThat(RateLimitHeaders.isExhausted(ImmutableMultimap.of())).isFalse();
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableListMultimap;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.jira.JiraException;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.store.InMemoryConfigurationStoreFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RestApiTest {
+
+  @Mock
+  private JiraHttpClient client;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private RestApi restApi;
+
+  @BeforeEach
+  void setUp() {
+    JiraConfiguration configuration = new JiraConfiguration();
+    configuration.setUrl("https://jira.hitchhiker.com");
+    JiraConfigurationStore configurationStore = new JiraConfigurationStore(new InMemoryConfigurationStoreFactory(), mock(ScmEventBus.class));
+    restApi = new RestApi(
+      client,
+      configuration,
+      new TransitionCache(),
+      new JiraRateLimiter(configurationStore, meterRegistry),
+      new JiraCircuitBreaker(),
+      meterRegistry
+    );
+  }
+
+  @Test
+  void shouldRecordSuccessfulRequests() throws IOException {
+    when(client.post(anyString(), anyString(), any())).thenReturn(response(201));
+
+    restApi.addComment("SCM-42", new RestComment("Awesome"));
+
+    Timer timer = timer("addComment", "2xx");
+    assertThat(timer.count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldAddCommentWithoutNotification() throws IOException {
+    when(client.put(anyString(), anyString(), any())).thenReturn(response(204));
+
+    restApi.addComment("SCM-42", new RestComment("Awesome"), false);
+
+    verify(client).put(eq("https://jira.hitchhiker.com/rest/api/2/issue/SCM-42?notifyUsers=false"), anyString(), any(RestIssueEdit.class));
+    verify(client, never()).post(anyString(), anyString(), any());
+    assertThat(timer("addComment", "2xx").count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRecordFailedRequests() throws IOException {
+    when(client.post(anyString(), anyString(), any())).thenReturn(response(404));
+
+    assertThrows(JiraException.class, () -> restApi.changeState("SCM-42", "21"));
+
+    assertThat(timer("changeState", "4xx").count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRecordIOErrors() throws IOException {
+    when(client.get(anyString(), anyString())).thenThrow(new ConnectException("connection refused"));
+
+    assertThrows(ConnectException.class, () -> restApi.getTransitions("SCM-42"));
+
+    assertThat(timer("getTransitions", "IO_ERROR").count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReturnProjectKeys() throws IOException {
+    String json = "[{\"key\":\"SCM\",\"name\":\"SCM-Manager\",\"id\":\"10000\"},{\"key\":\"HOG\",\"name\":\"Heart of Gold\"}]";
+    ObjectMapper objectMapper = new ObjectMapper()
+      .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+      .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    when(client.get(eq("https://jira.hitchhiker.com/rest/api/2/project"), anyString())).thenReturn(
+      new JiraHttpResponse(objectMapper, 200, ImmutableListMultimap.of(), json.getBytes(StandardCharsets.UTF_8))
+    );
+
+    assertThat(restApi.getProjectKeys()).containsExactly("SCM", "HOG");
+    assertThat(timer("getProjects", "2xx").count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldFailIfProjectsCouldNotBeRetrieved() throws IOException {
+    when(client.get(anyString(), anyString())).thenReturn(response(401));
+
+    JiraException exception = assertThrows(JiraException.class, () -> restApi.getProjectKeys());
+    assertThat(exception.getStatus()).isEqualTo(401);
+  }
+
+  private Timer timer(String operation, String status) {
+    return meterRegistry.get("scm.jira.requests")
+      .tag("host", "jira.hitchhiker.com")
+      .tag("operation", operation)
+      .tag("status", status)
+      .timer();
+  }
+
+  private JiraHttpResponse response(int status) {
+    return new JiraHttpResponse(null, status, ImmutableListMultimap.of(), new byte[0]);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.rest;
+
+import org.junit.jupiter.api.Test;
+import sonia.scm.jira.JiraException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransitionCacheTest {
+
+  private static final String URL = "https://jira.hitchhiker.com";
+  private static final String USER = "user:trillian";
+
+  private final TransitionCache cache = new TransitionCache();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  void shouldCacheTransitions() throws IOException {
+    cache.get(URL, USER, "SCM-42", this::load);
+    Collection<RestTransition> transitions = cache.get(URL, USER, "SCM-42", this::load);
+
+    assertThat(transitions).extracting("name").containsExactly("done");
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldSeparateIssuesAndUrls() throws IOException {
+    cache.get(URL, USER, "SCM-42", this::load);
+    cache.get(URL, USER, "SCM-21", this::load);
+    cache.get("https://other.hitchhiker.com", USER, "SCM-42", this::load);
+
+    assertThat(loads.get()).isEqualTo(3);
+  }
+
+  @Test
+  void shouldSeparateUsers() throws IOException {
+    cache.get(URL, USER, "SCM-42", this::load);
+    cache.get(URL, "user:dent", "SCM-42", this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldInvalidateTransitionsOfAllUsers() throws IOException {
+    cache.get(URL, USER, "SCM-42", this::load);
+    cache.get(URL, "user:dent", "SCM-42", this::load);
+    cache.get(URL, USER, "SCM-21", this::load);
+
+    cache.invalidate(URL, "SCM-42");
+    cache.get(URL, USER, "SCM-42", this::load);
+    cache.get(URL, "user:dent", "SCM-42", this::load);
+    cache.get(URL, USER, "SCM-21", this::load);
+
+    assertThat(loads.get()).isEqualTo(5);
+  }
+
+  @Test
+  void shouldLoadAgainAfterInvalidation() throws IOException {
+    cache.get(URL, USER, "SCM-42", this::load);
+    cache.invalidate(URL, "SCM-42");
+    cache.get(URL, USER, "SCM-42", this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldNotCacheTransitionsWhichWereLoadedDuringInvalidation() throws IOException {
+    cache.get(URL, USER, "SCM-42", () -> {
+      Collection<RestTransition> transitions = load();
+      cache.invalidate(URL, "SCM-42");
+      return transitions;
+    });
+    cache.get(URL, USER, "SCM-42", this::load);
+
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldPassIOExceptions() {
+    assertThrows(JiraException.class, () -> cache.get(URL, USER, "SCM-42", () -> {
+      throw new JiraException("failed");
+    }));
+  }
+
+  @Test
+  void shouldPassRuntimeExceptionsUnchanged() {
+    IllegalStateException exception = new IllegalStateException("failed");
+
+    IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> cache.get(URL, USER, "SCM-42", () -> {
+      throw exception;
+    }));
+
+    assertThat(thrown).isSameAs(exception);
+  }
+
+  @Test
+  void shouldCoalesceConcurrentLookups() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(10);
+    try {
+      List<Future<Collection<RestTransition>>> futures = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        futures.add(executor.submit(() -> cache.get(URL, USER, "SCM-42", () -> {
+          release.await(5, TimeUnit.SECONDS);
+          return load();
+        })));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<Collection<RestTransition>> future : futures) {
+        assertThat(future.get(5, TimeUnit.SECONDS)).hasSize(1);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(loads.get()).isEqualTo(1);
+  }
+
+  private Collection<RestTransition> load() {
+    loads.incrementAndGet();
+    return Collections.singletonList(new RestTransition("1", "done"));
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.spi.Commentator;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportStormCommentatorTest {
+
+  private static final String COMMENT = "[SCM] Issue referenced by commit of repository hitchhiker/HeartOfGold\n\n"
+    + "[Changes|https://scm.hitchhiker.com/repo/hitchhiker/HeartOfGold/code/changeset/abc]";
+
+  @Mock
+  private ImportStormGuard guard;
+
+  @Mock
+  private Commentator delegate;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private ImportStormCommentator commentator;
+
+  @BeforeEach
+  void setUpCommentator() {
+    repository.setId("42");
+    commentator = new ImportStormCommentator(guard, repository, delegate);
+  }
+
+  @Test
+  void shouldSkipChangesetsOfImportStorms() throws IOException {
+    when(guard.isSkipped("42", "abc")).thenReturn(true);
+
+    commentator.comment("HOG-1", COMMENT);
+
+    verify(delegate, never()).comment(anyString(), anyString());
+  }
+
+  @Test
+  void shouldCommentOtherChangesets() throws IOException {
+    when(guard.isSkipped("42", "abc")).thenReturn(false);
+
+    commentator.comment("HOG-1", COMMENT);
+
+    verify(delegate).comment("HOG-1", COMMENT);
+  }
+
+  @Test
+  void shouldCommentWithoutChangesetLink() throws IOException {
+    commentator.comment("HOG-1", "Referenced by pull request");
+
+    verify(delegate).comment("HOG-1", "Referenced by pull request");
+    verifyNoInteractions(guard);
+  }
+}
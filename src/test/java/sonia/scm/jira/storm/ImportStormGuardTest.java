@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import com.github.legman.Subscribe;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.jira.backfill.BackfillStatus;
+import sonia.scm.jira.backfill.JiraBackfill;
+import sonia.scm.jira.config.JiraConfiguration;
+import sonia.scm.jira.config.JiraConfigurationResolver;
+import sonia.scm.jira.config.JiraConfigurationStore;
+import sonia.scm.jira.config.JiraGlobalConfiguration;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.PreReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportStormGuardTest {
+
+  @Mock
+  private JiraConfigurationResolver resolver;
+
+  @Mock
+  private JiraConfigurationStore configurationStore;
+
+  @Mock
+  private JiraBackfill backfill;
+
+  @Mock
+  private Clock clock;
+
+  @Mock
+  private PreReceiveRepositoryHookEvent preReceiveEvent;
+
+  @Mock
+  private PostReceiveRepositoryHookEvent postReceiveEvent;
+
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  private HookContext context;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+  private final JiraConfiguration configuration = new JiraConfiguration();
+  private final JiraGlobalConfiguration globalConfiguration = new JiraGlobalConfiguration();
+
+  private ImportStormLog stormLog;
+  private ImportStormGuard guard;
+
+  @BeforeEach
+  void setUp() {
+    repository.setId("42");
+    configuration.setUrl("https://issues.hitchhiker.com");
+    configuration.setUpdateIssues(true);
+    globalConfiguration.setImportStormThreshold(3);
+    lenient().when(configurationStore.getGlobalConfiguration()).thenReturn(globalConfiguration);
+    lenient().when(resolver.resolve(repository)).thenReturn(Optional.of(configuration));
+    lenient().when(preReceiveEvent.getRepository()).thenReturn(repository);
+    lenient().when(preReceiveEvent.getContext()).thenReturn(context);
+    lenient().when(postReceiveEvent.getRepository()).thenReturn(repository);
+    lenient().when(postReceiveEvent.getContext()).thenReturn(context);
+    lenient().when(context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)).thenReturn(true);
+    lenient().when(clock.millis()).thenReturn(1000L);
+    stormLog = new ImportStormLog(new InMemoryDataStoreFactory(new InMemoryDataStore<>()));
+    guard = new ImportStormGuard(resolver, configurationStore, backfill, stormLog, clock);
+  }
+
+  @Test
+  void shouldNotSkipPushesBelowThreshold() {
+    push(3);
+
+    guard.onPreReceive(preReceiveEvent);
+    guard.onPostReceive(postReceiveEvent);
+
+    assertThat(guard.isSkipped("42", "c0")).isFalse();
+    assertThat(guard.isActive("42")).isFalse();
+    assertThat(stormLog.getEntries()).isEmpty();
+  }
+
+  @Test
+  void shouldHandleHookEventsSynchronously() throws NoSuchMethodException {
+    // the changesets must be recorded before the issue tracker comments their references
+    assertThat(ImportStormGuard.class.getMethod("onPreReceive", PreReceiveRepositoryHookEvent.class)
+      .getAnnotation(Subscribe.class).async()).isFalse();
+    assertThat(ImportStormGuard.class.getMethod("onPostReceive", PostReceiveRepositoryHookEvent.class)
+      .getAnnotation(Subscribe.class).async()).isFalse();
+  }
+
+  @Test
+  void shouldSkipChangesetsOfPushesAboveThreshold() {
+    push(4);
+
+    guard.onPreReceive(preReceiveEvent);
+
+    assertThat(guard.isSkipped("42", "c0")).isTrue();
+    assertThat(guard.isSkipped("42", "c3")).isTrue();
+    assertThat(guard.isSkipped("42", "other")).isFalse();
+    assertThat(guard.isSkipped("21", "c0")).isFalse();
+    assertThat(guard.isActive("42")).isTrue();
+  }
+
+  @Test
+  void shouldLogDroppedPush() {
+    push(4);
+
+    guard.onPreReceive(preReceiveEvent);
+    guard.onPostReceive(postReceiveEvent);
+
+    List<ImportStormLogEntry> entries = stormLog.getEntries();
+    assertThat(entries).hasSize(1);
+    ImportStormLogEntry entry = entries.get(0);
+    assertThat(entry.getRepositoryId()).isEqualTo("42");
+    assertThat(entry.getChangesets()).isEqualTo(4);
+    assertThat(entry.getThreshold()).isEqualTo(3);
+    assertThat(entry.getAction()).isEqualTo(ImportStormLogEntry.Action.DROPPED);
+    verify(backfill, never()).start(repository, true);
+  }
+
+  @Test
+  void shouldRecordImportsFromPostReceive() {
+    push(4);
+
+    guard.onPostReceive(postReceiveEvent);
+
+    assertThat(guard.isSkipped("42", "c1")).isTrue();
+    assertThat(stormLog.getEntries()).hasSize(1);
+  }
+
+  @Test
+  void shouldHandOverToBackfill() {
+    globalConfiguration.setImportStormBackfill(true);
+    when(backfill.start(repository, true)).thenReturn(Optional.of(mock(BackfillStatus.class)));
+    push(4);
+
+    guard.onPostReceive(postReceiveEvent);
+
+    assertThat(stormLog.getEntries().get(0).getAction()).isEqualTo(ImportStormLogEntry.Action.BACKFILL);
+  }
+
+  @Test
+  void shouldLogRunningBackfill() {
+    globalConfiguration.setImportStormBackfill(true);
+    when(backfill.start(repository, true)).thenReturn(Optional.empty());
+    push(4);
+
+    guard.onPostReceive(postReceiveEvent);
+
+    assertThat(stormLog.getEntries().get(0).getAction()).isEqualTo(ImportStormLogEntry.Action.BACKFILL_RUNNING);
+  }
+
+  @Test
+  void shouldNotGuardWithoutThreshold() {
+    globalConfiguration.setImportStormThreshold(0);
+
+    guard.onPostReceive(postReceiveEvent);
+
+    assertThat(stormLog.getEntries()).isEmpty();
+    verify(backfill, never()).start(any(), anyBoolean());
+  }
+
+  @Test
+  void shouldNotGuardRepositoriesWithoutIssueUpdates() {
+    configuration.setUpdateIssues(false);
+    push(4);
+
+    guard.onPostReceive(postReceiveEvent);
+
+    assertThat(guard.isSkipped("42", "c0")).isFalse();
+    assertThat(stormLog.getEntries()).isEmpty();
+  }
+
+  @Test
+  void shouldEndStateChangeSuppressionAfterIdleTime() {
+    push(4);
+    guard.onPreReceive(preReceiveEvent);
+
+    when(clock.millis()).thenReturn(1000L + ImportStormGuard.IDLE_TIME - 1);
+    assertThat(guard.isSkipped("42", "c2")).isTrue();
+
+    when(clock.millis()).thenReturn(1000L + 2 * ImportStormGuard.IDLE_TIME - 2);
+    assertThat(guard.isActive("42")).isTrue();
+
+    when(clock.millis()).thenReturn(1000L + 2 * ImportStormGuard.IDLE_TIME);
+    assertThat(guard.isActive("42")).isFalse();
+  }
+
+  private void push(int count) {
+    List<Changeset> changesets = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      changesets.add(new Changeset("c" + i, 1L, null));
+    }
+    when(context.getChangesetProvider().getChangesets()).thenReturn(changesets);
+  }
+}
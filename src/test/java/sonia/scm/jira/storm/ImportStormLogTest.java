@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import org.junit.jupiter.api.Test;
+import sonia.scm.store.InMemoryDataStore;
+import sonia.scm.store.InMemoryDataStoreFactory;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImportStormLogTest {
+
+  private final ImportStormLog stormLog = new ImportStormLog(new InMemoryDataStoreFactory(new InMemoryDataStore<>()));
+
+  @Test
+  void shouldReturnLatestEntryFirst() {
+    stormLog.add(entry(1));
+    stormLog.add(entry(3));
+    stormLog.add(entry(2));
+
+    assertThat(stormLog.getEntries()).extracting(ImportStormLogEntry::getTime).containsExactly(3L, 2L, 1L);
+  }
+
+  @Test
+  void shouldKeepOnlyLatestEntries() {
+    for (int i = 0; i < ImportStormLog.MAXIMUM_ENTRIES + 10; i++) {
+      stormLog.add(entry(i));
+    }
+
+    List<ImportStormLogEntry> entries = stormLog.getEntries();
+    assertThat(entries).hasSize(ImportStormLog.MAXIMUM_ENTRIES);
+    assertThat(entries.get(entries.size() - 1).getTime()).isEqualTo(10L);
+  }
+
+  private ImportStormLogEntry entry(long time) {
+    return new ImportStormLogEntry("42", "hitchhiker", "HeartOfGold", 5000, 1000, ImportStormLogEntry.Action.DROPPED, time);
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 - present Cloudogu GmbH
+ *
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Affero General Public License as published by the Free
+ * Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Affero General Public License for more
+ * details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see https://www.gnu.org/licenses/.
+ */
+
+package sonia.scm.jira.storm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.issuetracker.spi.StateChanger;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ImportStormStateChangerTest {
+
+  @Mock
+  private ImportStormGuard guard;
+
+  @Mock
+  private StateChanger delegate;
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  private ImportStormStateChanger stateChanger;
+
+  @BeforeEach
+  void setUpStateChanger() {
+    repository.setId("42");
+    stateChanger = new ImportStormStateChanger(guard, repository, delegate);
+  }
+
+  @Test
+  void shouldSkipStateChangesDuringImportStorm() throws IOException {
+    when(guard.isActive("42")).thenReturn(true);
+
+    assertThat(stateChanger.getKeyWords("HOG-1")).isEmpty();
+    stateChanger.changeState("HOG-1", "done");
+
+    verify(delegate, never()).getKeyWords(anyString());
+    verify(delegate, never()).changeState(anyString(), anyString());
+  }
+
+  @Test
+  void shouldChangeStateWithoutImportStorm() throws IOException {
+    when(guard.isActive("42")).thenReturn(false);
+    when(delegate.getKeyWords("HOG-1")).thenReturn(Collections.singletonList("done"));
+
+    assertThat(stateChanger.getKeyWords("HOG-1")).containsExactly("done");
+    stateChanger.changeState("HOG-1", "done");
+
+    verify(delegate).changeState("HOG-1", "done");
+  }
+}